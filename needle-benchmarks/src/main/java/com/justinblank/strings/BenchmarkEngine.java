@@ -0,0 +1,166 @@
+package com.justinblank.strings;
+
+import com.justinblank.strings.RegexAST.Node;
+import com.justinblank.strings.Search.SearchMethods;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ways a regex can be executed. Each engine exposes the same three operations, so that a benchmark method can be
+ * written once and parameterized by engine.
+ */
+public enum BenchmarkEngine {
+
+    /**
+     * The generated bytecode DFA from {@link DFACompiler#compile(String, String, int)}.
+     */
+    DFA {
+        @Override
+        Runner prepare(String regex, int flags) {
+            return new NeedleRunner(DFACompiler.compile(regex, nextClassName(), flags));
+        }
+    },
+    /**
+     * The NFA simulation from {@link NFA#createNFA(String, int)}. Note that for regexes that are a union of literals,
+     * this will hand back an Aho-Corasick automaton, just as it would outside of the benchmarks.
+     */
+    NFA {
+        @Override
+        Runner prepare(String regex, int flags) {
+            return new NeedleRunner(com.justinblank.strings.NFA.createNFA(regex, flags));
+        }
+    },
+    /**
+     * The Aho-Corasick implementations from {@link SearchMethods#makeSearchMethod(java.util.Collection)}. Only
+     * applicable to regexes whose factorization is a complete set of literals.
+     */
+    SEARCH_METHOD {
+        @Override
+        Runner prepare(String regex, int flags) {
+            Node node = RegexParser.parse(regex, flags);
+            var factors = node.bestFactors();
+            if (!factors.isComplete()) {
+                throw new IllegalArgumentException("Regex '" + regex + "' is not a union of literals, and cannot be run by a SearchMethod");
+            }
+            return new NeedleRunner(SearchMethods.makeSearchMethod(factors.getAll()));
+        }
+    },
+    /**
+     * java.util.regex, for comparison.
+     */
+    JDK {
+        @Override
+        Runner prepare(String regex, int flags) {
+            return new JdkRunner(java.util.regex.Pattern.compile(regex, flags & ~Pattern.LEFTMOST_LONGEST));
+        }
+    };
+
+    private static final AtomicInteger CLASS_NAME_COUNTER = new AtomicInteger();
+
+    abstract Runner prepare(String regex, int flags);
+
+    static String nextClassName() {
+        return "BenchmarkPattern" + CLASS_NAME_COUNTER.incrementAndGet();
+    }
+
+    interface Runner {
+
+        int countMatches(String[] lines);
+
+        int countContainedIn(String[] lines);
+
+        /**
+         * Count the non-overlapping matches in the haystack, searching from the end of each match for the next one.
+         */
+        int countFinds(String haystack);
+    }
+
+    static class NeedleRunner implements Runner {
+
+        private final Pattern pattern;
+
+        NeedleRunner(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public int countMatches(String[] lines) {
+            int count = 0;
+            for (String line : lines) {
+                if (pattern.matcher(line).matches()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int countContainedIn(String[] lines) {
+            int count = 0;
+            for (String line : lines) {
+                if (pattern.matcher(line).containedIn()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int countFinds(String haystack) {
+            int count = 0;
+            int length = haystack.length();
+            int index = 0;
+            Matcher matcher = pattern.matcher(haystack);
+            while (index <= length && matcher.find(index, length)) {
+                count++;
+                // Step past empty matches so that we always make progress
+                index = Math.max(matcher.end(), index + 1);
+            }
+            return count;
+        }
+    }
+
+    static class JdkRunner implements Runner {
+
+        private final java.util.regex.Pattern pattern;
+
+        JdkRunner(java.util.regex.Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public int countMatches(String[] lines) {
+            int count = 0;
+            for (String line : lines) {
+                if (pattern.matcher(line).matches()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int countContainedIn(String[] lines) {
+            int count = 0;
+            for (String line : lines) {
+                if (pattern.matcher(line).find()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int countFinds(String haystack) {
+            int count = 0;
+            int length = haystack.length();
+            int index = 0;
+            java.util.regex.Matcher matcher = pattern.matcher(haystack);
+            while (index <= length && matcher.find(index)) {
+                count++;
+                index = Math.max(matcher.end(), index + 1);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.justinblank.strings;
+
+import com.justinblank.classcompiler.ClassCompiler;
+import com.justinblank.strings.RegexAST.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times each phase of {@link DFACompiler#compileToBytes(String, String, CompilerOptions)} separately, so that when
+ * compilation gets slower, we can tell which phase is responsible. The output of every phase is computed once during
+ * setup, and each benchmark method runs only a single phase on the output of the phase before it.
+ *
+ * The {@link #compileToBytes()} benchmark times the whole pipeline, and should be roughly the sum of the others.
+ * {@link #compileToBytesOnExecutor()} times it with the DFAs built concurrently, which on a machine with four or more
+ * cores should take about as long as the slowest DFA. {@link #firstMatchCompiled()} and {@link #firstMatchTiered()} time
+ * how long a caller waits to get its first answer from a new pattern.
+ *
+ * Run with e.g. {@code java -jar needle-benchmarks/target/benchmarks.jar CompilePhaseBenchmark -p flags=NONE}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilePhaseBenchmark {
+
+    @Param({
+            // literals
+            "Sherlock",
+            "Sherlock Holmes and Doctor Watson",
+            // large alternations
+            "Sherlock|Holmes|Watson|Irene|Adler|John|Baker|Street|Lestrade|Hudson|Moriarty|Mycroft",
+            "(January|February|March|April|May|June|July|August|September|October|November|December) [0-9]{1,2}",
+            // unicode classes
+            "[α-ω]+",
+            "[\\u0400-\\u04FF][\\u0400-\\u04FF\\u0500-\\u052F]*",
+            "\\p{Alpha}+\\p{Punct}",
+            // counted repetitions
+            "[a-z]{3,12}",
+            "[a-q][^u-z]{13}x",
+            "([0-9]{1,3}\\.){3}[0-9]{1,3}",
+            // mixed
+            "Holmes.{0,25}Watson|Watson.{0,25}Holmes",
+            "the\\s+\\w+"
+    })
+    String regex;
+
+    @Param({"NONE", "CASE_INSENSITIVE", "LEFTMOST_LONGEST"})
+    String flags;
+
+    CompilerOptions options;
+    ExecutorService executor;
+    boolean leftmostLongest;
+
+    Node node;
+    NFA forwardNFA;
+    NFA reversedNFA;
+    DFA dfa;
+    DFA containedInDFA;
+    DFA dfaReversed;
+    DFA dfaSearch;
+    Factorization factorization;
+
+    @Setup
+    public void setup() {
+        options = CompilerOptions.fromFlags(parseFlags(flags));
+        leftmostLongest = (options.flags & Pattern.LEFTMOST_LONGEST) == Pattern.LEFTMOST_LONGEST;
+
+        node = RegexParser.parse(regex, options.flags);
+        factorization = Factorization.buildFactorization(node);
+        forwardNFA = new NFA(RegexInstrBuilder.createNFA(node, leftmostLongest));
+        reversedNFA = new NFA(RegexInstrBuilder.createNFA(node.reversed(), leftmostLongest));
+        dfa = NFAToDFACompiler.compile(forwardNFA, ConversionMode.BASIC);
+        containedInDFA = NFAToDFACompiler.compile(forwardNFA, ConversionMode.CONTAINED_IN);
+        dfaReversed = NFAToDFACompiler.compile(reversedNFA, ConversionMode.BASIC);
+        dfaSearch = NFAToDFACompiler.compile(forwardNFA, ConversionMode.DFA_SEARCH);
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    static int parseFlags(String flags) {
+        switch (flags) {
+            case "NONE":
+                return 0;
+            case "CASE_INSENSITIVE":
+                return Pattern.CASE_INSENSITIVE;
+            case "LEFTMOST_LONGEST":
+                return Pattern.LEFTMOST_LONGEST;
+            default:
+                throw new IllegalArgumentException("Unrecognized flags: " + flags);
+        }
+    }
+
+    DFAClassBuilder newClassBuilder() {
+        return new DFAClassBuilder("CompilePhaseBenchmarkPattern", dfa, containedInDFA, dfaReversed, dfaSearch,
+                factorization, options);
+    }
+
+    @Benchmark
+    public Node parse() {
+        return RegexParser.parse(regex, options.flags);
+    }
+
+    @Benchmark
+    public Factorization factorization() {
+        return Factorization.buildFactorization(node);
+    }
+
+    @Benchmark
+    public RegexInstr[] forwardNFA() {
+        return RegexInstrBuilder.createNFA(node, leftmostLongest);
+    }
+
+    @Benchmark
+    public RegexInstr[] reversedNFA() {
+        return RegexInstrBuilder.createNFA(node.reversed(), leftmostLongest);
+    }
+
+    @Benchmark
+    public DFA basicDFA() {
+        return NFAToDFACompiler.compile(forwardNFA, ConversionMode.BASIC);
+    }
+
+    @Benchmark
+    public DFA containedInDFA() {
+        return NFAToDFACompiler.compile(forwardNFA, ConversionMode.CONTAINED_IN);
+    }
+
+    @Benchmark
+    public DFA reversedDFA() {
+        return NFAToDFACompiler.compile(reversedNFA, ConversionMode.BASIC);
+    }
+
+    @Benchmark
+    public DFA searchDFA() {
+        return NFAToDFACompiler.compile(forwardNFA, ConversionMode.DFA_SEARCH);
+    }
+
+    @Benchmark
+    public DFAClassBuilder initMethods() {
+        var builder = newClassBuilder();
+        builder.initMethods();
+        return builder;
+    }
+
+    /**
+     * The ClassCompiler consumes the builder, so each invocation needs a freshly initialized one.
+     */
+    @State(Scope.Thread)
+    public static class InitializedBuilder {
+
+        DFAClassBuilder builder;
+
+        @Setup(Level.Invocation)
+        public void setup(CompilePhaseBenchmark benchmark) {
+            builder = benchmark.newClassBuilder();
+            builder.initMethods();
+        }
+    }
+
+    @Benchmark
+    public byte[] generateClass(InitializedBuilder initialized) {
+        return new ClassCompiler(initialized.builder).generateClassAsBytes();
+    }
+
+    @Benchmark
+    public byte[] compileToBytes() {
+        return DFACompiler.compileToBytes(regex, "CompilePhaseBenchmarkPattern", options);
+    }
+
+    @Benchmark
+    public byte[] compileToBytesOnExecutor() {
+        return DFACompiler.compileToBytes(regex, "CompilePhaseBenchmarkPattern", options.withExecutor(executor));
+    }
+
+    @Benchmark
+    public boolean firstMatchCompiled() {
+        return DFACompiler.compile(regex, "CompilePhaseBenchmarkPattern", options).matcher(regex).containedIn();
+    }
+
+    @Benchmark
+    public boolean firstMatchTiered() {
+        var pattern = TieredPattern.compile(regex, "CompilePhaseBenchmarkPattern", options.withExecutor(executor));
+        return pattern.matcher(regex).containedIn();
+    }
+}
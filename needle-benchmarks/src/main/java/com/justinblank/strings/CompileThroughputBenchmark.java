@@ -0,0 +1,41 @@
+package com.justinblank.strings;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how many patterns can be compiled per second when many threads compile at once. Each invocation compiles
+ * and loads a new class, so throughput should scale nearly linearly with the thread count, up to the number of cores.
+ *
+ * Run with e.g. {@code java -jar needle-benchmarks/target/benchmarks.jar CompileThroughputBenchmark -t 4}, and compare
+ * the results for {@code -t 1} up to the core count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompileThroughputBenchmark {
+
+    @Param({
+            "Sherlock",
+            "Sherlock|Holmes|Watson|Irene|Adler|John|Baker",
+            "[A-Za-z]+ing",
+            "([0-9]{1,3}\\.){3}[0-9]{1,3}",
+            "the\\s+\\w+"
+    })
+    String regex;
+
+    /**
+     * Every generated class needs a distinct name.
+     */
+    private final AtomicLong classCounter = new AtomicLong();
+
+    @Benchmark
+    public Pattern compile() {
+        return DFACompiler.compile(regex, "CompileThroughputBenchmarkPattern" + classCounter.incrementAndGet());
+    }
+}
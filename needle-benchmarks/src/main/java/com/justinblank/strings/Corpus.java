@@ -0,0 +1,95 @@
+package com.justinblank.strings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * The haystacks shared by the benchmarks. Every engine is run over exactly the same text, so that the numbers for a
+ * given regex can be compared directly.
+ */
+public enum Corpus {
+
+    /**
+     * The Adventures of Sherlock Holmes, the same text the tests use.
+     */
+    SHERLOCK {
+        @Override
+        String load() {
+            try (InputStream stream = Corpus.class.getResourceAsStream("/sherlockholmes.txt")) {
+                if (stream == null) {
+                    throw new IllegalStateException("Could not find sherlockholmes.txt on the classpath");
+                }
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    },
+    /**
+     * Lines of random lowercase words, with the occasional name and number, so that sparse needles are rare but not
+     * absent.
+     */
+    RANDOM_WORDS {
+        @Override
+        String load() {
+            var random = new Random(RANDOM_SEED);
+            var sb = new StringBuilder(RANDOM_CORPUS_SIZE);
+            var lineLength = 0;
+            while (sb.length() < RANDOM_CORPUS_SIZE) {
+                var choice = random.nextInt(100);
+                if (choice == 0) {
+                    sb.append(NAMES[random.nextInt(NAMES.length)]);
+                } else if (choice < 5) {
+                    sb.append(random.nextInt(100_000));
+                } else {
+                    var wordLength = 1 + random.nextInt(9);
+                    for (var i = 0; i < wordLength; i++) {
+                        sb.append((char) ('a' + random.nextInt(26)));
+                    }
+                }
+                lineLength += 10;
+                if (lineLength > 70) {
+                    sb.append('\n');
+                    lineLength = 0;
+                } else {
+                    sb.append(' ');
+                }
+            }
+            return sb.toString();
+        }
+    },
+    /**
+     * Mostly Greek text, for regexes and haystacks outside of ASCII.
+     */
+    RANDOM_GREEK {
+        @Override
+        String load() {
+            var random = new Random(RANDOM_SEED);
+            var sb = new StringBuilder(RANDOM_CORPUS_SIZE);
+            var lineLength = 0;
+            while (sb.length() < RANDOM_CORPUS_SIZE) {
+                var wordLength = 1 + random.nextInt(9);
+                for (var i = 0; i < wordLength; i++) {
+                    sb.append((char) ('α' + random.nextInt(25)));
+                }
+                lineLength += wordLength + 1;
+                if (lineLength > 70) {
+                    sb.append('\n');
+                    lineLength = 0;
+                } else {
+                    sb.append(' ');
+                }
+            }
+            return sb.toString();
+        }
+    };
+
+    private static final long RANDOM_SEED = 1024;
+    private static final int RANDOM_CORPUS_SIZE = 1 << 20;
+    private static final String[] NAMES = {"Sherlock", "Holmes", "Watson", "Irene", "Adler", "Lestrade"};
+
+    abstract String load();
+}
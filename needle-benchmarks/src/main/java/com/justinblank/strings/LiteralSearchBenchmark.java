@@ -0,0 +1,59 @@
+package com.justinblank.strings;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the engines on regexes that consist solely of literals, which are the regexes where the Aho-Corasick
+ * {@link com.justinblank.strings.Search.SearchMethod}s are applicable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LiteralSearchBenchmark {
+
+    @Param({
+            "Sherlock",
+            "Sherlock|Street",
+            "Sherlock|Holmes|Watson|Irene|Adler|John|Baker",
+            "anywhere|somewhere",
+            "ε|λ"
+    })
+    String regex;
+
+    @Param({"DFA", "NFA", "SEARCH_METHOD", "JDK"})
+    BenchmarkEngine engine;
+
+    @Param({"SHERLOCK", "RANDOM_WORDS"})
+    Corpus corpus;
+
+    private BenchmarkEngine.Runner runner;
+    private String haystack;
+    private String[] lines;
+
+    @Setup
+    public void setup() {
+        runner = engine.prepare(regex, 0);
+        haystack = corpus.load();
+        lines = haystack.split("\n");
+    }
+
+    @Benchmark
+    public int matches() {
+        return runner.countMatches(lines);
+    }
+
+    @Benchmark
+    public int containedIn() {
+        return runner.countContainedIn(lines);
+    }
+
+    @Benchmark
+    public int find() {
+        return runner.countFinds(haystack);
+    }
+}
@@ -0,0 +1,68 @@
+package com.justinblank.strings;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares each engine on the three core operations: matches, containedIn and iterated find. The matches and
+ * containedIn benchmarks are run line by line over the corpus, the find benchmark searches the entire corpus for
+ * successive matches.
+ *
+ * Run with e.g. {@code java -jar needle-benchmarks/target/benchmarks.jar MatcherBenchmark -p regex=Sherlock}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherBenchmark {
+
+    @Param({
+            "Sherlock",
+            "Sherlock|Holmes|Watson|Irene|Adler|John|Baker",
+            "[A-Z][a-z]+ing",
+            "Holmes.{0,25}Watson|Watson.{0,25}Holmes",
+            "[0-9]+",
+            "the\\s+\\w+",
+            "[a-q][^u-z]{13}x",
+            "[α-ε]+ω"
+    })
+    String regex;
+
+    @Param({"DFA", "NFA", "JDK"})
+    BenchmarkEngine engine;
+
+    @Param({"SHERLOCK", "RANDOM_WORDS", "RANDOM_GREEK"})
+    Corpus corpus;
+
+    @Param({"0"})
+    int flags;
+
+    private BenchmarkEngine.Runner runner;
+    private String haystack;
+    private String[] lines;
+
+    @Setup
+    public void setup() {
+        runner = engine.prepare(regex, flags);
+        haystack = corpus.load();
+        lines = haystack.split("\n");
+    }
+
+    @Benchmark
+    public int matches() {
+        return runner.countMatches(lines);
+    }
+
+    @Benchmark
+    public int containedIn() {
+        return runner.countContainedIn(lines);
+    }
+
+    @Benchmark
+    public int find() {
+        return runner.countFinds(haystack);
+    }
+}
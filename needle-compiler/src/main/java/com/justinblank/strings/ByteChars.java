@@ -0,0 +1,47 @@
+package com.justinblank.strings;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A view of bytes as a CharSequence with one char per byte, so that engines that read chars can match encoded text in
+ * place. Indexes are byte offsets. Matching UTF-8 this way requires automata built over its bytes, see
+ * {@link Utf8Encoding}, while Latin-1 bytes are already the chars they encode.
+ */
+final class ByteChars implements CharSequence {
+
+    private final ByteBuffer bytes;
+
+    /**
+     * @param buffer the bytes between the buffer's position and limit, which are not modified
+     */
+    ByteChars(ByteBuffer buffer) {
+        this.bytes = buffer.slice();
+    }
+
+    ByteChars(byte[] data, int offset, int length) {
+        this(ByteBuffer.wrap(data, offset, length));
+    }
+
+    @Override
+    public int length() {
+        return bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new ByteChars(bytes.duplicate().position(start).limit(end));
+    }
+
+    @Override
+    public String toString() {
+        var chars = new byte[bytes.limit()];
+        bytes.duplicate().get(chars);
+        return new String(chars, StandardCharsets.ISO_8859_1);
+    }
+}
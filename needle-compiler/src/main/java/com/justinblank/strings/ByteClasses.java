@@ -1,5 +1,10 @@
 package com.justinblank.strings;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 class ByteClasses {
 
     static byte CATCHALL_INVALID = -1;
@@ -15,4 +20,35 @@ class ByteClasses {
         this.byteClassCount = byteClassCount;
     }
 
+    /**
+     * Computes byteClasses that separate any two chars separated by any of the given byteClasses, so that DFAs whose
+     * byteClasses differ can share one byteClass array. Chars that are in class 0 for all of them stay in class 0.
+     *
+     * @param byteClasses the byteClasses of each DFA, at most 4
+     * @return the combined byteClasses, or empty if there are too many of them
+     */
+    static Optional<ByteClasses> combine(List<ByteClasses> byteClasses) {
+        if (byteClasses.size() == 1) {
+            return Optional.of(byteClasses.get(0));
+        }
+        Map<Long, Integer> classes = new HashMap<>();
+        classes.put(0L, 0);
+        var ranges = new byte[byteClasses.get(0).ranges.length];
+        for (int c = 0; c < ranges.length; c++) {
+            long key = 0;
+            for (var bc : byteClasses) {
+                key = (key << 8) | (bc.ranges[c] & 0xFF);
+            }
+            ranges[c] = (byte) (int) classes.computeIfAbsent(key, k -> classes.size());
+        }
+        long catchAllKey = 0;
+        for (var bc : byteClasses) {
+            catchAllKey = (catchAllKey << 8) | (bc.catchAll & 0xFF);
+        }
+        byte catchAll = (byte) (int) classes.computeIfAbsent(catchAllKey, k -> classes.size());
+        if (classes.size() > 255) {
+            return Optional.empty();
+        }
+        return Optional.of(new ByteClasses(ranges, catchAll, classes.size()));
+    }
 }
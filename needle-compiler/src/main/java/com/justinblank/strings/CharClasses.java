@@ -0,0 +1,86 @@
+package com.justinblank.strings;
+
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Maps chars to classes of chars, where each class is a run of chars between two consecutive boundaries. Classes are
+ * numbered from 0 in the order of their chars.
+ * <p>
+ * A table of every char would take 128KB. Instead, chars below 256, which most input consists of, are looked up in a
+ * table, and other chars are found by binary search among the boundaries, so the map takes space proportional to the
+ * number of classes.
+ */
+final class CharClasses {
+
+    private static final int TABLE_SIZE = 256;
+
+    private final char[] table;
+    /**
+     * The sorted first chars of every class but the first.
+     */
+    private final int[] boundaries;
+
+    private CharClasses(char[] table, int[] boundaries) {
+        this.table = table;
+        this.boundaries = boundaries;
+    }
+
+    /**
+     * @param boundaries the first chars of the classes. 0 and values above {@link Character#MAX_VALUE} are ignored.
+     * @return the map from chars to classes
+     */
+    static CharClasses of(Collection<Integer> boundaries) {
+        var sorted = new TreeSet<>(boundaries).subSet(1, Character.MAX_VALUE + 1);
+        var starts = new int[sorted.size()];
+        int i = 0;
+        for (int boundary : sorted) {
+            starts[i++] = boundary;
+        }
+        var table = new char[TABLE_SIZE];
+        int charClass = 0;
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            if (charClass < starts.length && starts[charClass] == c) {
+                charClass++;
+            }
+            table[c] = (char) charClass;
+        }
+        return new CharClasses(table, starts);
+    }
+
+    /**
+     * @return the class of c
+     */
+    int classOf(char c) {
+        if (c < TABLE_SIZE) {
+            return table[c];
+        }
+        // The class is the number of boundaries at or below c
+        int low = table[TABLE_SIZE - 1];
+        int high = boundaries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (boundaries[mid] <= c) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the sorted first chars of every class but the first
+     */
+    int[] boundaries() {
+        return boundaries.clone();
+    }
+
+    /**
+     * @return the number of classes
+     */
+    int count() {
+        return boundaries.length + 1;
+    }
+}
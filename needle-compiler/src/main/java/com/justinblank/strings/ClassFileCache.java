@@ -0,0 +1,353 @@
+package com.justinblank.strings;
+
+import com.justinblank.classcompiler.ClassCompiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A directory of generated classes, which lets {@link DFACompiler#compile(String, String, CompilerOptions)} skip
+ * compiling regexes it compiled in an earlier run. Enable it with {@link CompilerOptions#withClassFileCache}.
+ * <p>
+ * Each class is stored in a file named by a SHA-256 hash of the regex, the class name, the options that affect the
+ * generated class, and the compiler's version. The version is a SHA-256 hash of the jars or class directories that
+ * needle and its bytecode library were loaded from, so any change to the compiler, released or not, stops classes
+ * cached by the old one from being loaded. Files are written to a temporary file and moved into place, so readers,
+ * including other processes sharing the directory, never see a partial file. Each file records its key, length and a
+ * CRC32 of the class, and files that don't match are deleted and recompiled. When the files' total size exceeds the
+ * limit, the least recently used are deleted.
+ * <p>
+ * The cache is an optimization, so failing to read or write it never fails compilation.
+ */
+public class ClassFileCache {
+
+    /**
+     * Must be incremented whenever the format of keys or files changes. Changes to the generated classes are covered by
+     * the compiler's version.
+     */
+    static final int FORMAT_VERSION = 1;
+    static final String SUFFIX = ".needle";
+    private static final int MAGIC = 0x4E444C43;
+    private static final String COMPILER_VERSION = compilerVersion();
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong approximateSize = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param directory the directory to store classes in, which is created if it doesn't exist
+     * @param maxBytes the maximum total size of the stored classes
+     * @throws UncheckedIOException if the directory can't be created or read
+     */
+    public ClassFileCache(Path directory, long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive, was " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+            approximateSize.set(cacheFiles().stream().mapToLong(ClassFileCache::size).sum());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Couldn't open class cache directory " + directory, e);
+        }
+    }
+
+    /**
+     * @return the stored class, or null if there isn't a valid one
+     */
+    byte[] get(String key) {
+        Path file = file(key);
+        byte[] contents;
+        try {
+            contents = Files.readAllBytes(file);
+        }
+        catch (IOException e) {
+            misses.incrementAndGet();
+            return null;
+        }
+        byte[] classBytes = decode(key, contents);
+        if (classBytes == null) {
+            delete(file);
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException e) {
+            // Only affects which files are evicted first
+        }
+        hits.incrementAndGet();
+        return classBytes;
+    }
+
+    void put(String key, byte[] classBytes) {
+        byte[] contents = encode(key, classBytes);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temp, contents);
+            try {
+                Files.move(temp, file(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file(key), StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+        }
+        catch (IOException e) {
+            return;
+        }
+        finally {
+            if (temp != null) {
+                delete(temp);
+            }
+        }
+        if (approximateSize.addAndGet(contents.length) > maxBytes) {
+            evict();
+        }
+    }
+
+    private synchronized void evict() {
+        try {
+            List<Path> files = cacheFiles();
+            long total = files.stream().mapToLong(ClassFileCache::size).sum();
+            files.sort(Comparator.comparing(ClassFileCache::lastModified));
+            for (int i = 0; i < files.size() && total > maxBytes; i++) {
+                long size = size(files.get(i));
+                if (delete(files.get(i))) {
+                    total -= size;
+                }
+            }
+            approximateSize.set(total);
+        }
+        catch (IOException e) {
+            // Try again after the next write
+        }
+    }
+
+    static String key(String regex, String className, CompilerOptions options) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            var bytes = new ByteArrayOutputStream();
+            var out = new DataOutputStream(bytes);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(COMPILER_VERSION);
+            out.writeUTF(className);
+            out.writeInt(regex.length());
+            out.writeChars(regex);
+            out.writeInt(options.flags);
+            out.writeUTF(options.operations.toString());
+            var singleChar = new boolean[128];
+            for (int i = 0; i < singleChar.length; i++) {
+                singleChar[i] = true;
+                out.writeDouble(options.distribution.weight(singleChar));
+                singleChar[i] = false;
+            }
+            out.flush();
+            return hex(digest.digest(bytes.toByteArray()));
+        }
+        catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException("Couldn't hash class cache key", e);
+        }
+    }
+
+    /**
+     * @return a hash of the code that generates classes, or if it can't be read, the jar's version
+     */
+    static String compilerVersion() {
+        var locations = new ArrayList<Path>();
+        for (Class<?> c : List.of(DFACompiler.class, Pattern.class, ClassCompiler.class)) {
+            CodeSource source = c.getProtectionDomain().getCodeSource();
+            if (source == null || source.getLocation() == null) {
+                return implementationVersion();
+            }
+            try {
+                locations.add(Path.of(source.getLocation().toURI()));
+            }
+            catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+                return implementationVersion();
+            }
+        }
+        try {
+            return fingerprint(locations);
+        }
+        catch (IOException e) {
+            return implementationVersion();
+        }
+    }
+
+    private static String implementationVersion() {
+        String version = DFACompiler.class.getPackage().getImplementationVersion();
+        return version != null ? version : "development";
+    }
+
+    /**
+     * @param locations jars, or directories whose class files are hashed in order of their paths
+     * @return a SHA-256 hash of the locations' contents
+     */
+    static String fingerprint(List<Path> locations) throws IOException {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            for (Path location : locations.stream().distinct().collect(Collectors.toList())) {
+                if (Files.isDirectory(location)) {
+                    List<Path> classFiles;
+                    try (Stream<Path> files = Files.walk(location)) {
+                        classFiles = files.filter(f -> f.getFileName().toString().endsWith(".class"))
+                                .map(location::relativize)
+                                .sorted()
+                                .collect(Collectors.toList());
+                    }
+                    for (Path classFile : classFiles) {
+                        digest.update(classFile.toString().getBytes(StandardCharsets.UTF_8));
+                        digestContents(digest, location.resolve(classFile));
+                    }
+                }
+                else {
+                    digestContents(digest, location);
+                }
+            }
+            return hex(digest.digest());
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Couldn't hash compiler version", e);
+        }
+    }
+
+    private static void digestContents(MessageDigest digest, Path file) throws IOException {
+        try (var in = Files.newInputStream(file); var out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            in.transferTo(out);
+        }
+    }
+
+    private static String hex(byte[] hash) {
+        var sb = new StringBuilder();
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] encode(String key, byte[] classBytes) {
+        var crc = new CRC32();
+        crc.update(classBytes);
+        var bytes = new ByteArrayOutputStream(classBytes.length + 128);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeUTF(key);
+            out.writeInt(classBytes.length);
+            out.write(classBytes);
+            out.writeLong(crc.getValue());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the class stored in the file's contents, or null if they're corrupt or for a different key
+     */
+    static byte[] decode(String key, byte[] contents) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(contents))) {
+            if (in.readInt() != MAGIC || !key.equals(in.readUTF())) {
+                return null;
+            }
+            int length = in.readInt();
+            if (length < 0 || length > contents.length) {
+                return null;
+            }
+            var classBytes = new byte[length];
+            in.readFully(classBytes);
+            var crc = new CRC32();
+            crc.update(classBytes);
+            if (in.readLong() != crc.getValue() || in.available() != 0) {
+                return null;
+            }
+            return classBytes;
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private List<Path> cacheFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(SUFFIX))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        }
+        catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        }
+        catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of lookups that found a valid stored class
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that found no stored class, or a corrupt one
+     */
+    public long missCount() {
+        return misses.get();
+    }
+}
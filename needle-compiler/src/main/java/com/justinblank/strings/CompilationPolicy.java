@@ -19,6 +19,18 @@ class CompilationPolicy {
     public static final double MAX_FREQUENCY_FOR_INITIAL_CHAR_CHECK = .12;
     public static final int THRESHOLD_TO_ROUND_UP_ALL_BYTECLASSES = 16;
 
+    // Rough costs, in nanoseconds, that EngineSelector weighs against each other. Compiling a class costs milliseconds,
+    // while the engines' costs per match are within a small factor of each other, so only the orders of magnitude
+    // matter much.
+    public static final long CLASS_COMPILE_BASE_NANOS = 5_000_000;
+    public static final long CLASS_COMPILE_NANOS_PER_STATE = 100_000;
+    public static final long LAZY_DFA_COMPILE_BASE_NANOS = 200_000;
+    public static final long LAZY_DFA_NANOS_PER_STATE = 5_000;
+    public static final long LITERAL_COMPILE_BASE_NANOS = 20_000;
+    public static final long COMPILED_DFA_NANOS_PER_USE = 100;
+    public static final long LAZY_DFA_NANOS_PER_USE = 300;
+    public static final long LITERAL_NANOS_PER_USE = 150;
+
     // Whether any of the states for this regex use byte classes. For DFAs that do not treat all non-ascii characters
     // identically, some states may still only transition on an ascii characters. For those states, we can use
     // byteclasses, so we need to separately track whether any state uses byteclasses, and whether all states use
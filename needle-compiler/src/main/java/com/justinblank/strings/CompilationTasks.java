@@ -0,0 +1,79 @@
+package com.justinblank.strings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the independent steps of compiling a regex, such as building each of its DFAs, on an executor.
+ * <p>
+ * When the caller needs a step's result, it runs the step itself if the executor hasn't started it yet, so compilation
+ * never waits on an executor that's saturated, or whose threads are themselves compiling regexes. Without an executor,
+ * every step runs on the calling thread.
+ */
+final class CompilationTasks implements AutoCloseable {
+
+    private final Executor executor;
+    private final List<FutureTask<?>> tasks = new ArrayList<>();
+
+    /**
+     * @param executor the executor to run steps on, or null to run them on the calling thread
+     */
+    CompilationTasks(Executor executor) {
+        this.executor = executor;
+    }
+
+    <T> FutureTask<T> submit(Callable<T> step) {
+        var task = new FutureTask<>(step);
+        tasks.add(task);
+        if (executor != null) {
+            try {
+                executor.execute(task);
+            }
+            catch (RejectedExecutionException e) {
+                // The caller will run the step when it needs the result
+            }
+        }
+        return task;
+    }
+
+    /**
+     * @param task a task returned by {@link #submit(Callable)}
+     * @return the task's result, running the task on the calling thread if it hasn't started
+     */
+    <T> T join(FutureTask<T> task) {
+        // Does nothing if the task has already started
+        task.run();
+        try {
+            return task.get();
+        }
+        catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new PatternClassCompilationException("Compilation step failed", cause);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PatternClassCompilationException("Interrupted while compiling", e);
+        }
+    }
+
+    /**
+     * Cancels the steps that haven't started, so that a failed compilation doesn't leave work queued on the executor.
+     */
+    @Override
+    public void close() {
+        for (var task : tasks) {
+            task.cancel(false);
+        }
+    }
+}
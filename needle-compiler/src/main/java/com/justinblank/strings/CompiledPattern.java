@@ -0,0 +1,240 @@
+package com.justinblank.strings;
+
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The superclass of the Pattern classes generated by {@link DFACompiler#compile(String, String, CompilerOptions)}.
+ *
+ * The generated subclass implements {@link #matcher(String)} directly. Matchers for other kinds of input are generated
+ * the first time they're requested, so that patterns that are only ever used with Strings don't pay to compile them.
+ */
+public abstract class CompiledPattern implements Pattern {
+
+    private static final MethodType CHAR_SEQUENCE_CONSTRUCTOR = MethodType.methodType(Matcher.class, CharSequence.class);
+    private static final MethodType CHAR_ARRAY_CONSTRUCTOR = MethodType.methodType(Matcher.class, char[].class, int.class, int.class);
+    private static final MethodType BYTE_ARRAY_CONSTRUCTOR = MethodType.methodType(Matcher.class, byte[].class, int.class, int.class);
+    private static final MethodType BYTE_BUFFER_CONSTRUCTOR = MethodType.methodType(Matcher.class, ByteBuffer.class, int.class, int.class);
+
+    private final String regex;
+    private final String className;
+    private final CompilerOptions options;
+
+    /**
+     * Constructors for the lazily generated matcher classes, indexed by {@link InputType#ordinal()}.
+     */
+    private final AtomicReferenceArray<MethodHandle> constructors = new AtomicReferenceArray<>(InputType.values().length);
+
+    protected CompiledPattern(String regex, String className, CompilerOptions options) {
+        this.regex = regex;
+        this.className = className;
+        this.options = options;
+    }
+
+    /**
+     * Creates a matcher that reads directly from the given sequence, without copying it. Strings are routed to
+     * {@link #matcher(String)}.
+     *
+     * The sequence must not be modified while the matcher is in use.
+     *
+     * @param s the sequence to match against
+     * @return a matcher
+     */
+    @Override
+    public Matcher matcher(CharSequence s) {
+        if (s instanceof String) {
+            return matcher((String) s);
+        }
+        try {
+            return (Matcher) constructor(InputType.CHAR_SEQUENCE, CHAR_SEQUENCE_CONSTRUCTOR).invokeExact(s);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to create matcher for regex '" + regex + "'", t);
+        }
+    }
+
+    /**
+     * Creates a matcher that reads directly from a slice of the given array, without copying it. The indexes reported
+     * by the matcher are relative to the offset.
+     *
+     * The array must not be modified while the matcher is in use.
+     *
+     * @param data the array containing the slice
+     * @param offset the start of the slice
+     * @param length the length of the slice
+     * @return a matcher
+     */
+    @Override
+    public Matcher matcher(char[] data, int offset, int length) {
+        checkSlice(data.length, offset, length);
+        try {
+            return (Matcher) constructor(InputType.CHAR_ARRAY, CHAR_ARRAY_CONSTRUCTOR).invokeExact(data, offset, length);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to create matcher for regex '" + regex + "'", t);
+        }
+    }
+
+    /**
+     * Creates a matcher that reads directly from a slice of the given array of encoded text, without decoding or
+     * copying it. The indexes reported by the matcher are byte offsets relative to the offset. UTF-8 input gets its
+     * own matcher class, whose DFAs consume bytes. Invalid UTF-8 sequences never match any part of the regex.
+     *
+     * The array must not be modified while the matcher is in use.
+     *
+     * @param data the array containing the slice
+     * @param offset the start of the slice
+     * @param length the length of the slice
+     * @param charset the encoding, which must be UTF-8, ISO-8859-1 or US-ASCII
+     * @return a matcher
+     */
+    @Override
+    public Matcher matcher(byte[] data, int offset, int length, Charset charset) {
+        checkSlice(data.length, offset, length);
+        var inputType = byteInputType(charset, InputType.UTF8_BYTES, InputType.LATIN1_BYTES);
+        try {
+            return (Matcher) constructor(inputType, BYTE_ARRAY_CONSTRUCTOR).invokeExact(data, offset, length);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to create matcher for regex '" + regex + "'", t);
+        }
+    }
+
+    /**
+     * Creates a matcher that reads the encoded text between the buffer's position and limit with absolute gets,
+     * without copying it. Works with both heap and direct buffers. The indexes reported by the matcher are byte offsets
+     * relative to the buffer's position when this method was called. The buffer's position and limit are not modified.
+     *
+     * The buffer's contents must not be modified while the matcher is in use.
+     *
+     * @param buffer the buffer
+     * @param charset the encoding, which must be UTF-8, ISO-8859-1 or US-ASCII
+     * @return a matcher
+     */
+    @Override
+    public Matcher matcher(ByteBuffer buffer, Charset charset) {
+        var inputType = byteInputType(charset, InputType.UTF8_BUFFER, InputType.LATIN1_BUFFER);
+        try {
+            return (Matcher) constructor(inputType, BYTE_BUFFER_CONSTRUCTOR).invokeExact(buffer, buffer.position(), buffer.remaining());
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to create matcher for regex '" + regex + "'", t);
+        }
+    }
+
+    private static InputType byteInputType(Charset charset, InputType utf8, InputType latin1) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return utf8;
+        }
+        else if (StandardCharsets.ISO_8859_1.equals(charset) || StandardCharsets.US_ASCII.equals(charset)) {
+            return latin1;
+        }
+        throw new UnsupportedOperationException("Matching against bytes encoded with " + charset + " is not supported");
+    }
+
+    static void checkSlice(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length + ", arrayLength=" + arrayLength);
+        }
+    }
+
+    private MethodHandle constructor(InputType inputType, MethodType type) {
+        MethodHandle constructor = constructors.get(inputType.ordinal());
+        if (constructor == null) {
+            synchronized (this) {
+                constructor = constructors.get(inputType.ordinal());
+                if (constructor == null) {
+                    constructor = loadMatcherConstructor(inputType, type);
+                    constructors.set(inputType.ordinal(), constructor);
+                }
+            }
+        }
+        return constructor;
+    }
+
+    /**
+     * Matcher classes for other kinds of input are defined in the same loader as this pattern, so that they're unloaded
+     * along with it.
+     */
+    private PatternClassLoader loader() {
+        var loader = getClass().getClassLoader();
+        if (loader instanceof PatternClassLoader) {
+            return (PatternClassLoader) loader;
+        }
+        return new PatternClassLoader();
+    }
+
+    /**
+     * Loads the constructor of the matcher class for the input type. UTF-8 input is matched by DFAs over bytes, which
+     * may be too large to compile even though the String DFAs weren't. Then, if the options allow it, matchers for that
+     * input type come from a {@link LazyDFAPattern}, and otherwise every call throws the same exception, rather than
+     * spending the time to fail again.
+     */
+    private MethodHandle loadMatcherConstructor(InputType inputType, MethodType type) {
+        try {
+            return compileMatcherConstructor(inputType, type);
+        } catch (PatternClassCompilationException e) {
+            if (options.fallback && e.getCause() instanceof DFATooLargeException) {
+                if (options.debugOptions.isDebug()) {
+                    System.out.println("Falling back to lazy DFA for " + inputType.className(className) + ": " + e.getCause().getMessage());
+                }
+                return lazyMatcherConstructor(inputType, type);
+            }
+            var thrower = MethodHandles.throwException(Matcher.class, PatternClassCompilationException.class).bindTo(e);
+            return MethodHandles.dropArguments(thrower, 0, type.parameterList());
+        }
+    }
+
+    private MethodHandle compileMatcherConstructor(InputType inputType, MethodType type) {
+        String matcherClassName = inputType.className(className);
+        byte[] classBytes = DFACompiler.compileToBytes(regex, className, options, inputType);
+        try {
+            Class<?> matcherClass = loader().loadClass(matcherClassName, classBytes);
+            return MethodHandles.publicLookup()
+                    .findConstructor(matcherClass, type.changeReturnType(void.class))
+                    .asType(type);
+        } catch (Throwable t) {
+            throw new PatternClassCompilationException("Failed to compile pattern from regex '" + regex + "'", t);
+        }
+    }
+
+    private MethodHandle lazyMatcherConstructor(InputType inputType, MethodType type) {
+        var lazyPattern = LazyDFAPattern.compile(regex, options.flags);
+        Charset charset = inputType.isUtf8() ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+        try {
+            var lookup = MethodHandles.lookup();
+            MethodHandle matcher;
+            if (CHAR_SEQUENCE_CONSTRUCTOR.equals(type)) {
+                matcher = lookup.findVirtual(LazyDFAPattern.class, "matcher", CHAR_SEQUENCE_CONSTRUCTOR);
+            }
+            else if (CHAR_ARRAY_CONSTRUCTOR.equals(type)) {
+                matcher = lookup.findVirtual(LazyDFAPattern.class, "matcher", CHAR_ARRAY_CONSTRUCTOR);
+            }
+            else if (BYTE_ARRAY_CONSTRUCTOR.equals(type)) {
+                matcher = lookup.findVirtual(LazyDFAPattern.class, "matcher",
+                        BYTE_ARRAY_CONSTRUCTOR.appendParameterTypes(Charset.class));
+                matcher = MethodHandles.insertArguments(matcher, 4, charset);
+            }
+            else {
+                // The buffer's position and remaining bytes are already the slice the lazy pattern reads
+                matcher = lookup.findVirtual(LazyDFAPattern.class, "matcher",
+                        MethodType.methodType(Matcher.class, ByteBuffer.class, Charset.class));
+                matcher = MethodHandles.insertArguments(matcher, 2, charset);
+                matcher = MethodHandles.dropArguments(matcher, 2, int.class, int.class);
+            }
+            return matcher.bindTo(lazyPattern);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to find lazy DFA matcher for " + type, e);
+        }
+    }
+}
@@ -1,18 +1,72 @@
 package com.justinblank.strings;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
 public class CompilerOptions {
 
     protected final int flags;
     protected final CharacterDistribution distribution;
     protected final DebugOptions debugOptions;
+    /**
+     * Whether {@link DFACompiler#compile(String, String, CompilerOptions)} returns a {@link LazyDFAPattern} when the
+     * regex's DFAs are too large to compile, rather than throwing.
+     */
+    protected final boolean fallback;
+    /**
+     * The operations whose DFAs are built when the regex is compiled. The others are compiled the first time a matcher
+     * uses them.
+     */
+    protected final Set<MatcherOperation> operations;
+    /**
+     * The executor the regex's DFAs are built on concurrently, or null to build them on the compiling thread.
+     */
+    protected final Executor executor;
+    /**
+     * Where {@link DFACompiler#compile(String, String, CompilerOptions)} stores generated classes, and looks for those
+     * stored by earlier runs, or null to always compile.
+     */
+    protected final ClassFileCache classFileCache;
+    /**
+     * How many matchers the application expects to create from the pattern, which {@link EngineSelector} weighs
+     * against the cost of compiling it. {@link Long#MAX_VALUE} unless the application gives a hint.
+     */
+    protected final long expectedUses;
+    /**
+     * The largest number of states a DFA may have, before or after minimization, for the regex to be compiled to a
+     * class. {@link DFACompiler#DEFAULT_MAX_STATES} unless the application raises or lowers it.
+     */
+    protected final int maxStates;
 
     public CompilerOptions(int flags, CharacterDistribution distribution, DebugOptions debugOptions) {
+        this(flags, distribution, debugOptions, true, EnumSet.allOf(MatcherOperation.class), null, null, Long.MAX_VALUE,
+                DFACompiler.DEFAULT_MAX_STATES);
+    }
+
+    private CompilerOptions(int flags, CharacterDistribution distribution, DebugOptions debugOptions, boolean fallback,
+                            Set<MatcherOperation> operations, Executor executor, ClassFileCache classFileCache,
+                            long expectedUses, int maxStates) {
         if ((flags & ~Pattern.ALL_FLAGS) != 0) {
             throw new IllegalArgumentException("Unrecognized flags=" + flags);
         }
+        if (expectedUses < 0) {
+            throw new IllegalArgumentException("expectedUses cannot be negative, was " + expectedUses);
+        }
+        if (maxStates < 1) {
+            throw new IllegalArgumentException("maxStates must be positive, was " + maxStates);
+        }
         this.flags = flags;
         this.distribution = distribution;
         this.debugOptions = debugOptions;
+        this.fallback = fallback;
+        this.operations = Collections.unmodifiableSet(operations.isEmpty() ?
+                EnumSet.noneOf(MatcherOperation.class) : EnumSet.copyOf(operations));
+        this.executor = executor;
+        this.classFileCache = classFileCache;
+        this.expectedUses = expectedUses;
+        this.maxStates = maxStates;
     }
 
     public static CompilerOptions fromFlags(int flags) {
@@ -22,4 +76,94 @@ public class CompilerOptions {
     public static CompilerOptions defaultOptions() {
         return fromFlags(0);
     }
+
+    /**
+     * @return a copy of these options with the given flags and distribution
+     */
+    CompilerOptions copy(int flags, CharacterDistribution distribution) {
+        return new CompilerOptions(flags, distribution, debugOptions, fallback, operations, executor, classFileCache,
+                expectedUses, maxStates);
+    }
+
+    /**
+     * @param fallback whether to fall back to a {@link LazyDFAPattern} when the regex's DFAs are too large to compile
+     * @return a copy of these options with the given fallback setting
+     */
+    public CompilerOptions withFallback(boolean fallback) {
+        return new CompilerOptions(flags, distribution, debugOptions, fallback, operations, executor, classFileCache,
+                expectedUses, maxStates);
+    }
+
+    /**
+     * Declares which operations the application will use, so that only their DFAs are built when the regex is
+     * compiled. The rest still work, but the first call to any of them compiles a second class that supports them.
+     *
+     * @param first an operation to build ahead of time
+     * @param rest any other operations to build ahead of time
+     * @return a copy of these options building only the given operations ahead of time
+     */
+    public CompilerOptions withOperations(MatcherOperation first, MatcherOperation... rest) {
+        return new CompilerOptions(flags, distribution, debugOptions, fallback, EnumSet.of(first, rest), executor,
+                classFileCache, expectedUses, maxStates);
+    }
+
+    /**
+     * @param operations the operations to build ahead of time
+     * @return a copy of these options building only the given operations ahead of time
+     * @see #withOperations(MatcherOperation, MatcherOperation...)
+     */
+    public CompilerOptions withOperations(Set<MatcherOperation> operations) {
+        return new CompilerOptions(flags, distribution, debugOptions, fallback, operations, executor, classFileCache,
+                expectedUses, maxStates);
+    }
+
+    /**
+     * Builds the regex's DFAs, its reversed NFA and its factorization concurrently on the given executor. The compiling
+     * thread also builds one DFA, and builds any of the others that the executor hasn't started by the time it needs
+     * them, so a busy executor slows compilation down but can't deadlock it.
+     *
+     * @param executor the executor, or null to build everything on the compiling thread
+     * @return a copy of these options using the given executor
+     */
+    public CompilerOptions withExecutor(Executor executor) {
+        return new CompilerOptions(flags, distribution, debugOptions, fallback, operations, executor, classFileCache,
+                expectedUses, maxStates);
+    }
+
+    /**
+     * @param classFileCache where to store generated classes and look for those stored by earlier runs, or null to
+     *                       always compile
+     * @return a copy of these options using the given cache
+     */
+    public CompilerOptions withClassFileCache(ClassFileCache classFileCache) {
+        return new CompilerOptions(flags, distribution, debugOptions, fallback, operations, executor, classFileCache,
+                expectedUses, maxStates);
+    }
+
+    /**
+     * Hints how many matchers the application will create from the pattern, so that {@link EngineSelector} doesn't
+     * compile a class for a pattern that's used once, and does for one that's used constantly.
+     *
+     * @param expectedUses the number of matchers the application expects to create
+     * @return a copy of these options with the given hint
+     */
+    public CompilerOptions withExpectedUses(long expectedUses) {
+        return new CompilerOptions(flags, distribution, debugOptions, fallback, operations, executor, classFileCache,
+                expectedUses, maxStates);
+    }
+
+    /**
+     * Sets the largest number of states the regex's DFAs may have for it to be compiled to a class. Above it, the
+     * pattern falls back to a {@link LazyDFAPattern}, or fails if fallback is disabled. Compiling takes time roughly
+     * proportional to the number of states, so raising the limit far above the default makes compiling the largest
+     * regexes take minutes. DFAs whose chars can't be mapped to byte classes are limited to
+     * a lower limit regardless.
+     *
+     * @param maxStates the maximum number of states, before or after minimization
+     * @return a copy of these options with the given limit
+     */
+    public CompilerOptions withMaxStates(int maxStates) {
+        return new CompilerOptions(flags, distribution, debugOptions, fallback, operations, executor, classFileCache,
+                expectedUses, maxStates);
+    }
 }
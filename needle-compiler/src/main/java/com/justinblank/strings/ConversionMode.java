@@ -4,5 +4,15 @@ public enum ConversionMode {
 
     BASIC,
     CONTAINED_IN,
-    DFA_SEARCH;
+    DFA_SEARCH,
+    /**
+     * Like CONTAINED_IN, but keeps going after reaching an accepting state, so that every pattern in a set can be found
+     * in a single pass. Accepting states record which patterns they accept.
+     */
+    SET,
+    /**
+     * Like BASIC, but for a set of tokens, where each accepting state records the first token it accepts, so that the
+     * longest match of any token, and which token it is, can be found in a single anchored pass.
+     */
+    LEXER;
 }
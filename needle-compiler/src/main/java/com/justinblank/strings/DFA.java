@@ -15,6 +15,8 @@ class DFA {
 
     public static final int MAX_CHAR_FOR_BYTECLASSES = 65535;
     private boolean accepting;
+    // Only populated for accepting states of DFAs built from a set of regexes
+    private BitSet acceptedPatterns;
     private int stateNumber;
     private DFA root;
     // Only populated on the root
@@ -90,6 +92,18 @@ class DFA {
         return accepting;
     }
 
+    /**
+     * @return for an accepting state of a DFA built with {@link ConversionMode#SET}, the indexes of the regexes it
+     * accepts, or with {@link ConversionMode#LEXER}, the index of the token it accepts, otherwise null
+     */
+    BitSet getAcceptedPatterns() {
+        return acceptedPatterns;
+    }
+
+    void setAcceptedPatterns(BitSet acceptedPatterns) {
+        this.acceptedPatterns = acceptedPatterns;
+    }
+
     protected boolean isTerminal() {
         return transitions.isEmpty();
     }
@@ -632,6 +646,7 @@ class DFA {
      *     <li>The states reachable from the root should be contained in the states member variable</li>
      *     <li>All states should have distinct stateNumbers</li>
      *     <li>All states should refer to the same root</li>
+     *     <li>At most one state without transitions should accept each set of patterns</li>
      * </ul>
      * <p>
      * Only applicable to the root node.
@@ -647,7 +662,9 @@ class DFA {
         assert states.contains(this) : "root not included in states";
         assert states.stream().anyMatch(DFA::isAccepting) : "no accepting state found";
         assert transitions.stream().map(Pair::getRight).allMatch(dfa -> states.contains(dfa));
-        assert states.stream().filter(dfa -> dfa.getTransitions().isEmpty()).count() < 2;
+        // States without transitions are equivalent, unless they accept different patterns
+        assert states.stream().filter(dfa -> dfa.getTransitions().isEmpty()).map(DFA::getAcceptedPatterns).count() ==
+                states.stream().filter(dfa -> dfa.getTransitions().isEmpty()).map(DFA::getAcceptedPatterns).distinct().count();
         return true;
     }
 
@@ -8,6 +8,7 @@ import com.justinblank.classcompiler.lang.Void;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.lang.invoke.MethodHandles;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -27,45 +28,108 @@ class DFAClassBuilder extends ClassBuilder {
     protected static final String CHAR_FIELD = "c";
     protected static final String LENGTH_FIELD = "length";
     protected static final String STRING_FIELD = "string";
+    protected static final String OFFSET_FIELD = "offset";
     protected static final String INDEX_FIELD = "index";
     protected static final String BYTE_CLASS_FIELD = "byteClass";
     protected static final String NEXT_START_FIELD = "nextStart";
     protected static final String START_FIELD = "start";
     protected static final String END_FIELD = "end";
     protected static final String MATCHED_FIELD = "matched";
+    protected static final String NEXT_LINE_FIELD = "nextLine";
+    protected static final String LINE_START_FIELD = "lineStart";
+    protected static final String LINE_END_FIELD = "lineEnd";
+    protected static final String LINE_NUMBER_FIELD = "lineNumber";
     protected static final String BYTE_CLASSES_CONSTANT = "BYTE_CLASSES";
     protected static final String PREFIX_CONSTANT = "PREFIX";
     protected static final String SUFFIX_CONSTANT = "SUFFIX";
     protected static final String INFIX_CONSTANT = "INFIX";
+    protected static final String NEWLINE_CONSTANT = "NEWLINE";
     protected static final String FIRST_BYTE_MASK = "FIRST_BYTE_MASK";
     protected static final String INDEX_BACKWARDS = "indexBackwards";
+    protected static final String REGEX_CONSTANT = "REGEX";
+    protected static final String ALL_OPERATIONS_CLASS_CONSTANT = "ALL_OPERATIONS_CLASS";
+    protected static final String DEFERRED_OPERATIONS_CONSTANT = "DEFERRED_OPERATIONS";
+    protected static final String DEFERRED_MATCHER_FIELD = "deferredMatcher";
+    protected static final String DEFERRED_MATCHER_METHOD = "deferredMatcher";
+    private static final String LOOKUP_DESCRIPTOR = "Ljava/lang/invoke/MethodHandles$Lookup;";
+    /**
+     * The largest array that mako will initialize element by element.
+     */
+    static final int MAX_ARRAY_LITERAL_LENGTH = 8192;
 
     private final FindMethodSpec forwardFindMethodSpec;
     private final FindMethodSpec reversedFindMethodSpec;
     private final FindMethodSpec containedInFindMethodSpec;
     private final FindMethodSpec dfaSearchFindMethodSpec;
+    private final DFA forwardDFA;
     private final Factorization factorization;
     private final Map<Integer, Offset> forwardOffsets;
+    private final String regex;
+    private final Set<MatcherOperation> operations;
 
     private final DFAStateTransitions stateTransitions = new DFAStateTransitions();
     private int catchAllByteClass;
     private final CompilerOptions compilerOptions;
+    private final InputType inputType;
+    /**
+     * The largest number of states whose transitions are stored in byte and short arrays. Only tests change these.
+     */
+    int maxByteStates = Byte.MAX_VALUE;
+    int maxShortStates = Short.MAX_VALUE;
 
     /**
      * @param className the simple class name of the class to be created
      */
     DFAClassBuilder(String className, DFA dfa, DFA containedInDFA, DFA reversed, DFA dfaSearch,
                     Factorization factorization, CompilerOptions options) {
+        this(className, dfa, containedInDFA, reversed, dfaSearch, factorization, options, InputType.STRING);
+    }
+
+    /**
+     * @param className the simple class name of the class to be created
+     * @param inputType the type of haystack the generated matcher will read from
+     */
+    DFAClassBuilder(String className, DFA dfa, DFA containedInDFA, DFA reversed, DFA dfaSearch,
+                    Factorization factorization, CompilerOptions options, InputType inputType) {
+        this(className, null, dfa, containedInDFA, reversed, dfaSearch, factorization, options, inputType,
+                EnumSet.allOf(MatcherOperation.class));
+    }
+
+    /**
+     * Creates a builder for a class that only implements some operations itself, and delegates the others to a class
+     * with every operation, which is compiled the first time they're used. The DFAs only needed by other operations
+     * may be null, as may the reversed DFA when the regex's matches all have one length. The forward DFA is always
+     * required, since the other operations use it.
+     *
+     * @param className the simple class name of the class to be created
+     * @param regex the regex, which is compiled again if an operation that wasn't built is used
+     * @param inputType the type of haystack the generated matcher will read from
+     * @param operations the operations to build
+     */
+    DFAClassBuilder(String className, String regex, DFA dfa, DFA containedInDFA, DFA reversed, DFA dfaSearch,
+                    Factorization factorization, CompilerOptions options, InputType inputType,
+                    Set<MatcherOperation> operations) {
         super(className, "", "java/lang/Object", new String[]{"com/justinblank/strings/Matcher"});
-        this.forwardFindMethodSpec = new FindMethodSpec(dfa, FindMethodSpec.MATCHES, true, factorization, CharacterDistribution.DEFAULT);
-        this.containedInFindMethodSpec = new FindMethodSpec(containedInDFA, FindMethodSpec.CONTAINEDIN, true, factorization, CharacterDistribution.DEFAULT);
-        this.reversedFindMethodSpec = new FindMethodSpec(reversed, FindMethodSpec.BACKWARDS, false, factorization, CharacterDistribution.DEFAULT);
-        this.dfaSearchFindMethodSpec = new FindMethodSpec(dfaSearch, FindMethodSpec.FORWARDS, true, factorization, CharacterDistribution.DEFAULT);
+        if (operations.size() < MatcherOperation.values().length && (regex == null || inputType != InputType.STRING)) {
+            throw new IllegalArgumentException("Only String matchers with a regex can defer operations");
+        }
+        this.inputType = inputType;
+        this.regex = regex;
+        this.operations = operations;
+        this.forwardFindMethodSpec = operations.contains(MatcherOperation.MATCHES) ?
+                new FindMethodSpec(dfa, FindMethodSpec.MATCHES, true, factorization, CharacterDistribution.DEFAULT) : null;
+        this.containedInFindMethodSpec = operations.contains(MatcherOperation.CONTAINED_IN) ?
+                new FindMethodSpec(containedInDFA, FindMethodSpec.CONTAINEDIN, true, factorization, CharacterDistribution.DEFAULT) : null;
+        this.reversedFindMethodSpec = operations.contains(MatcherOperation.FIND) && !factorization.canOnlyHaveOneLength() ?
+                new FindMethodSpec(reversed, FindMethodSpec.BACKWARDS, false, factorization, CharacterDistribution.DEFAULT) : null;
+        this.dfaSearchFindMethodSpec = operations.contains(MatcherOperation.FIND) ?
+                new FindMethodSpec(dfaSearch, FindMethodSpec.FORWARDS, true, factorization, CharacterDistribution.DEFAULT) : null;
+        this.forwardDFA = dfa;
         this.factorization = factorization;
         this.compilerOptions = options;
         this.forwardOffsets = dfa.calculateOffsets(factorization);
         // TODO: test whether it matters that the four DFAs can have different byteClasses
-        Optional<ByteClasses> byteClasses = dfaSearch.byteClasses();
+        Optional<ByteClasses> byteClasses = findByteClasses();
         byteClasses.ifPresent((bc) -> {
             stateTransitions.byteClasses = bc;
             for (var spec : allSpecs()) {
@@ -74,18 +138,68 @@ class DFAClassBuilder extends ClassBuilder {
             catchAllByteClass = bc.catchAll;
 
         });
+        if (byteClasses.isEmpty()) {
+            for (var spec : allSpecs()) {
+                if (spec.statesCount() > DFACompiler.MAX_STATES_WITHOUT_BYTE_CLASSES) {
+                    throw new DFATooLargeException("Can't compile DFAs with more than " + DFACompiler.MAX_STATES_WITHOUT_BYTE_CLASSES
+                            + " states unless their chars can be mapped to byte classes");
+                }
+            }
+        }
     }
 
     boolean useShorts(FindMethodSpec spec) {
-        return spec.dfa.statesCount() > Byte.MAX_VALUE;
+        return spec.dfa.statesCount() > maxByteStates;
+    }
+
+    boolean useInts(FindMethodSpec spec) {
+        return spec.dfa.statesCount() > maxShortStates;
     }
 
     String getStateArrayType(FindMethodSpec spec) {
+        if (useInts(spec)) {
+            return "I";
+        }
         return useShorts(spec) ? "S" : "B";
     }
 
+    private Type getStateType(FindMethodSpec spec) {
+        if (useInts(spec)) {
+            return Builtin.I;
+        }
+        return useShorts(spec) ? Builtin.S : Builtin.OCTET;
+    }
+
+    /**
+     * @return the specs of the DFAs used by the operations being built
+     */
     List<FindMethodSpec> allSpecs() {
-        return List.of(forwardFindMethodSpec, reversedFindMethodSpec, containedInFindMethodSpec, dfaSearchFindMethodSpec);
+        var specs = new ArrayList<FindMethodSpec>();
+        for (var spec : Arrays.asList(forwardFindMethodSpec, reversedFindMethodSpec, containedInFindMethodSpec, dfaSearchFindMethodSpec)) {
+            if (spec != null) {
+                specs.add(spec);
+            }
+        }
+        return specs;
+    }
+
+    /**
+     * The search DFA's byteClasses have so far served for all four DFAs. Without a search DFA, the byteClasses of the
+     * DFAs being built are combined.
+     */
+    private Optional<ByteClasses> findByteClasses() {
+        if (dfaSearchFindMethodSpec != null) {
+            return dfaSearchFindMethodSpec.dfa.byteClasses();
+        }
+        var byteClasses = new ArrayList<ByteClasses>();
+        for (var spec : allSpecs()) {
+            var specByteClasses = spec.dfa.byteClasses();
+            if (specByteClasses.isEmpty()) {
+                return Optional.empty();
+            }
+            byteClasses.add(specByteClasses.get());
+        }
+        return ByteClasses.combine(byteClasses);
     }
 
     void initMethods() {
@@ -97,38 +211,114 @@ class DFAClassBuilder extends ClassBuilder {
                 populateByteClassArrays();
             }
             // these methods depend on being called after addStateMethodTransitionStrings()
-            setByteClassTransitions(forwardFindMethodSpec);
-            setByteClassTransitions(containedInFindMethodSpec);
-            setByteClassTransitions(reversedFindMethodSpec);
-            setByteClassTransitions(dfaSearchFindMethodSpec);
+            for (var spec : Arrays.asList(forwardFindMethodSpec, containedInFindMethodSpec, reversedFindMethodSpec, dfaSearchFindMethodSpec)) {
+                if (spec != null) {
+                    setByteClassTransitions(spec);
+                }
+            }
         }
 
         addAffixConstants();
         // TODO: refactor to use compilation policy
-        dfaSearchFindMethodSpec.dfa.initialAsciiBytes().ifPresent(byteMask -> {
-            if (shouldIncludeFirstByteMask()) {
-                addArrayConstant(FIRST_BYTE_MASK, ACC_PRIVATE, byteMask);
-            }
-        });
+        if (dfaSearchFindMethodSpec != null) {
+            dfaSearchFindMethodSpec.dfa.initialAsciiBytes().ifPresent(byteMask -> {
+                if (shouldIncludeFirstByteMask()) {
+                    addArrayConstant(FIRST_BYTE_MASK, ACC_PRIVATE, byteMask);
+                }
+            });
+        }
 
-        createMatchesMethod(forwardFindMethodSpec);
-        createContainedInMethod(containedInFindMethodSpec);
-        createFindMethod();
-        createFindMethodInternal();
-        createIndexMethod(dfaSearchFindMethodSpec);
-        if (!factorization.canOnlyHaveOneLength()) {
-            createIndexMethodReversed(reversedFindMethodSpec, forwardFindMethodSpec.dfa);
+        if (operations.contains(MatcherOperation.MATCHES)) {
+            createMatchesMethod(forwardFindMethodSpec);
+        }
+        else {
+            addDeferredMethod("matches", "Z", Builtin.BOOL);
+        }
+        if (operations.contains(MatcherOperation.CONTAINED_IN)) {
+            createContainedInMethod(containedInFindMethodSpec);
+            createFindLineMethod(containedInFindMethodSpec);
+            addLineMethods();
+        }
+        else {
+            addDeferredMethod("containedIn", "Z", Builtin.BOOL);
+            addDeferredMethod("findLine", "Z", Builtin.BOOL);
+            addDeferredMethod("lineNumber", "I", Builtin.I);
+            addDeferredMethod("lineStart", "I", Builtin.I);
+            addDeferredMethod("lineEnd", "I", Builtin.I);
+        }
+        if (operations.contains(MatcherOperation.FIND)) {
+            createFindMethod();
+            createFindMethodInternal();
+            createIndexMethod(dfaSearchFindMethodSpec);
+            if (!factorization.canOnlyHaveOneLength()) {
+                createIndexMethodReversed(reversedFindMethodSpec, forwardDFA);
+            }
+            addStartAndEndMethods();
+        }
+        else {
+            addDeferredMethod("find", "Z", Builtin.BOOL);
+            addDeferredFindInternal();
+            addDeferredMethod("start", "I", Builtin.I);
+            addDeferredMethod("end", "I", Builtin.I);
         }
         for (var spec : allSpecs()) {
             addWasAcceptedMethod(spec);
         }
-        addStartAndEndMethods();
+        addDeferredOperations();
         addConstructor();
         addFields();
     }
 
+    /**
+     * Adds the static {@link DeferredOperations} and the method returning this matcher's delegate for the operations
+     * that weren't built.
+     */
+    private void addDeferredOperations() {
+        if (operations.size() == MatcherOperation.values().length) {
+            return;
+        }
+        String deferredOperationsDescriptor = CompilerUtil.descriptor(DeferredOperations.class);
+        addConstant(REGEX_CONSTANT, CompilerUtil.STRING_DESCRIPTOR, regex);
+        addConstant(ALL_OPERATIONS_CLASS_CONSTANT, CompilerUtil.STRING_DESCRIPTOR, getClassName() + "AllOperations");
+        addField(new Field(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, DEFERRED_OPERATIONS_CONSTANT, deferredOperationsDescriptor, null, null));
+        addStaticBlock()
+                .construct(CompilerUtil.internalName(DeferredOperations.class))
+                .operate(DUP)
+                .callStatic("lookup", CompilerUtil.internalName(MethodHandles.class), "()" + LOOKUP_DESCRIPTOR)
+                .readStatic(REGEX_CONSTANT, CompilerUtil.STRING_DESCRIPTOR)
+                .push(compilerOptions.flags)
+                .readStatic(ALL_OPERATIONS_CLASS_CONSTANT, CompilerUtil.STRING_DESCRIPTOR)
+                .call("<init>", CompilerUtil.internalName(DeferredOperations.class),
+                        "(" + LOOKUP_DESCRIPTOR + "Ljava/lang/String;ILjava/lang/String;)V", true)
+                .putStatic(DEFERRED_OPERATIONS_CONSTANT, true, deferredOperationsDescriptor);
+
+        var method = mkMethod(DEFERRED_MATCHER_METHOD, List.of(), CompilerUtil.descriptor(Matcher.class), new GenericVars(), ACC_PRIVATE);
+        method.fieldSet(get(DEFERRED_MATCHER_FIELD, ReferenceType.of(getClassName()), thisRef()),
+                call("matcher", ReferenceType.of(Matcher.class),
+                        getStatic(DEFERRED_OPERATIONS_CONSTANT, ReferenceType.of(getClassName()), ReferenceType.of(DeferredOperations.class)),
+                        get(DEFERRED_MATCHER_FIELD, ReferenceType.of(Matcher.class), thisRef()),
+                        get(STRING_FIELD, inputType.type(), thisRef())));
+        method.returnValue(get(DEFERRED_MATCHER_FIELD, ReferenceType.of(Matcher.class), thisRef()));
+    }
+
+    private void addDeferredMethod(String name, String descriptor, Type type) {
+        var method = mkMethod(name, List.of(), descriptor, new GenericVars());
+        method.returnValue(callInterface(name, type,
+                call(DEFERRED_MATCHER_METHOD, ReferenceType.of(Matcher.class), thisRef())));
+    }
+
+    private void addDeferredFindInternal() {
+        var method = mkMethod("find", List.of("I", "I"), "Z", new GenericVars("FROM", "TO"));
+        method.returnValue(callInterface("find", Builtin.BOOL,
+                call(DEFERRED_MATCHER_METHOD, ReferenceType.of(Matcher.class), thisRef()),
+                read("FROM"), read("TO")));
+    }
+
 
     private void addAffixConstants() {
+        if (operations.contains(MatcherOperation.CONTAINED_IN)) {
+            addConstant(NEWLINE_CONSTANT, CompilerUtil.STRING_DESCRIPTOR, "\n");
+        }
         // Although we have a separate compilationPolicy for each spec, they share prefix/suffix/infix
         if (allSpecs().stream().anyMatch(s -> s.compilationPolicy.usePrefix)) {
             allSpecs().get(0).compilationPolicy.getPrefix().ifPresent(prefix -> {
@@ -219,7 +409,14 @@ class DFAClassBuilder extends ClassBuilder {
 
             block.readStatic(name, CompilerUtil.STRING_DESCRIPTOR);
 
-            if (useShorts(spec)) {
+            if (useInts(spec)) {
+                block.callStatic("fillMultipleByteClassesFromStringUsingInts_singleArray", CompilerUtil.internalName(ByteClassUtil.class), "([IILjava/lang/String;)V");
+                if (compilerOptions.debugOptions.trackStates) {
+                    block.readStatic(spec.name.toUpperCase(), CompilerUtil.internalName(FindMethodSpec.class), CompilerUtil.descriptor(String.class));
+                    block.readStatic(spec.statesConstant(), "[" + getStateArrayType(spec));
+                    block.callStatic("debugStateArrays", CompilerUtil.internalName(DFADebugUtils.class), "(Ljava/lang/String;[I)V");
+                }
+            } else if (useShorts(spec)) {
                 block.callStatic("fillMultipleByteClassesFromStringUsingShorts_singleArray", CompilerUtil.internalName(ByteClassUtil.class), "([SILjava/lang/String;)V");
                 if (compilerOptions.debugOptions.trackStates) {
                     block.readStatic(spec.name.toUpperCase(), CompilerUtil.internalName(FindMethodSpec.class), CompilerUtil.descriptor(String.class));
@@ -324,14 +521,20 @@ class DFAClassBuilder extends ClassBuilder {
             throw new PatternClassCompilationException("State transition array size must be positive");
         }
         staticBlock.push(stateTransitionArraySize)
-                // TODO: bit of a hack--should have a proper way of generating T_SHORT/T_BYTE
-                .newArray(getStateArrayType(spec).equals("S") ? T_SHORT : T_BYTE)
+                .newArray(getStateArrayTypeCode(spec))
                 .putStatic(spec.statesConstant(), true, descriptor);
         staticBlock.readStatic(spec.statesConstant(), "[" + getStateArrayType(spec));
         staticBlock.push(-1);
         staticBlock.callStatic("fill", CompilerUtil.internalName(Arrays.class), "([" + getStateArrayType(spec) + getStateArrayType(spec) + ")V");
     }
 
+    private int getStateArrayTypeCode(FindMethodSpec spec) {
+        if (useInts(spec)) {
+            return T_INT;
+        }
+        return useShorts(spec) ? T_SHORT : T_BYTE;
+    }
+
     private Method createIndexMethod(FindMethodSpec spec) {
         var vars = new MatchingVars(4, 1, 3, 2, 5);
         int varIndex = 6;
@@ -344,6 +547,9 @@ class DFAClassBuilder extends ClassBuilder {
         if (spec.compilationPolicy.useMaxStart) {
             vars.setMaxStartVar(varIndex++);
         }
+        if (inputType.hasOffset()) {
+            vars.setOffsetVar(varIndex++);
+        }
         var method = mkMethod(spec.indexMethod(), List.of("I", "I"), "I", vars);
 
         DFAMethodComponents.setLengthLocalVariable(method);
@@ -351,7 +557,7 @@ class DFAClassBuilder extends ClassBuilder {
             method.set(MatchingVars.MAX_START, sub(read(MatchingVars.LENGTH), factorization.getMinLength()));
         }
 
-        method.set(MatchingVars.STRING, get(STRING_FIELD, ReferenceType.of(String.class), thisRef()));
+        setHaystackLocalVariables(method);
         method.set(MatchingVars.STATE, 0);
         method.set(MatchingVars.LAST_MATCH, spec.dfa.isAccepting() ? 0 : -1);
 
@@ -368,13 +574,13 @@ class DFAClassBuilder extends ClassBuilder {
                     -> new IllegalStateException("No DFA state available after consuming prefix. This should be impossible"));
             int state = postPrefixState.getStateNumber();
 
-            outerLoopBody.add(set(MatchingVars.INDEX, call("indexOf", Builtin.I, read(MatchingVars.STRING),
+            outerLoopBody.add(set(MatchingVars.INDEX, inputType.indexOf(read(MatchingVars.STRING),
                     getStatic(PREFIX_CONSTANT, ReferenceType.of(getClassName()), ReferenceType.of(String.class)),
                     read(MatchingVars.INDEX))));
             outerLoopBody.add(cond(eq(-1, read(MatchingVars.INDEX))).withBody(
                     returnValue(-1)));
             if (spec.compilationPolicy.useSuffix) {
-                outerLoopBody.add(set(MatchingVars.SUFFIX_INDEX, call("indexOf", Builtin.I, read(MatchingVars.STRING),
+                outerLoopBody.add(set(MatchingVars.SUFFIX_INDEX, inputType.indexOf(read(MatchingVars.STRING),
                         getStatic(SUFFIX_CONSTANT, ReferenceType.of(getClassName()), ReferenceType.of(String.class)), read(MatchingVars.INDEX))));
                 outerLoopBody.add(cond(eq(-1, read(MatchingVars.SUFFIX_INDEX))).withBody(returnValue(-1)));
                 outerLoopBody.add(cond(gt(sub(read(MatchingVars.SUFFIX_INDEX), factorization.getMaxLength().orElseThrow()), read(MatchingVars.INDEX))).withBody(List.of(
@@ -386,13 +592,13 @@ class DFAClassBuilder extends ClassBuilder {
                 outerLoopBody.add(set(MatchingVars.LAST_MATCH, read(MatchingVars.INDEX)));
             }
         } else if (spec.compilationPolicy.useSuffix) {
-            outerLoopBody.add(set(MatchingVars.SUFFIX_INDEX, call("indexOf", Builtin.I, read(MatchingVars.STRING),
+            outerLoopBody.add(set(MatchingVars.SUFFIX_INDEX, inputType.indexOf(read(MatchingVars.STRING),
                     getStatic(SUFFIX_CONSTANT, ReferenceType.of(getClassName()), ReferenceType.of(String.class)), read(MatchingVars.INDEX))));
             outerLoopBody.add(cond(eq(-1, read(MatchingVars.SUFFIX_INDEX))).withBody(returnValue(-1)));
             outerLoopBody.add(updateIndexBasedOnSuffixIndex());
             outerLoopBody.add(set(MatchingVars.STATE, 0));
         } else if (spec.compilationPolicy.useInfixes) {
-            outerLoopBody.add(set(MatchingVars.SUFFIX_INDEX, call("indexOf", Builtin.I, read(MatchingVars.STRING),
+            outerLoopBody.add(set(MatchingVars.SUFFIX_INDEX, inputType.indexOf(read(MatchingVars.STRING),
                     getStatic(INFIX_CONSTANT, ReferenceType.of(getClassName()), ReferenceType.of(String.class)), read(MatchingVars.INDEX))));
             outerLoopBody.add(cond(eq(-1, read(MatchingVars.SUFFIX_INDEX))).withBody(returnValue(-1)));
             outerLoopBody.add(updateIndexBasedOnSuffixIndex());
@@ -406,7 +612,7 @@ class DFAClassBuilder extends ClassBuilder {
                                     lte(read(MatchingVars.STATE), 0)
                             )),
                     List.of(
-                            set(MatchingVars.CHAR, DFAMethodComponents.readChar()),
+                            set(MatchingVars.CHAR, DFAMethodComponents.readChar(inputType)),
                             cond(generatePredicate(spec.dfa))
                                     .withBody(List.of(
                                             set(MatchingVars.STATE, spec.dfa.forwardFollowingState().getStateNumber()),
@@ -422,7 +628,7 @@ class DFAClassBuilder extends ClassBuilder {
             outerLoopBody.add(loop(and(eq(read(MatchingVars.LAST_MATCH), -1),
                             and(DFAMethodComponents.inBounds(),
                                     lte(read(MatchingVars.STATE), 0)))
-                    , List.of(set(MatchingVars.CHAR, DFAMethodComponents.readChar()),
+                    , List.of(set(MatchingVars.CHAR, DFAMethodComponents.readChar(inputType)),
                             cond(matchDFAInitialByte()).withBody(List.of(escape())).orElse(List.of(DFAMethodComponents.incrementIndex())))));
         } else {
             outerLoopBody.add(set(MatchingVars.STATE, 0));
@@ -439,7 +645,7 @@ class DFAClassBuilder extends ClassBuilder {
                 List.of(
                         innerLoopMustCallWasAccepted ? DFAMethodComponents.setLastMatchIfAccepted(spec) : new NoOpStatement(),
 
-                        set(MatchingVars.CHAR, DFAMethodComponents.readChar()),
+                        set(MatchingVars.CHAR, DFAMethodComponents.readChar(inputType)),
                         DFAMethodComponents.incrementIndex(),
                         // This check is necessary so that we don't get an array index out of bounds looking up a byteclass
                         // using non-ascii character from the haystack as our index
@@ -470,6 +676,13 @@ class DFAClassBuilder extends ClassBuilder {
         return method;
     }
 
+    private void setHaystackLocalVariables(Method method) {
+        method.set(MatchingVars.STRING, get(STRING_FIELD, inputType.type(), thisRef()));
+        if (inputType.hasOffset()) {
+            method.set(MatchingVars.OFFSET, get(OFFSET_FIELD, Builtin.I, thisRef()));
+        }
+    }
+
     private static boolean maxCharacterCheckIsRequired(FindMethodSpec spec) {
         return spec.dfa.maxChar() < Character.MAX_VALUE && spec.compilationPolicy.useByteClassesForAllStates;
     }
@@ -511,7 +724,7 @@ class DFAClassBuilder extends ClassBuilder {
     }
 
     private CodeElement buildStateLookupFromByteClass(FindMethodSpec spec) {
-        Type type = useShorts(spec) ? Builtin.S : Builtin.OCTET;
+        Type type = getStateType(spec);
         var index = plus(read(BYTE_CLASS_FIELD), mul(read(MatchingVars.STATE), getEffectiveByteClassCount(stateTransitions.byteClasses.byteClassCount)));
         // TODO: use a cast here is a bit of a hack--we'll have to figure out the type inference story in mako
         return set(MatchingVars.STATE,
@@ -537,9 +750,12 @@ class DFAClassBuilder extends ClassBuilder {
         var varIndex = 6;
         vars.setLastMatchVar(varIndex++);
         vars.setByteClassVar(varIndex++);
+        if (inputType.hasOffset()) {
+            vars.setOffsetVar(varIndex++);
+        }
         var method = mkMethod(spec.indexMethod(), List.of("I", "I"), "I", vars);
 
-        method.set(MatchingVars.STRING, get(STRING_FIELD, ReferenceType.of(String.class), thisRef()));
+        setHaystackLocalVariables(method);
         if (spec.dfa.isAccepting()) {
             method.set(MatchingVars.LAST_MATCH, read(vars.LENGTH));
         } else {
@@ -564,7 +780,7 @@ class DFAClassBuilder extends ClassBuilder {
         }
         method.loop(loopBoundary,
                 List.of(
-                        set(MatchingVars.CHAR, DFAMethodComponents.readChar()),
+                        set(MatchingVars.CHAR, DFAMethodComponents.readChar(inputType)),
                         // This check is necessary so that we don't get an array index out of bounds looking up a byteclass
                         // using non-ascii character from the haystack as our index
                         // TODO: this should be ok regardless of whether we're using byteclasses?
@@ -601,10 +817,13 @@ class DFAClassBuilder extends ClassBuilder {
                 return Optional.empty();
             }
             var vars = new MatchingVars(5, 1, 3, 2, 4);
+            if (inputType.hasOffset()) {
+                vars.setOffsetVar(6);
+            }
             var method = mkMethod(spec.indexMethod(), List.of("I", "I"), "I", vars);
-            method.set(MatchingVars.STRING, get(STRING_FIELD, ReferenceType.of(String.class), thisRef()));
+            setHaystackLocalVariables(method);
             method.loop(gte(read(MatchingVars.INDEX), read(MatchingVars.LENGTH)), List.of(
-                    cond(eq(literal((int) c), DFAMethodComponents.readChar()))
+                    cond(eq(literal((int) c), DFAMethodComponents.readChar(inputType)))
                             .withBody(returnValue(read(MatchingVars.INDEX)))
                             .orElse(set(MatchingVars.INDEX, sub(read(MatchingVars.INDEX), 1)))
             ));
@@ -666,32 +885,82 @@ class DFAClassBuilder extends ClassBuilder {
         endMethod.returnValue(get(END_FIELD, Builtin.I, thisRef()));
     }
 
+    private void addLineMethods() {
+        var lineNumberMethod = mkMethod("lineNumber", List.of(), "I", new GenericVars());
+        lineNumberMethod.returnValue(get(LINE_NUMBER_FIELD, Builtin.I, thisRef()));
+
+        var lineStartMethod = mkMethod("lineStart", List.of(), "I", new GenericVars());
+        lineStartMethod.returnValue(get(LINE_START_FIELD, Builtin.I, thisRef()));
+
+        var lineEndMethod = mkMethod("lineEnd", List.of(), "I", new GenericVars());
+        lineEndMethod.returnValue(get(LINE_END_FIELD, Builtin.I, thisRef()));
+    }
+
     private void addConstructor() {
+        if (inputType.hasOffset()) {
+            addSliceConstructor();
+            return;
+        }
         var vars = new GenericVars(MatchingVars.STRING);
-        var method = mkMethod("<init>", Arrays.asList(CompilerUtil.STRING_DESCRIPTOR), "V", vars);
+        var method = mkMethod("<init>", Arrays.asList(inputType.descriptor()), "V", vars);
 
         var block = method.addBlock();
         block.readThis();
         block.call("<init>", "java/lang/Object", "()V", true);
         block.readThis();
-        block.readVar(vars, MatchingVars.STRING, CompilerUtil.STRING_DESCRIPTOR);
-        block.addOperation(Operation.mkSetField(MatchingVars.STRING, getClassName(), CompilerUtil.STRING_DESCRIPTOR));
+        block.readVar(vars, MatchingVars.STRING, inputType.descriptor());
+        block.addOperation(Operation.mkSetField(MatchingVars.STRING, getClassName(), inputType.descriptor()));
+
+        block.readThis();
+        block.readVar(vars, MatchingVars.STRING, inputType.descriptor());
+        inputType.pushLength(block);
+        block.addOperation(Operation.mkSetField(MatchingVars.LENGTH, getClassName(), "I"));
+        block.addReturn(RETURN);
+        addMethod(method);
+    }
 
+    /**
+     * Constructor taking (haystack, offset, length) for input types that are slices of an array.
+     */
+    private void addSliceConstructor() {
+        // We read variables by index, because mako writes array-typed arguments to the local variable table using an
+        // invalid descriptor
+        var method = new Method("<init>", Arrays.asList(inputType.descriptor(), "I", "I"), "V", null);
+        var block = method.addBlock();
         block.readThis();
-        block.readVar(vars, MatchingVars.STRING, CompilerUtil.STRING_DESCRIPTOR);
-        block.call("length", "java/lang/String", "()I");
+        block.call("<init>", "java/lang/Object", "()V", true);
+        block.readThis();
+        block.readVar(1, inputType.descriptor());
+        block.addOperation(Operation.mkSetField(MatchingVars.STRING, getClassName(), inputType.descriptor()));
+        block.readThis();
+        block.readVar(2, "I");
+        block.addOperation(Operation.mkSetField(MatchingVars.OFFSET, getClassName(), "I"));
+        block.readThis();
+        block.readVar(3, "I");
         block.addOperation(Operation.mkSetField(MatchingVars.LENGTH, getClassName(), "I"));
         block.addReturn(RETURN);
         addMethod(method);
     }
 
     private void addFields() {
-        addField(new Field(ACC_PRIVATE, STRING_FIELD, CompilerUtil.STRING_DESCRIPTOR, null, null));
+        addField(new Field(ACC_PRIVATE, STRING_FIELD, inputType.descriptor(), null, null));
         addField(new Field(ACC_PRIVATE, LENGTH_FIELD, "I", null, 0));
+        if (inputType.hasOffset()) {
+            addField(new Field(ACC_PRIVATE, OFFSET_FIELD, "I", null, 0));
+        }
         addField(new Field(ACC_PRIVATE, NEXT_START_FIELD, "I", null, 0));
         addField(new Field(ACC_PRIVATE, START_FIELD, "I", null, -1));
         addField(new Field(ACC_PRIVATE, END_FIELD, "I", null, -1));
         addField(new Field(ACC_PRIVATE, MATCHED_FIELD, "Z", null, 0));
+        if (operations.contains(MatcherOperation.CONTAINED_IN)) {
+            addField(new Field(ACC_PRIVATE, NEXT_LINE_FIELD, "I", null, 0));
+            addField(new Field(ACC_PRIVATE, LINE_START_FIELD, "I", null, -1));
+            addField(new Field(ACC_PRIVATE, LINE_END_FIELD, "I", null, -1));
+            addField(new Field(ACC_PRIVATE, LINE_NUMBER_FIELD, "I", null, 0));
+        }
+        if (operations.size() < MatcherOperation.values().length) {
+            addField(new Field(ACC_PRIVATE, DEFERRED_MATCHER_FIELD, CompilerUtil.descriptor(Matcher.class), null, null));
+        }
         if (compilerOptions.debugOptions.trackStates) {
             addConstant("CURRENT_STATE", CompilerUtil.STRING_DESCRIPTOR, "CURRENT_STATE");
             addConstant("INDEX", CompilerUtil.STRING_DESCRIPTOR, "INDEX");
@@ -720,6 +989,10 @@ class DFAClassBuilder extends ClassBuilder {
     }
 
     private void addArrayOfAcceptingStates(FindMethodSpec spec, List<DFA> accepting, String setName) {
+        if (spec.dfa.statesCount() > MAX_ARRAY_LITERAL_LENGTH) {
+            addEncodedArrayOfAcceptingStates(spec, accepting, setName);
+            return;
+        }
         boolean[] acceptingStates = new boolean[spec.dfa.statesCount()];
         for (var state : accepting) {
             acceptingStates[state.getStateNumber()] = true;
@@ -727,6 +1000,39 @@ class DFAClassBuilder extends ClassBuilder {
         addArrayConstant(setName, ACC_PRIVATE | ACC_STATIC | ACC_FINAL, acceptingStates);
     }
 
+    /**
+     * Large arrays can't be initialized element by element, so the accepting states are encoded as strings of state
+     * numbers, which are decoded by {@link ByteClassUtil#fillStatesFromString(boolean[], String)}.
+     */
+    private void addEncodedArrayOfAcceptingStates(FindMethodSpec spec, List<DFA> accepting, String setName) {
+        addField(new Field(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, setName, "[Z", null, null));
+        var staticBlock = addStaticBlock();
+        staticBlock.push(spec.dfa.statesCount())
+                .newArray(T_BOOLEAN)
+                .putStatic(setName, true, "[Z");
+        List<String> chunks = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (var state : accepting) {
+            String encoded = ByteClassUtil.encode(state.getStateNumber());
+            if (sb.length() + 1 + encoded.length() >= 65536) {
+                chunks.add(sb.toString());
+                sb = new StringBuilder();
+            }
+            if (sb.length() > 0) {
+                sb.append(ByteClassUtil.BYTE_CLASS_DELINEATOR);
+            }
+            sb.append(encoded);
+        }
+        chunks.add(sb.toString());
+        for (int i = 0; i < chunks.size(); i++) {
+            String name = setName + "_STRING" + i;
+            addField(new Field(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, name, CompilerUtil.STRING_DESCRIPTOR, null, chunks.get(i)));
+            staticBlock.readStatic(setName, "[Z")
+                    .readStatic(name, CompilerUtil.STRING_DESCRIPTOR)
+                    .callStatic("fillStatesFromString", CompilerUtil.internalName(ByteClassUtil.class), "([ZLjava/lang/String;)V");
+        }
+    }
+
     // TODO: validate if we can remove this after fixing Unicode limitations
     void addStateMethods() {
         if (!allSpecs().stream().allMatch(spec -> spec.compilationPolicy.useByteClassesForAllStates)) {
@@ -804,7 +1110,7 @@ class DFAClassBuilder extends ClassBuilder {
                     literal(dfaState.getStateNumber()), read("c"));
         }
         if (stateTransitions.willUseByteClasses()) {
-            Type stateTransitionsType = useShorts(spec) ? ArrayType.of(ArrayType.of(Builtin.S)) : ArrayType.of(ArrayType.of(Builtin.OCTET));
+            Type stateTransitionsType = ArrayType.of(ArrayType.of(getStateType(spec)));
             Type byteClassesType = ArrayType.of(Builtin.OCTET);
             method.cond(gt(read("c"), 127)).withBody(set("byteClass", catchAllByteClass)).orElse(
                     set("byteClass", arrayRead(getStatic(BYTE_CLASSES_CONSTANT, ReferenceType.of(getFQCN()), byteClassesType), read("c")))
@@ -854,18 +1160,21 @@ class DFAClassBuilder extends ClassBuilder {
     private Method createMatchesMethod(FindMethodSpec spec) {
         var vars = new MatchingVars(1, 2, 3, 4, 5);
         vars.setByteClassVar(6);
+        if (inputType.hasOffset()) {
+            vars.setOffsetVar(7);
+        }
         var method = mkMethod("matches", new ArrayList<>(), "Z", vars);
 
         DFAMethodComponents.setLengthLocalVariable(method);
         DFAMethodComponents.checkMinMaxLengthForMatch(method, factorization);
-        method.set(MatchingVars.STRING, get(STRING_FIELD, ReferenceType.of(String.class), thisRef()));
+        setHaystackLocalVariables(method);
 
         int offsetCheckState = 0;
         if (spec.compilationPolicy.usePrefix) {
             var prefix = spec.compilationPolicy.getPrefix().orElseThrow();
             offsetCheckState = spec.dfa.after(prefix).orElseThrow().getStateNumber();
 
-            method.cond(not(call("startsWith", Builtin.BOOL, read(MatchingVars.STRING),
+            method.cond(not(inputType.startsWith(read(MatchingVars.STRING),
                             getStatic(PREFIX_CONSTANT, ReferenceType.of(getClassName()), ReferenceType.of(String.class)))))
                     .withBody(returnValue(0));
             method.set(MatchingVars.INDEX, prefix.length());
@@ -895,7 +1204,7 @@ class DFAClassBuilder extends ClassBuilder {
                                         callStatic(DFADebugUtils.class, "returnWasAccepted", Void.VOID, read(MatchingVars.STATE)) :
                                         new NoOpStatement(),
                                 returnValue(DFAMethodComponents.wasAccepted(spec)))),
-                set(MatchingVars.CHAR, DFAMethodComponents.readChar()),
+                set(MatchingVars.CHAR, DFAMethodComponents.readChar(inputType)),
                 spec.compilationPolicy.useByteClassesForAllStates ? cond(
                         gt(read(MatchingVars.CHAR), (int) spec.dfa.maxChar())).withBody(
                         returnValue(false)) : new NoOpStatement(),
@@ -960,13 +1269,16 @@ class DFAClassBuilder extends ClassBuilder {
         if (spec.compilationPolicy.useMaxStart) {
             vars.setMaxStartVar(varIndex++);
         }
+        if (inputType.hasOffset()) {
+            vars.setOffsetVar(varIndex++);
+        }
         var method = mkMethod("containedIn", new ArrayList<>(), "Z", vars);
 
         DFAMethodComponents.setLengthLocalVariable(method);
         if (spec.compilationPolicy.useMaxStart) {
             method.set(MatchingVars.MAX_START, sub(read(MatchingVars.LENGTH), factorization.getMinLength()));
         }
-        method.set(MatchingVars.STRING, get(STRING_FIELD, ReferenceType.of(String.class), thisRef()));
+        setHaystackLocalVariables(method);
 
         method.set(MatchingVars.INDEX, 0);
         method.set(MatchingVars.STATE, 0);
@@ -982,7 +1294,7 @@ class DFAClassBuilder extends ClassBuilder {
             var prefix = spec.compilationPolicy.getPrefix().orElseThrow();
             int postPrefixState = spec.dfa.after(prefix).orElseThrow().getStateNumber();
 
-            outerLoopBody.add(set(MatchingVars.INDEX, call("indexOf", Builtin.I, read(MatchingVars.STRING),
+            outerLoopBody.add(set(MatchingVars.INDEX, inputType.indexOf(read(MatchingVars.STRING),
                     getStatic(PREFIX_CONSTANT, ReferenceType.of(getClassName()), ReferenceType.of(String.class)),
                     read(MatchingVars.INDEX))));
             outerLoopBody.add(cond(eq(-1, read(MatchingVars.INDEX))).withBody(
@@ -1007,7 +1319,7 @@ class DFAClassBuilder extends ClassBuilder {
                 List.of(
                         cond(DFAMethodComponents.wasAccepted(spec))
                                 .withBody(returnValue(true)),
-                        set(MatchingVars.CHAR, DFAMethodComponents.readChar()),
+                        set(MatchingVars.CHAR, DFAMethodComponents.readChar(inputType)),
 
                         spec.compilationPolicy.useByteClassesForAllStates && spec.dfa.maxChar() < Character.MAX_VALUE ? cond(
                                 gt(read(MatchingVars.CHAR), (int) spec.dfa.maxChar())).withBody(
@@ -1024,6 +1336,100 @@ class DFAClassBuilder extends ClassBuilder {
         return method;
     }
 
+    /**
+     * Creates findLine(), which finds the next line containing a match. Each line is run through the containedIn DFA
+     * separately, bounded by the line's end, which is found with indexOf, as is the next occurrence of the prefix, if
+     * there is one. Lines before the next occurrence of the prefix are skipped without reading them, and once a line
+     * is known to match, the rest of it is skipped.
+     */
+    Method createFindLineMethod(FindMethodSpec spec) {
+        var vars = new MatchingVars(1, 2, 3, 4, 5);
+        int varIndex = 6;
+        vars.setByteClassVar(varIndex++);
+        vars.setLineVars(varIndex++, varIndex++, varIndex++);
+        boolean usePrefix = spec.compilationPolicy.usePrefix;
+        if (usePrefix) {
+            vars.setPrefixIndexVar(varIndex++);
+        }
+        if (inputType.hasOffset()) {
+            vars.setOffsetVar(varIndex++);
+        }
+        var method = mkMethod("findLine", new ArrayList<>(), "Z", vars);
+
+        DFAMethodComponents.setLengthLocalVariable(method);
+        setHaystackLocalVariables(method);
+        method.set(MatchingVars.INDEX, get(NEXT_LINE_FIELD, Builtin.I, thisRef()));
+        method.set(MatchingVars.LINE_NUMBER, get(LINE_NUMBER_FIELD, Builtin.I, thisRef()));
+        if (usePrefix) {
+            method.set(MatchingVars.PREFIX_INDEX, -1);
+        }
+
+        List<CodeElement> lineLoopBody = new ArrayList<>();
+        method.loop(DFAMethodComponents.inBounds(), lineLoopBody);
+
+        lineLoopBody.add(set(MatchingVars.LINE_NUMBER, plus(read(MatchingVars.LINE_NUMBER), 1)));
+        lineLoopBody.add(set(MatchingVars.LINE_START, read(MatchingVars.INDEX)));
+        lineLoopBody.add(set(MatchingVars.LINE_END, inputType.indexOf(read(MatchingVars.STRING),
+                getStatic(NEWLINE_CONSTANT, ReferenceType.of(getClassName()), ReferenceType.of(String.class)),
+                read(MatchingVars.INDEX))));
+        lineLoopBody.add(cond(eq(-1, read(MatchingVars.LINE_END))).withBody(
+                set(MatchingVars.LINE_END, read(MatchingVars.LENGTH))));
+        lineLoopBody.add(set(MatchingVars.STATE, 0));
+
+        if (usePrefix) {
+            var prefix = spec.compilationPolicy.getPrefix().orElseThrow();
+            // Every match starts with the prefix, so a line is dead unless the prefix occurs within it
+            lineLoopBody.add(cond(lt(read(MatchingVars.PREFIX_INDEX), read(MatchingVars.LINE_START))).withBody(List.of(
+                    set(MatchingVars.PREFIX_INDEX, inputType.indexOf(read(MatchingVars.STRING),
+                            getStatic(PREFIX_CONSTANT, ReferenceType.of(getClassName()), ReferenceType.of(String.class)),
+                            read(MatchingVars.LINE_START))),
+                    cond(eq(-1, read(MatchingVars.PREFIX_INDEX))).withBody(List.of(
+                            fieldSet(get(NEXT_LINE_FIELD, ReferenceType.of(getClassName()), thisRef()), read(MatchingVars.LENGTH)),
+                            returnValue(false)))
+            )));
+            lineLoopBody.add(cond(gt(plus(prefix.length(), read(MatchingVars.PREFIX_INDEX)), read(MatchingVars.LINE_END)))
+                    .withBody(List.of(
+                            set(MatchingVars.INDEX, read(MatchingVars.LINE_END)),
+                            set(MatchingVars.STATE, -1)))
+                    .orElse(List.of(
+                            set(MatchingVars.INDEX, read(MatchingVars.PREFIX_INDEX)))));
+        }
+
+        List<CodeElement> charLoopBody = new ArrayList<>();
+        charLoopBody.add(cond(DFAMethodComponents.wasAccepted(spec)).withBody(escape()));
+        charLoopBody.add(set(MatchingVars.CHAR, DFAMethodComponents.readChar(inputType)));
+        if (spec.compilationPolicy.useByteClassesForAllStates) {
+            if (maxCharacterCheckIsRequired(spec)) {
+                charLoopBody.add(cond(gt(read(MatchingVars.CHAR), (int) spec.dfa.maxChar())).withBody(List.of(
+                        set(MatchingVars.STATE, 0),
+                        DFAMethodComponents.incrementIndex(),
+                        skip())));
+            }
+            charLoopBody.add(setByteClass());
+            charLoopBody.add(buildStateLookupFromByteClass(spec));
+        } else {
+            charLoopBody.add(buildStateSwitch(spec, -1));
+        }
+        charLoopBody.add(DFAMethodComponents.incrementIndex());
+        // The DFA is unanchored, so a dead state only means that no match is in progress
+        charLoopBody.add(cond(eq(-1, read(MatchingVars.STATE))).withBody(set(MatchingVars.STATE, 0)));
+        Loop charLoop = loop(lt(read(MatchingVars.INDEX), read(MatchingVars.LINE_END)), charLoopBody);
+        lineLoopBody.add(charLoop);
+        lineLoopBody.add(cond(DFAMethodComponents.wasAccepted(spec)).withBody(List.of(
+                fieldSet(get(LINE_START_FIELD, ReferenceType.of(getClassName()), thisRef()), read(MatchingVars.LINE_START)),
+                fieldSet(get(LINE_END_FIELD, ReferenceType.of(getClassName()), thisRef()), read(MatchingVars.LINE_END)),
+                fieldSet(get(LINE_NUMBER_FIELD, ReferenceType.of(getClassName()), thisRef()), read(MatchingVars.LINE_NUMBER)),
+                fieldSet(get(NEXT_LINE_FIELD, ReferenceType.of(getClassName()), thisRef()), plus(read(MatchingVars.LINE_END), 1)),
+                returnValue(true))));
+        lineLoopBody.add(set(MatchingVars.INDEX, plus(read(MatchingVars.LINE_END), 1)));
+
+        method.fieldSet(get(NEXT_LINE_FIELD, ReferenceType.of(getClassName()), thisRef()), read(MatchingVars.INDEX));
+        method.fieldSet(get(LINE_NUMBER_FIELD, ReferenceType.of(getClassName()), thisRef()), read(MatchingVars.LINE_NUMBER));
+        method.returnValue(false);
+
+        return method;
+    }
+
     private List<CodeElement> createOffsetCheck(Offset offset, int lookahead, List<CodeElement> onFailure) {
 
         List<CodeElement> elementsToAdd = new ArrayList<>();
@@ -1034,8 +1440,7 @@ class DFAClassBuilder extends ClassBuilder {
             targetChar = plus(lookahead, targetChar);
         }
         elementsToAdd.add(set(MatchingVars.CHAR,
-                call("charAt", Builtin.C, read(MatchingVars.STRING),
-                        targetChar)));
+                inputType.charAt(read(MatchingVars.STRING), targetChar)));
         var charRange = offset.charRange;
         Expression offsetCheck;
         if (charRange.isSingleCharRange()) {
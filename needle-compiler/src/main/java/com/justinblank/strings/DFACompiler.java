@@ -2,17 +2,32 @@ package com.justinblank.strings;
 
 import com.justinblank.classcompiler.ClassBuilder;
 import com.justinblank.classcompiler.ClassCompiler;
+import com.justinblank.classcompiler.CompilerUtil;
 import com.justinblank.classcompiler.Method;
-import com.justinblank.classloader.MyClassLoader;
 import com.justinblank.strings.RegexAST.Node;
 import org.objectweb.asm.Opcodes;
 
 import java.util.*;
+import java.util.concurrent.FutureTask;
 
 import static org.objectweb.asm.Opcodes.*;
 
 public class DFACompiler {
 
+    /**
+     * The default maximum number of states in a DFA whose transitions are stored in arrays, which hold ints once a DFA
+     * has more states than fit in a short. Compiling takes time roughly proportional to the number of states, and DFAs
+     * this large already take tens of seconds, so by default regexes with larger DFAs are better served by a lazy DFA.
+     * {@link CompilerOptions#withMaxStates(int)} changes the limit.
+     */
+    public static final int DEFAULT_MAX_STATES = 1 << 16;
+    /**
+     * The maximum number of states in a DFA whose transitions are compiled to a method per state, which happens when
+     * its chars can't be mapped to byte classes.
+     */
+    // TODO: Why Short.MAX_VALUE / 2--not obvious why this wouldn't work with Short.MAX_VALUE or Short.MAX_VALUE - 1;
+    static final int MAX_STATES_WITHOUT_BYTE_CLASSES = Short.MAX_VALUE / 2;
+
     public static Pattern compile(String regex, String className) {
         var compilerOptions = new CompilerOptions(0, CharacterDistribution.DEFAULT, DebugOptions.none());
         return compile(regex, className, compilerOptions);
@@ -22,20 +37,58 @@ public class DFACompiler {
         return compile(regex, className, CompilerOptions.fromFlags(flags));
     }
 
+    /**
+     * Compile a regex to a class. If the regex's DFAs are too large to compile, and the options allow it, returns a
+     * {@link LazyDFAPattern} instead, which builds DFA states as they're needed. {@link Engine#of(Pattern)} reports
+     * which was chosen.
+     *
+     * @param regex the regex
+     * @param className the name of the generated class
+     * @param options the compiler options
+     * @return the compiled pattern
+     */
     public static Pattern compile(String regex, String className, CompilerOptions options) {
         if (options.debugOptions.isDebug()) {
             System.out.println("Compiling " + className + "(" + regex + ")");
         }
-        byte[] classBytes = compileToBytes(regex, className, options);
+        byte[] classBytes;
+        try {
+            classBytes = compileOrLoad(regex, className, options);
+        }
+        catch (PatternClassCompilationException e) {
+            if (options.fallback && e.getCause() instanceof DFATooLargeException) {
+                if (options.debugOptions.isDebug()) {
+                    System.out.println("Falling back to lazy DFA for " + className + ": " + e.getCause().getMessage());
+                }
+                return LazyDFAPattern.compile(regex, options.flags);
+            }
+            throw e;
+        }
         try {
-            Class<?> matcherClass = MyClassLoader.getInstance().loadClass(className, classBytes);
-            Class<? extends Pattern> c = createPatternClass(className, (Class<? extends Matcher>) matcherClass);
-            return (Pattern) c.getDeclaredConstructors()[0].newInstance();
+            var loader = new PatternClassLoader(options);
+            loader.loadClass(className, classBytes);
+            Class<? extends Pattern> c = createPatternClass(loader, className);
+            return (Pattern) c.getDeclaredConstructors()[0].newInstance(regex, className, options);
         } catch (Throwable t) {
             throw new PatternClassCompilationException("Failed to compile pattern from regex '" + regex + "'", t);
         }
     }
 
+    private static byte[] compileOrLoad(String regex, String className, CompilerOptions options) {
+        var cache = options.classFileCache;
+        // Debug options change the generated class, and debugging is easier when it's actually compiled
+        if (cache == null || options.debugOptions.isDebug()) {
+            return compileToBytes(regex, className, options);
+        }
+        String key = ClassFileCache.key(regex, className, options);
+        byte[] classBytes = cache.get(key);
+        if (classBytes == null) {
+            classBytes = compileToBytes(regex, className, options);
+            cache.put(key, classBytes);
+        }
+        return classBytes;
+    }
+
     public static byte[] compileToBytes(String regex, String className, int flags) {
         var compilerOptions = new CompilerOptions(flags, CharacterDistribution.DEFAULT, DebugOptions.none());
 
@@ -43,26 +96,61 @@ public class DFACompiler {
     }
 
     public static byte[] compileToBytes(String regex, String className, CompilerOptions options) {
-        try {
+        return compileToBytes(regex, className, options, InputType.STRING);
+    }
+
+    static byte[] compileToBytes(String regex, String className, CompilerOptions options, InputType inputType) {
+        try (var tasks = new CompilationTasks(options.executor)) {
             Objects.requireNonNull(className, "name cannot be null");
-            Node node = RegexParser.parse(regex, options.flags);
-            Factorization factorization = Factorization.buildFactorization(node);
+            Node parsed = RegexParser.parse(regex, options.flags);
+            Node node = inputType.isUtf8() ? Utf8Encoding.encode(parsed) : parsed;
+            long estimate = inputType.isUtf8() ? DFASizeEstimator.estimateUtf8(parsed, node) : DFASizeEstimator.estimate(node);
+            checkEstimatedSize(estimate, node, inputType.className(className), options);
 
+            Set<MatcherOperation> operations = inputType == InputType.STRING ? options.operations : EnumSet.allOf(MatcherOperation.class);
+            boolean find = operations.contains(MatcherOperation.FIND);
             boolean leftmostLongest = (options.flags & Pattern.LEFTMOST_LONGEST) == Pattern.LEFTMOST_LONGEST;
+            boolean printDFAs = options.debugOptions.printDFAs;
+
+            // The DFAs only share the read-only NFAs, so they're built concurrently when the options supply an
+            // executor. The forward DFA is needed by every operation, the others only by the operations that use them.
+            // A regex whose matches all have one length finds where a match starts without searching backwards.
+            var factorizationTask = tasks.submit(() -> Factorization.buildFactorization(node));
+            FutureTask<DFA> reversedTask = null;
+            if (find && !node.isFixedLength()) {
+                reversedTask = tasks.submit(() -> {
+                    NFA reversedNFA = new NFA(RegexInstrBuilder.createNFA(node.reversed(), leftmostLongest));
+                    return NFAToDFACompiler.compile(reversedNFA, ConversionMode.BASIC, printDFAs, options.maxStates);
+                });
+            }
             NFA forwardNFA = new NFA(RegexInstrBuilder.createNFA(node, leftmostLongest));
-            NFA reversedNFA = new NFA(RegexInstrBuilder.createNFA(node.reversed(), leftmostLongest));
-
-            DFA dfa = NFAToDFACompiler.compile(forwardNFA, ConversionMode.BASIC, options.debugOptions.printDFAs);
-            DFA containedInDFA = NFAToDFACompiler.compile(forwardNFA, ConversionMode.CONTAINED_IN, options.debugOptions.printDFAs);
-            DFA dfaReversed = NFAToDFACompiler.compile(reversedNFA, ConversionMode.BASIC, options.debugOptions.printDFAs);
-            DFA dfaSearch = NFAToDFACompiler.compile(forwardNFA, ConversionMode.DFA_SEARCH, options.debugOptions.printDFAs);
+            FutureTask<DFA> containedInTask = null;
+            if (operations.contains(MatcherOperation.CONTAINED_IN)) {
+                containedInTask = tasks.submit(() -> NFAToDFACompiler.compile(forwardNFA, ConversionMode.CONTAINED_IN, printDFAs, options.maxStates));
+            }
+            FutureTask<DFA> searchTask = null;
+            if (find) {
+                searchTask = tasks.submit(() -> NFAToDFACompiler.compile(forwardNFA, ConversionMode.DFA_SEARCH, printDFAs, options.maxStates));
+            }
+            DFA dfa = NFAToDFACompiler.compile(forwardNFA, ConversionMode.BASIC, printDFAs, options.maxStates);
+            Factorization factorization = tasks.join(factorizationTask);
+            DFA containedInDFA = containedInTask != null ? tasks.join(containedInTask) : null;
+            DFA dfaReversed = reversedTask != null ? tasks.join(reversedTask) : null;
+            DFA dfaSearch = searchTask != null ? tasks.join(searchTask) : null;
 
-            if (options.debugOptions.printDFAs) {
+            if (printDFAs) {
                 printDFARepresentations(dfa, containedInDFA, dfaReversed, dfaSearch);
             }
-            checkForOverLongDFAs(List.of(dfa, containedInDFA, dfaReversed, dfaSearch));
+            var dfas = new ArrayList<DFA>();
+            for (var built : Arrays.asList(dfa, containedInDFA, dfaReversed, dfaSearch)) {
+                if (built != null) {
+                    dfas.add(built);
+                }
+            }
+            checkForOverLongDFAs(dfas, options.maxStates);
 
-            var builder = new DFAClassBuilder(className, dfa, containedInDFA, dfaReversed, dfaSearch, factorization, options);
+            var builder = new DFAClassBuilder(inputType.className(className), regex, dfa, containedInDFA, dfaReversed, dfaSearch,
+                    factorization, options, inputType, operations);
             builder.initMethods();
             ClassCompiler compiler = new ClassCompiler(builder, options.debugOptions.isDebug(), System.out);
             byte[] classBytes = compiler.generateClassAsBytes();
@@ -73,29 +161,77 @@ public class DFACompiler {
         }
     }
 
-    private static void checkForOverLongDFAs(List<DFA> dfas) {
+    /**
+     * Estimate the number of states in the DFAs of a regex, without building them.
+     *
+     * @param regex the regex
+     * @param flags the flags to parse the regex with
+     * @return the estimated number of states in the largest of the regex's DFAs
+     */
+    public static long estimateStates(String regex, int flags) {
+        return DFASizeEstimator.estimate(RegexParser.parse(regex, flags));
+    }
+
+    private static void checkEstimatedSize(long estimate, Node node, String className, CompilerOptions options) {
+        int maxStates = maxStates(node, options);
+        if (options.debugOptions.isDebug()) {
+            System.out.println("Estimated DFA states for " + className + ": " + estimate + ", limit: " + maxStates);
+        }
+        // The estimate tends to be low, so building regexes estimated above the limit would only waste time finding
+        // out that they're too large
+        if (estimate > maxStates) {
+            throw new DFATooLargeException("Estimated " + estimate + " DFA states, more than the limit of " + maxStates);
+        }
+    }
+
+    /**
+     * @return the largest number of states the regex's DFAs may have
+     */
+    static int maxStates(Node node, CompilerOptions options) {
+        if (DFASizeEstimator.fitsByteClasses(node)) {
+            return options.maxStates;
+        }
+        return Math.min(options.maxStates, MAX_STATES_WITHOUT_BYTE_CLASSES);
+    }
+
+    static void checkForOverLongDFAs(List<DFA> dfas) {
+        checkForOverLongDFAs(dfas, DEFAULT_MAX_STATES);
+    }
+
+    static void checkForOverLongDFAs(List<DFA> dfas, int maxStates) {
         for (var dfa : dfas) {
-            // TODO: Why Short.MAX_VALUE / 2--not obvious why this wouldn't work with Short.MAX_VALUE or Short.MAX_VALUE - 1;
-            if (dfa.statesCount() > Short.MAX_VALUE / 2) {
-                throw new IllegalStateException("Can't compile DFAs with more than " + (Short.MAX_VALUE / 2) + " states");
+            if (dfa.statesCount() > maxStates) {
+                throw new DFATooLargeException("Can't compile DFAs with more than " + maxStates + " states");
             }
         }
     }
 
     private static void printDFARepresentations(DFA dfa, DFA containedInDFA, DFA dfaReversed, DFA dfaSearch) {
-        System.out.println("----dfa----");
-        System.out.println(GraphViz.toGraphviz(dfa));
-        System.out.println("----selfTransitioningDFA----");
-        System.out.println(GraphViz.toGraphviz(containedInDFA));
-        System.out.println("----reversedDFA----");
-        System.out.println(GraphViz.toGraphviz(dfaReversed));
-        System.out.println("----dfaSearch----");
-        System.out.println(GraphViz.toGraphviz(dfaSearch));
+        printDFARepresentation("dfa", dfa);
+        printDFARepresentation("selfTransitioningDFA", containedInDFA);
+        printDFARepresentation("reversedDFA", dfaReversed);
+        printDFARepresentation("dfaSearch", dfaSearch);
+    }
+
+    private static void printDFARepresentation(String name, DFA dfa) {
+        if (dfa != null) {
+            System.out.println("----" + name + "----");
+            System.out.println(GraphViz.toGraphviz(dfa));
+        }
     }
 
-    private static Class<? extends Pattern> createPatternClass(String name, Class<? extends Matcher> m) {
-        ClassBuilder builder = new ClassBuilder("Pattern" + name, "", "java/lang/Object", new String[]{"com/justinblank/strings/Pattern"});
-        builder.addEmptyConstructor();
+    private static Class<? extends Pattern> createPatternClass(PatternClassLoader loader, String name) {
+        ClassBuilder builder = new ClassBuilder("Pattern" + name, "", CompilerUtil.internalName(CompiledPattern.class), new String[]{});
+        var constructor = new Method("<init>", List.of("Ljava/lang/String;", "Ljava/lang/String;", "Lcom/justinblank/strings/CompilerOptions;"), "V", null);
+        builder.addMethod(constructor);
+        constructor
+                .addBlock()
+                .readThis()
+                .readVar(1, "Ljava/lang/String;")
+                .readVar(2, "Ljava/lang/String;")
+                .readVar(3, "Lcom/justinblank/strings/CompilerOptions;")
+                .call("<init>", CompilerUtil.internalName(CompiledPattern.class), "(Ljava/lang/String;Ljava/lang/String;Lcom/justinblank/strings/CompilerOptions;)V", true)
+                .addReturn(RETURN);
         var method = new Method("matcher", List.of("Ljava/lang/String;"), "Lcom/justinblank/strings/Matcher;", null);
         builder.addMethod(method);
         method
@@ -107,7 +243,7 @@ public class DFACompiler {
                 .addReturn(Opcodes.ARETURN);
 
         ClassCompiler compiler = new ClassCompiler(builder);
-        return (Class<? extends Pattern>) MyClassLoader.getInstance().loadClass("Pattern" + name, compiler.writeClassAsBytes());
+        return (Class<? extends Pattern>) loader.loadClass("Pattern" + name, compiler.writeClassAsBytes());
     }
 
 }
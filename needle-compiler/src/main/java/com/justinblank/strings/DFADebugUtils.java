@@ -36,6 +36,10 @@ public class DFADebugUtils {
         System.out.println("StateTransitions, type=" + stateType + Arrays.toString(stateTransitions));
     }
 
+    public static void debugStateArrays(String stateType, int[] stateTransitions) {
+        System.out.println("StateTransitions, type=" + stateType + Arrays.toString(stateTransitions));
+    }
+
     private static String encodeChr(char c) {
         switch (c) {
             case '\n':
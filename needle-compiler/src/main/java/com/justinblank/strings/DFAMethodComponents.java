@@ -32,10 +32,8 @@ public class DFAMethodComponents {
         return eq(read(MatchingVars.INDEX), read(MatchingVars.LENGTH));
     }
 
-    protected static Expression readChar() {
-        return call("charAt", Builtin.C,
-                read(MatchingVars.STRING),
-                read(MatchingVars.INDEX));
+    protected static Expression readChar(InputType inputType) {
+        return inputType.charAt(read(MatchingVars.STRING), read(MatchingVars.INDEX));
     }
 
     static Expression min(Expression left, Expression right) {
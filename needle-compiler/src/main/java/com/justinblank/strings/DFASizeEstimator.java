@@ -0,0 +1,407 @@
+package com.justinblank.strings;
+
+import com.justinblank.strings.RegexAST.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Estimates how many states the DFAs for a regex will have, without building them, so that regexes whose DFAs are
+ * exponentially large can be rejected before determinization spends seconds and gigabytes on them.
+ * <p>
+ * A DFA usually has about as many states as the regex has positions, i.e. chars or char classes, once counted
+ * repetitions are expanded. The exception is a loop, such as .* or the implicit loop at the start of an unanchored
+ * search, followed by a window of positions that overlap the loop's chars, as in .*a.{20}. Each char read inside the
+ * window may start a new attempt at matching it, and when the window's positions overlap the chars of its first
+ * position without being equal to them, the attempts don't stay in step, so the DFA must track which of them are
+ * still alive: up to 2^k states for k such positions. The branches of a union are alternatives, so a window follows
+ * one branch at a time, and the largest is counted.
+ * <p>
+ * The estimate is a heuristic, not a bound. It's meant to separate regexes whose DFAs are a few times too large from
+ * those whose DFAs are orders of magnitude too large.
+ */
+final class DFASizeEstimator {
+
+    /**
+     * The largest window counted, beyond which the estimate is saturated.
+     */
+    private static final int MAX_WINDOW = 62;
+    /**
+     * The maximum number of positions expanded from counted repetitions when looking for windows.
+     */
+    private static final int MAX_ELEMENTS = 1 << 16;
+    private static final int MAX_BYTE_CLASSES = 255;
+
+    private static final BitSet ALL_CHARS = new BitSet(Character.MAX_VALUE + 1);
+
+    static {
+        ALL_CHARS.set(0, Character.MAX_VALUE + 1);
+    }
+
+    private DFASizeEstimator() {}
+
+    /**
+     * @param node the regex
+     * @return the estimated number of states in the largest of the regex's DFAs
+     */
+    static long estimate(Node node) {
+        long anchored = Math.max(estimate(node, false), estimate(node.reversed(), false));
+        return Math.max(anchored, estimate(node, true));
+    }
+
+    /**
+     * Estimates how many states the DFAs over the regex's UTF-8 encoding will have. Encoding replaces each char class
+     * with a union of byte sequences, which hides the windows the estimate looks for, so the encoded regex alone is
+     * badly underestimated. Each state of a DFA over chars becomes up to as many states over bytes as the longest
+     * encoding of a char the regex matches, so the estimate over chars is scaled by that length.
+     *
+     * @param node the regex, over chars
+     * @param encoded the regex's UTF-8 encoding, as produced by {@link Utf8Encoding#encode(Node)}
+     * @return the estimated number of states in the largest of the DFAs over bytes
+     */
+    static long estimateUtf8(Node node, Node encoded) {
+        long scaled = saturatedMultiply(estimate(node), maxEncodedLength(node));
+        return Math.max(scaled, estimate(encoded));
+    }
+
+    /**
+     * @param node the regex
+     * @param unanchored whether the DFA searches for the regex at any index, rather than matching from the start
+     * @return the estimated number of states in the DFA
+     */
+    static long estimate(Node node, boolean unanchored) {
+        List<Element> elements = new ArrayList<>();
+        if (unanchored) {
+            elements.add(new Element(ALL_CHARS, true));
+        }
+        flatten(node, elements);
+        long estimate = saturatedAdd(positions(node), 1);
+        for (int i = 0; i < elements.size(); i++) {
+            if (elements.get(i).loop) {
+                estimate = saturatedAdd(estimate, windowStates(elements, i));
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * Predicts whether the regex's chars can be mapped to few enough classes that its DFAs will be compiled to
+     * transition tables, which hold many more states than DFAs compiled to a method per state. Case insensitive
+     * regexes over Unicode are the usual reason they can't be.
+     *
+     * @param node the regex
+     * @return whether the chars the regex distinguishes fall into no more than 255 classes
+     */
+    static boolean fitsByteClasses(Node node) {
+        Set<BitSet> distinct = new HashSet<>();
+        collectCharSets(node, distinct);
+        List<BitSet> charSets = new ArrayList<>(distinct);
+        var boundaries = new BitSet(Character.MAX_VALUE + 2);
+        for (BitSet chars : charSets) {
+            for (int start = chars.nextSetBit(0); start >= 0; start = chars.nextSetBit(start)) {
+                int end = chars.nextClearBit(start);
+                boundaries.set(start);
+                boundaries.set(end);
+                start = end;
+            }
+        }
+        // Chars between two boundaries belong to the same char sets, and chars with the same sets share a class
+        Set<BitSet> classes = new HashSet<>();
+        for (int boundary = 0; boundary >= 0 && boundary <= Character.MAX_VALUE; boundary = boundaries.nextSetBit(boundary + 1)) {
+            var membership = new BitSet(charSets.size());
+            for (int i = 0; i < charSets.size(); i++) {
+                if (charSets.get(i).get(boundary)) {
+                    membership.set(i);
+                }
+            }
+            classes.add(membership);
+            if (classes.size() > MAX_BYTE_CLASSES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long windowStates(List<Element> elements, int loopIndex) {
+        long states = windowStates(elements, loopIndex, loopIndex + 1);
+        // The branches of a union directly after the loop may each start a window
+        for (int i = loopIndex + 1; i < elements.size(); i++) {
+            var element = elements.get(i);
+            if (element.unionStart == loopIndex + 1) {
+                states = Math.max(states, windowStates(elements, loopIndex, i + 1));
+            }
+        }
+        return states;
+    }
+
+    private static long windowStates(List<Element> elements, int loopIndex, int start) {
+        BitSet loop = elements.get(loopIndex).chars;
+        int first = skipBranchEnds(elements, start);
+        if (first >= elements.size() || elements.get(first).loop || !elements.get(first).chars.intersects(loop)) {
+            return 0;
+        }
+        BitSet firstChars = elements.get(first).chars;
+        int window = 0;
+        for (int i = skipBranchEnds(elements, first + 1); i < elements.size() && !elements.get(i).loop && window < MAX_WINDOW;
+             i = skipBranchEnds(elements, i + 1)) {
+            BitSet chars = elements.get(i).chars;
+            if (chars.intersects(loop) && chars.intersects(firstChars) && !chars.equals(firstChars)) {
+                window++;
+            }
+        }
+        return window == 0 ? 0 : 1L << window;
+    }
+
+    /**
+     * @return the index of the next position from index, where the end of a union's left branch continues after the
+     * union
+     */
+    private static int skipBranchEnds(List<Element> elements, int index) {
+        while (index < elements.size() && elements.get(index).unionStart >= 0) {
+            index = elements.get(index).unionEnd;
+        }
+        return index;
+    }
+
+    /**
+     * Lists the positions of the regex in order, expanding counted repetitions, and replacing unbounded repetitions
+     * with a loop over their chars. The branches of a union are listed one after another, separated by a marker
+     * recording where the union starts and ends.
+     */
+    private static void flatten(Node node, List<Element> elements) {
+        if (elements.size() >= MAX_ELEMENTS) {
+            return;
+        }
+        BitSet chars = positionChars(node);
+        if (chars != null) {
+            elements.add(new Element(chars, false));
+        }
+        else if (node instanceof LiteralNode) {
+            String literal = ((LiteralNode) node).getLiteral();
+            for (int i = 0; i < literal.length() && elements.size() < MAX_ELEMENTS; i++) {
+                elements.add(new Element(charSet(literal.charAt(i), literal.charAt(i)), false));
+            }
+        }
+        else if (node instanceof Concatenation) {
+            var concatenation = (Concatenation) node;
+            flatten(concatenation.head, elements);
+            flatten(concatenation.tail, elements);
+        }
+        else if (node instanceof Union) {
+            var union = (Union) node;
+            int start = elements.size();
+            flatten(union.left, elements);
+            var branchEnd = new Element(new BitSet(), false);
+            branchEnd.unionStart = start;
+            elements.add(branchEnd);
+            flatten(union.right, elements);
+            branchEnd.unionEnd = elements.size();
+        }
+        else if (node instanceof Repetition) {
+            elements.add(new Element(allChars(((Repetition) node).node), true));
+        }
+        else if (node instanceof CountedRepetition) {
+            var repetition = (CountedRepetition) node;
+            List<Element> repeated = new ArrayList<>();
+            flatten(repetition.node, repeated);
+            for (int i = 0; i < repetition.max && elements.size() < MAX_ELEMENTS; i++) {
+                // Each copy's union markers must point into the copy, not into the first one
+                int offset = elements.size();
+                for (Element element : repeated) {
+                    elements.add(element.shifted(offset));
+                }
+            }
+        }
+        else {
+            throw new IllegalStateException("Unhandled ast node type=" + node.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * @return the chars accepted by the node, if it's a single position, such as a char class, or else null
+     */
+    private static BitSet positionChars(Node node) {
+        if (node instanceof CharRangeNode) {
+            var range = ((CharRangeNode) node).range();
+            return charSet(range.getStart(), range.getEnd());
+        }
+        else if (node instanceof LiteralNode && ((LiteralNode) node).getLiteral().length() == 1) {
+            char c = ((LiteralNode) node).getLiteral().charAt(0);
+            return charSet(c, c);
+        }
+        else if (node instanceof Union) {
+            var union = (Union) node;
+            BitSet left = positionChars(union.left);
+            if (left == null) {
+                return null;
+            }
+            BitSet right = positionChars(union.right);
+            if (right == null) {
+                return null;
+            }
+            left.or(right);
+            return left;
+        }
+        return null;
+    }
+
+    private static BitSet allChars(Node node) {
+        BitSet chars = new BitSet();
+        Set<BitSet> charSets = new HashSet<>();
+        collectCharSets(node, charSets);
+        for (BitSet charSet : charSets) {
+            chars.or(charSet);
+        }
+        return chars;
+    }
+
+    private static void collectCharSets(Node node, Set<BitSet> charSets) {
+        BitSet chars = positionChars(node);
+        if (chars != null) {
+            charSets.add(chars);
+        }
+        else if (node instanceof LiteralNode) {
+            String literal = ((LiteralNode) node).getLiteral();
+            for (int i = 0; i < literal.length(); i++) {
+                charSets.add(charSet(literal.charAt(i), literal.charAt(i)));
+            }
+        }
+        else if (node instanceof Concatenation) {
+            collectCharSets(((Concatenation) node).head, charSets);
+            collectCharSets(((Concatenation) node).tail, charSets);
+        }
+        else if (node instanceof Union) {
+            collectCharSets(((Union) node).left, charSets);
+            collectCharSets(((Union) node).right, charSets);
+        }
+        else if (node instanceof Repetition) {
+            collectCharSets(((Repetition) node).node, charSets);
+        }
+        else if (node instanceof CountedRepetition) {
+            collectCharSets(((CountedRepetition) node).node, charSets);
+        }
+    }
+
+    /**
+     * @return the number of positions in the regex once counted repetitions are expanded
+     */
+    static long positions(Node node) {
+        if (node instanceof CharRangeNode) {
+            return 1;
+        }
+        else if (node instanceof LiteralNode) {
+            return ((LiteralNode) node).getLiteral().length();
+        }
+        else if (node instanceof Concatenation) {
+            return saturatedAdd(positions(((Concatenation) node).head), positions(((Concatenation) node).tail));
+        }
+        else if (node instanceof Union) {
+            return saturatedAdd(positions(((Union) node).left), positions(((Union) node).right));
+        }
+        else if (node instanceof Repetition) {
+            return positions(((Repetition) node).node);
+        }
+        else if (node instanceof CountedRepetition) {
+            var repetition = (CountedRepetition) node;
+            long positions = positions(repetition.node);
+            if (positions != 0 && repetition.max > Long.MAX_VALUE / positions) {
+                return Long.MAX_VALUE;
+            }
+            return positions * repetition.max;
+        }
+        throw new IllegalStateException("Unhandled ast node type=" + node.getClass().getSimpleName());
+    }
+
+    /**
+     * @return the length of the longest UTF-8 encoding of any char the regex matches, where a range covering every
+     * surrogate also matches supplementary code points
+     */
+    static int maxEncodedLength(Node node) {
+        if (node instanceof CharRangeNode) {
+            var range = ((CharRangeNode) node).range();
+            if (range.getStart() <= Character.MIN_SURROGATE && range.getEnd() >= Character.MAX_SURROGATE) {
+                return 4;
+            }
+            return encodedLength(range.getEnd());
+        }
+        else if (node instanceof LiteralNode) {
+            String literal = ((LiteralNode) node).getLiteral();
+            int length = 0;
+            for (int i = 0; i < literal.length(); i++) {
+                length = Math.max(length, encodedLength(literal.charAt(i)));
+            }
+            return length;
+        }
+        else if (node instanceof Concatenation) {
+            return Math.max(maxEncodedLength(((Concatenation) node).head), maxEncodedLength(((Concatenation) node).tail));
+        }
+        else if (node instanceof Union) {
+            return Math.max(maxEncodedLength(((Union) node).left), maxEncodedLength(((Union) node).right));
+        }
+        else if (node instanceof Repetition) {
+            return maxEncodedLength(((Repetition) node).node);
+        }
+        else if (node instanceof CountedRepetition) {
+            return maxEncodedLength(((CountedRepetition) node).node);
+        }
+        throw new IllegalStateException("Unhandled ast node type=" + node.getClass().getSimpleName());
+    }
+
+    /**
+     * @return the length of the UTF-8 encoding of a char, where a surrogate is encoded as if it were a code point
+     */
+    private static int encodedLength(char c) {
+        if (c <= Utf8Encoding.MAX_ONE_BYTE) {
+            return 1;
+        }
+        return c <= Utf8Encoding.MAX_TWO_BYTES ? 2 : 3;
+    }
+
+    private static BitSet charSet(char start, char end) {
+        var chars = new BitSet(end + 1);
+        chars.set(start, end + 1);
+        return chars;
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        if (a != 0 && b > Long.MAX_VALUE / a) {
+            return Long.MAX_VALUE;
+        }
+        return a * b;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static class Element {
+        final BitSet chars;
+        final boolean loop;
+        /**
+         * For the marker ending a union's left branch, the indexes where the union starts and ends, or else -1.
+         */
+        int unionStart = -1;
+        int unionEnd = -1;
+
+        Element(BitSet chars, boolean loop) {
+            this.chars = chars;
+            this.loop = loop;
+        }
+
+        /**
+         * @return a copy of this element for a list where it's offset positions further along
+         */
+        Element shifted(int offset) {
+            var element = new Element(chars, loop);
+            if (unionStart >= 0) {
+                element.unionStart = unionStart + offset;
+                element.unionEnd = unionEnd + offset;
+            }
+            return element;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.justinblank.strings;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A DFA flattened into arrays, so that it can be run by an interpreter without generating a class. Characters are
+ * mapped to equivalence classes, such that every character in a class has the same transitions from every state, and
+ * transitions are stored in a single array indexed by state and class.
+ * <p>
+ * States are numbered as in the {@link DFA} this was built from, so the initial state is 0.
+ */
+class DFATable {
+
+    static final int DEAD_STATE = -1;
+
+    private final CharClasses charClasses;
+    private final int classCount;
+    private final int[] transitions;
+    private final boolean[] accepting;
+
+    private DFATable(CharClasses charClasses, int classCount, int[] transitions, boolean[] accepting) {
+        this.charClasses = charClasses;
+        this.classCount = classCount;
+        this.transitions = transitions;
+        this.accepting = accepting;
+    }
+
+    static DFATable of(DFA dfa) {
+        // Each class is a run of characters between two consecutive range boundaries
+        var boundaries = new ArrayList<Integer>();
+        for (var state : dfa.allStates()) {
+            for (var transition : state.getTransitions()) {
+                boundaries.add((int) transition.getLeft().getStart());
+                boundaries.add(transition.getLeft().getEnd() + 1);
+            }
+        }
+        var charClasses = CharClasses.of(boundaries);
+        int classCount = charClasses.count();
+
+        int statesCount = dfa.statesCount();
+        var transitions = new int[statesCount * classCount];
+        Arrays.fill(transitions, DEAD_STATE);
+        var accepting = new boolean[statesCount];
+        for (var state : dfa.allStates()) {
+            int base = state.getStateNumber() * classCount;
+            accepting[state.getStateNumber()] = state.isAccepting();
+            for (Pair<CharRange, DFA> transition : state.getTransitions()) {
+                int firstClass = charClasses.classOf(transition.getLeft().getStart());
+                int lastClass = charClasses.classOf(transition.getLeft().getEnd());
+                Arrays.fill(transitions, base + firstClass, base + lastClass + 1, transition.getRight().getStateNumber());
+            }
+        }
+        return new DFATable(charClasses, classCount, transitions, accepting);
+    }
+
+    /**
+     * @return the state reached from state on c, or {@link #DEAD_STATE}
+     */
+    int next(int state, char c) {
+        return transitions[state * classCount + charClasses.classOf(c)];
+    }
+
+    int charClass(char c) {
+        return charClasses.classOf(c);
+    }
+
+    /**
+     * @return the sorted first chars of every char class but the first
+     */
+    int[] charClassBoundaries() {
+        return charClasses.boundaries();
+    }
+
+    /**
+     * @return the state reached from state on a char in charClass, or {@link #DEAD_STATE}
+     */
+    int transition(int state, int charClass) {
+        return transitions[state * classCount + charClass];
+    }
+
+    boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    int statesCount() {
+        return accepting.length;
+    }
+
+    int classCount() {
+        return classCount;
+    }
+}
@@ -0,0 +1,11 @@
+package com.justinblank.strings;
+
+/**
+ * Thrown when a DFA has, or would have, more states than the compiler can handle.
+ */
+public class DFATooLargeException extends IllegalStateException {
+
+    public DFATooLargeException(String message) {
+        super(message);
+    }
+}
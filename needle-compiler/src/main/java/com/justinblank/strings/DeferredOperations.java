@@ -0,0 +1,68 @@
+package com.justinblank.strings;
+
+import java.lang.invoke.MethodHandles;
+import java.util.EnumSet;
+
+/**
+ * Supports the operations that a class generated by {@link DFACompiler} wasn't built with, because its
+ * {@link CompilerOptions} didn't declare them. The generated class holds one of these in a static field, and delegates
+ * those operations to a matcher from a pattern compiled with every operation, which is compiled the first time any
+ * matcher needs it. That pattern is compiled with the same options as the generated class, found through its class
+ * loader, so that it's built and cached the same way.
+ */
+public final class DeferredOperations {
+
+    private final String regex;
+    private final CompilerOptions options;
+    private final String className;
+    private volatile Pattern pattern;
+
+    /**
+     * @param lookup a lookup in the generated class
+     * @param regex the regex
+     * @param flags the flags the regex was compiled with, used if the generated class's options can't be found
+     * @param className the name of the class to generate with every operation
+     */
+    public DeferredOperations(MethodHandles.Lookup lookup, String regex, int flags, String className) {
+        this.regex = regex;
+        this.options = compiledOptions(lookup, flags).withOperations(EnumSet.allOf(MatcherOperation.class));
+        this.className = className;
+    }
+
+    private static CompilerOptions compiledOptions(MethodHandles.Lookup lookup, int flags) {
+        var loader = lookup.lookupClass().getClassLoader();
+        if (loader instanceof PatternClassLoader) {
+            var options = ((PatternClassLoader) loader).options();
+            if (options != null) {
+                return options;
+            }
+        }
+        return CompilerOptions.fromFlags(flags);
+    }
+
+    /**
+     * @param current the matcher previously returned to the calling matcher, or null if there wasn't one
+     * @param s the string the calling matcher matches against
+     * @return a matcher for the same string supporting every operation
+     */
+    public Matcher matcher(Matcher current, String s) {
+        if (current != null) {
+            return current;
+        }
+        return pattern().matcher(s);
+    }
+
+    Pattern pattern() {
+        Pattern p = pattern;
+        if (p == null) {
+            synchronized (this) {
+                p = pattern;
+                if (p == null) {
+                    p = DFACompiler.compile(regex, className, options);
+                    pattern = p;
+                }
+            }
+        }
+        return p;
+    }
+}
@@ -0,0 +1,44 @@
+package com.justinblank.strings;
+
+/**
+ * The engines a {@link Pattern} created by {@link DFACompiler} or {@link EngineSelector} may use.
+ */
+public enum Engine {
+    /**
+     * The regex's DFAs were built ahead of time and compiled to a class.
+     */
+    COMPILED_DFA,
+    /**
+     * The pattern is a {@link LazyDFAPattern}, because the regex's DFAs were too large to build ahead of time, or not
+     * worth building for the number of times it's expected to be used.
+     */
+    LAZY_DFA,
+    /**
+     * The regex only matches a single string, which the pattern, a {@link LiteralPattern}, searches for with
+     * Aho-Corasick.
+     */
+    LITERAL;
+
+    /**
+     * @param pattern a pattern created by {@link DFACompiler}, {@link EngineSelector}, {@link LazyDFAPattern},
+     *                {@link LiteralPattern} or {@link TieredPattern}
+     * @return the engine the pattern uses, which for a {@link TieredPattern} is the engine it currently creates
+     * matchers with
+     * @throws IllegalArgumentException if the pattern wasn't created by this library's compilers
+     */
+    public static Engine of(Pattern pattern) {
+        if (pattern instanceof CompiledPattern) {
+            return COMPILED_DFA;
+        }
+        if (pattern instanceof LazyDFAPattern) {
+            return LAZY_DFA;
+        }
+        if (pattern instanceof LiteralPattern) {
+            return LITERAL;
+        }
+        if (pattern instanceof TieredPattern) {
+            return of(((TieredPattern) pattern).current());
+        }
+        throw new IllegalArgumentException("Unrecognized pattern class " + pattern.getClass().getName());
+    }
+}
@@ -0,0 +1,106 @@
+package com.justinblank.strings;
+
+import com.justinblank.strings.RegexAST.Node;
+
+import java.util.Objects;
+
+import static com.justinblank.strings.CompilationPolicy.*;
+
+/**
+ * Chooses the engine for a regex that minimizes the total cost of creating the pattern and matching with it as many
+ * times as {@link CompilerOptions#withExpectedUses(long)} says it will be.
+ * <p>
+ * A regex that only matches a single string can be searched for with Aho-Corasick, which costs almost nothing to
+ * build. A {@link LazyDFAPattern} costs little more, but builds states as it matches and is slower per match than a
+ * generated class. A generated class costs milliseconds, more for regexes with more states, and is the fastest per
+ * match. The regex's factorization tells whether it's a literal, and {@link DFASizeEstimator} estimates its states
+ * without building its DFAs. Regexes whose DFAs are too large to compile always use a lazy DFA. The costs are set in
+ * {@link CompilationPolicy}. Every candidate supports all of {@link Pattern} and {@link Matcher}, including byte
+ * input and line mode, so the hint only changes how fast the pattern is, never what it can do.
+ * <p>
+ * By default, patterns are assumed to be used often enough that the generated class is chosen, as it would be by
+ * {@link DFACompiler}.
+ */
+public final class EngineSelector {
+
+    private EngineSelector() {}
+
+    /**
+     * @param regex the regex
+     * @param options the compiler options, including the expected number of uses
+     * @return the engine with the lowest estimated total cost
+     * @throws PatternSyntaxException if the regex is malformed
+     */
+    public static Engine choose(String regex, CompilerOptions options) {
+        return choose(RegexParser.parse(regex, options.flags), options);
+    }
+
+    /**
+     * Compile a regex with the engine chosen by {@link #choose(String, CompilerOptions)}.
+     *
+     * @param regex the regex
+     * @param className the name of the generated class, if one is generated
+     * @param options the compiler options, including the expected number of uses
+     * @return the compiled pattern, whose engine {@link Engine#of(Pattern)} reports
+     */
+    public static Pattern compile(String regex, String className, CompilerOptions options) {
+        Objects.requireNonNull(regex, "regex cannot be null");
+        Node node = RegexParser.parse(regex, options.flags);
+        switch (choose(node, options)) {
+            case LITERAL:
+                return LiteralPattern.compile(literal(node));
+            case LAZY_DFA:
+                return LazyDFAPattern.compile(regex, options.flags);
+            default:
+                return DFACompiler.compile(regex, className, options);
+        }
+    }
+
+    static Engine choose(Node node, CompilerOptions options) {
+        long states = DFASizeEstimator.estimate(node);
+        double uses = options.expectedUses;
+
+        double lazyCost = LAZY_DFA_COMPILE_BASE_NANOS
+                + (double) Math.min(states, LazyDFAPattern.DEFAULT_MAX_CACHED_STATES) * LAZY_DFA_NANOS_PER_STATE
+                + uses * LAZY_DFA_NANOS_PER_USE;
+        Engine best = Engine.LAZY_DFA;
+        double bestCost = lazyCost;
+
+        double compiledCost = Double.NaN;
+        if (states <= DFACompiler.maxStates(node, options)) {
+            compiledCost = CLASS_COMPILE_BASE_NANOS + (double) states * CLASS_COMPILE_NANOS_PER_STATE
+                    + uses * COMPILED_DFA_NANOS_PER_USE;
+            if (compiledCost <= bestCost) {
+                best = Engine.COMPILED_DFA;
+                bestCost = compiledCost;
+            }
+        }
+
+        double literalCost = Double.NaN;
+        if (literal(node) != null) {
+            literalCost = LITERAL_COMPILE_BASE_NANOS + uses * LITERAL_NANOS_PER_USE;
+            if (literalCost < bestCost) {
+                best = Engine.LITERAL;
+            }
+        }
+
+        if (options.debugOptions.isDebug()) {
+            System.out.println("Engine costs for " + states + " estimated states and " + options.expectedUses +
+                    " uses: lazy=" + lazyCost + ", compiled=" + compiledCost + ", literal=" + literalCost +
+                    ", chose " + best);
+        }
+        return best;
+    }
+
+    /**
+     * @return the only string the regex matches, or null if it matches more than one, or only the empty string
+     */
+    static String literal(Node node) {
+        var factorization = node.bestFactors();
+        if (!factorization.isComplete() || factorization.getAll().size() != 1) {
+            return null;
+        }
+        String literal = factorization.getAll().iterator().next();
+        return literal.isEmpty() ? null : literal;
+    }
+}
@@ -0,0 +1,163 @@
+package com.justinblank.strings;
+
+import com.justinblank.classcompiler.Block;
+import com.justinblank.classcompiler.CompilerUtil;
+import com.justinblank.classcompiler.lang.ArrayType;
+import com.justinblank.classcompiler.lang.Builtin;
+import com.justinblank.classcompiler.lang.Expression;
+import com.justinblank.classcompiler.lang.ReferenceType;
+import com.justinblank.classcompiler.lang.Type;
+
+import java.nio.ByteBuffer;
+
+import static com.justinblank.classcompiler.lang.BinaryOperator.plus;
+import static com.justinblank.classcompiler.lang.CodeElement.*;
+
+/**
+ * The kind of haystack a generated matcher reads from. Each input type gets its own generated class, so that the
+ * reads in the matching loops are always against a single, statically known type.
+ * <p>
+ * Input types that read a slice of some larger container between an offset and a length are passed the offset and
+ * length in the constructor, and read through static methods on a utility class with the same signatures as
+ * {@link CharArrayUtil}. All indexes seen by the caller are relative to the offset.
+ */
+enum InputType {
+
+    STRING(ReferenceType.of(String.class), CompilerUtil.STRING_DESCRIPTOR, "", null, false) {
+        @Override
+        Expression charAt(Expression haystack, Expression index) {
+            return call("charAt", Builtin.C, haystack, index);
+        }
+
+        @Override
+        Expression indexOf(Expression haystack, Expression needle, Expression from) {
+            return call("indexOf", Builtin.I, haystack, needle, from);
+        }
+
+        @Override
+        Expression startsWith(Expression haystack, Expression prefix) {
+            return call("startsWith", Builtin.BOOL, haystack, prefix);
+        }
+
+        @Override
+        void pushLength(Block block) {
+            block.call("length", "java/lang/String", "()I");
+        }
+    },
+    CHAR_SEQUENCE(ReferenceType.of(CharSequence.class), "Ljava/lang/CharSequence;", "CharSequence", null, false) {
+        @Override
+        Expression charAt(Expression haystack, Expression index) {
+            return callInterface("charAt", Builtin.C, haystack, index);
+        }
+
+        @Override
+        Expression indexOf(Expression haystack, Expression needle, Expression from) {
+            return callStatic(CharSequenceUtil.class, "indexOf", Builtin.I, haystack, needle, from);
+        }
+
+        @Override
+        Expression startsWith(Expression haystack, Expression prefix) {
+            return callStatic(CharSequenceUtil.class, "startsWith", Builtin.BOOL, haystack, prefix);
+        }
+
+        @Override
+        void pushLength(Block block) {
+            block.callInterface("length", "java/lang/CharSequence", "()I");
+        }
+    },
+    /**
+     * A slice of a char[]. Reads go through {@link CharArrayUtil#charAt(char[], int)} because mako doesn't emit
+     * CALOAD for char[] reads; the JIT inlines it.
+     */
+    CHAR_ARRAY(ArrayType.of(Builtin.C), "[C", "CharArray", CharArrayUtil.class, false),
+    /**
+     * A slice of a byte[] holding ISO-8859-1 text. Each byte decodes to the char with the same value, so this uses the
+     * same DFAs as char input.
+     */
+    LATIN1_BYTES(ArrayType.of(Builtin.OCTET), "[B", "Latin1Bytes", ByteArrayUtil.class, false),
+    /**
+     * A slice of a byte[] holding UTF-8 text. The DFAs for this input type are built over bytes rather than chars (see
+     * {@link Utf8Encoding}), so all indexes are byte offsets.
+     */
+    UTF8_BYTES(ArrayType.of(Builtin.OCTET), "[B", "Utf8Bytes", ByteArrayUtil.class, true),
+    /**
+     * The bytes of a ByteBuffer between its position and limit, holding ISO-8859-1 text, read with absolute gets.
+     */
+    LATIN1_BUFFER(ReferenceType.of(ByteBuffer.class), "Ljava/nio/ByteBuffer;", "Latin1Buffer", ByteBufferUtil.class, false),
+    /**
+     * The bytes of a ByteBuffer between its position and limit, holding UTF-8 text, read with absolute gets.
+     */
+    UTF8_BUFFER(ReferenceType.of(ByteBuffer.class), "Ljava/nio/ByteBuffer;", "Utf8Buffer", ByteBufferUtil.class, true);
+
+    private final Type type;
+    private final String descriptor;
+    private final String classNameSuffix;
+    private final Class<?> sliceUtil;
+    private final boolean utf8;
+
+    /**
+     * @param sliceUtil the class providing charAt, indexOf and startsWith for input types that read a slice, or null
+     * @param utf8 whether the DFAs must be built over UTF-8 bytes
+     */
+    InputType(Type type, String descriptor, String classNameSuffix, Class<?> sliceUtil, boolean utf8) {
+        this.type = type;
+        this.descriptor = descriptor;
+        this.classNameSuffix = classNameSuffix;
+        this.sliceUtil = sliceUtil;
+        this.utf8 = utf8;
+    }
+
+    Type type() {
+        return type;
+    }
+
+    String descriptor() {
+        return descriptor;
+    }
+
+    /**
+     * @param className the name of the class generated for String input
+     * @return the name of the class generated for this input type
+     */
+    String className(String className) {
+        return className + classNameSuffix;
+    }
+
+    /**
+     * @return whether the haystack is a slice starting at an offset, which must be added to every index
+     */
+    boolean hasOffset() {
+        return sliceUtil != null;
+    }
+
+    /**
+     * @return whether the DFAs for this input type must be built over UTF-8 bytes rather than chars
+     */
+    boolean isUtf8() {
+        return utf8;
+    }
+
+    Expression charAt(Expression haystack, Expression index) {
+        return callStatic(sliceUtil, "charAt", Builtin.C, haystack, plus(read(MatchingVars.OFFSET), index));
+    }
+
+    /**
+     * @return an expression finding the first index of the needle in the haystack at or after from, or -1
+     */
+    Expression indexOf(Expression haystack, Expression needle, Expression from) {
+        return callStatic(sliceUtil, "indexOf", Builtin.I, haystack, read(MatchingVars.OFFSET),
+                get(DFAClassBuilder.LENGTH_FIELD, Builtin.I, thisRef()), needle, from);
+    }
+
+    Expression startsWith(Expression haystack, Expression prefix) {
+        return callStatic(sliceUtil, "startsWith", Builtin.BOOL, haystack, read(MatchingVars.OFFSET),
+                get(DFAClassBuilder.LENGTH_FIELD, Builtin.I, thisRef()), prefix);
+    }
+
+    /**
+     * Emit a call that consumes the haystack on top of the stack and pushes its length.
+     */
+    void pushLength(Block block) {
+        throw new UnsupportedOperationException("The length of a slice is passed to the constructor");
+    }
+}
@@ -0,0 +1,190 @@
+package com.justinblank.strings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.justinblank.strings.RegexInstr.Opcode.CHAR_RANGE;
+
+/**
+ * A DFA that is built from an NFA as the input reaches its states, rather than all at once. States are computed by the
+ * same subset construction as {@link NFAToDFACompiler}, so a lazy DFA accepts the same strings as the eagerly built DFA
+ * for the same mode, but only the states that some input actually visits are ever built. This keeps regexes whose DFAs
+ * are exponentially large, such as (a|b)*a(a|b){20}, usable.
+ * <p>
+ * States live in a cache that's shared by every thread using the DFA. Lookups and insertions go through a
+ * {@link ConcurrentHashMap}, and each state's transitions are stored in an array that's filled in as they're computed,
+ * without locking: two threads may race to compute the same transition, but they'll compute equal states. The cache
+ * holds at most a fixed number of states. When it's full, it's replaced by an empty cache: searches in progress keep
+ * the states they hold, and the states they reach next are added to the new cache.
+ * <p>
+ * Chars are mapped to classes of chars that no instruction of the NFA distinguishes, so each state has one
+ * transition per class.
+ */
+class LazyDFA {
+
+    private final NFA nfa;
+    private final NFAToDFACompiler compiler;
+    private final ConversionMode mode;
+    private final int maxStates;
+    private final CharClasses charClasses;
+    private final int classCount;
+    private final AtomicReference<Cache> cache = new AtomicReference<>();
+    /**
+     * The number of times the cache has been cleared, for tests and diagnostics.
+     */
+    private final AtomicInteger clears = new AtomicInteger();
+
+    /**
+     * The state reached once no match is possible. It has no NFA states, and its transitions all lead to itself.
+     */
+    final State dead;
+
+    LazyDFA(NFA nfa, ConversionMode mode, int maxStates) {
+        Objects.requireNonNull(nfa, "nfa cannot be null");
+        if (maxStates < 1) {
+            throw new IllegalArgumentException("maxStates must be positive, was " + maxStates);
+        }
+        this.nfa = nfa;
+        this.compiler = new NFAToDFACompiler(nfa);
+        this.mode = mode;
+        this.maxStates = maxStates;
+
+        var boundaries = new ArrayList<Integer>();
+        for (RegexInstr instr : nfa.regexInstrs) {
+            if (instr.opcode == CHAR_RANGE) {
+                boundaries.add((int) instr.start);
+                boundaries.add(instr.end + 1);
+            }
+        }
+        this.charClasses = CharClasses.of(boundaries);
+        this.classCount = charClasses.count();
+
+        this.dead = new State(new StateSet(), null, false, classCount);
+        Arrays.fill(dead.transitions, dead);
+        this.cache.set(new Cache(compiler.initialStates()));
+    }
+
+    /**
+     * @return the initial state of the DFA
+     */
+    State root() {
+        return cache.get().root;
+    }
+
+    /**
+     * @return the state reached from state on c, which is {@link #dead} if no match is possible
+     */
+    State next(State state, char c) {
+        int charClass = charClasses.classOf(c);
+        State next = state.transitions[charClass];
+        if (next == null) {
+            next = computeNext(state, c);
+            state.transitions[charClass] = next;
+        }
+        return next;
+    }
+
+    int clears() {
+        return clears.get();
+    }
+
+    private State computeNext(State state, char c) {
+        if (state.closure == null) {
+            return dead;
+        }
+        StateSet states = compiler.step(state.closure, c, mode);
+        if (states.getStates().isEmpty()) {
+            return dead;
+        }
+        return lookup(states);
+    }
+
+    private State lookup(StateSet states) {
+        var key = new Key(states);
+        while (true) {
+            Cache current = cache.get();
+            State state = current.states.get(key);
+            if (state != null) {
+                return state;
+            }
+            if (current.states.size() < maxStates) {
+                return current.states.computeIfAbsent(key, k -> newState(states));
+            }
+            // Clear and restart: the new cache only holds the initial state, and this state will be added to it
+            if (cache.compareAndSet(current, new Cache(compiler.initialStates()))) {
+                clears.incrementAndGet();
+            }
+        }
+    }
+
+    private State newState(StateSet states) {
+        boolean accepting = nfa.hasAcceptingState(states.getStates());
+        return new State(states, compiler.closureForTransitions(states, mode), accepting, classCount);
+    }
+
+    private class Cache {
+        final ConcurrentHashMap<Key, State> states = new ConcurrentHashMap<>();
+        final State root;
+
+        Cache(StateSet initialStates) {
+            this.root = newState(initialStates);
+            states.put(new Key(initialStates), root);
+        }
+    }
+
+    static class State {
+        final boolean accepting;
+        /**
+         * The NFA states to compute transitions from, or null if this state has no transitions.
+         */
+        final StateSet closure;
+        /**
+         * The states reached on each char class, or null where they haven't been computed yet.
+         */
+        final State[] transitions;
+        private final StateSet states;
+
+        State(StateSet states, StateSet closure, boolean accepting, int classCount) {
+            this.states = states;
+            this.closure = closure;
+            this.accepting = accepting;
+            this.transitions = new State[classCount];
+        }
+
+        @Override
+        public String toString() {
+            return "State{states=" + states + ", accepting=" + accepting + '}';
+        }
+    }
+
+    /**
+     * Identifies a state as {@link NFAToDFACompiler} does: by its NFA states, and whether it has seen an accepting state,
+     * unless it has only one NFA state.
+     */
+    private static class Key {
+        private final StateSet states;
+        private final boolean seenAccepting;
+
+        Key(StateSet states) {
+            this.states = states;
+            this.seenAccepting = states.getStates().size() > 1 && states.seenAccepting;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return seenAccepting == key.seenAccepting && states.equals(key.states);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * states.hashCode() + (seenAccepting ? 1 : 0);
+        }
+    }
+}
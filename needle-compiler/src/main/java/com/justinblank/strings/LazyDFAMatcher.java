@@ -0,0 +1,178 @@
+package com.justinblank.strings;
+
+import com.justinblank.strings.Search.SearchMethodUtil;
+
+/**
+ * A matcher for a {@link LazyDFAPattern}. Matches are found the same way as by generated matchers: the search DFA finds
+ * the end of the leftmost match, then the reversed DFA scans back from the end to find its start. Lines are found as by
+ * generated matchers too: each line is run through the containedIn DFA on its own.
+ */
+class LazyDFAMatcher implements Matcher {
+
+    private final LazyDFAPattern pattern;
+    private final CharSequence s;
+    private int nextStart;
+    private int start = -1;
+    private int end = -1;
+    private int nextLine;
+    private int lineNumber;
+    private int lineStart;
+    private int lineEnd;
+
+    LazyDFAMatcher(LazyDFAPattern pattern, CharSequence s) {
+        this.pattern = pattern;
+        this.s = s;
+    }
+
+    @Override
+    public boolean matches() {
+        LazyDFA dfa = pattern.dfa;
+        LazyDFA.State state = dfa.root();
+        for (int i = 0; i < s.length(); i++) {
+            state = dfa.next(state, s.charAt(i));
+            if (state == dfa.dead) {
+                return false;
+            }
+        }
+        return state.accepting;
+    }
+
+    @Override
+    public boolean containedIn() {
+        return containedIn(0, s.length());
+    }
+
+    private boolean containedIn(int from, int to) {
+        LazyDFA dfa = pattern.containedIn;
+        LazyDFA.State state = dfa.root();
+        if (state.accepting) {
+            return true;
+        }
+        for (int i = from; i < to; i++) {
+            state = dfa.next(state, s.charAt(i));
+            if (state.accepting) {
+                return true;
+            }
+            if (state == dfa.dead) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean find() {
+        if (nextStart > s.length()) {
+            return false;
+        }
+        return find(nextStart, s.length());
+    }
+
+    @Override
+    public boolean find(int from, int to) {
+        SearchMethodUtil.checkIndices(s, from, to);
+        int matchEnd = findEnd(from, to);
+        if (matchEnd < 0) {
+            start = -1;
+            end = -1;
+            nextStart = s.length() + 1;
+            return false;
+        }
+        start = findStart(from, matchEnd);
+        end = matchEnd;
+        nextStart = start == end ? end + 1 : end;
+        return true;
+    }
+
+    private int findEnd(int from, int to) {
+        LazyDFA search = pattern.search;
+        LazyDFA.State state = search.root();
+        int lastMatch = state.accepting ? from : -1;
+        for (int i = from; i < to; i++) {
+            LazyDFA.State next = search.next(state, s.charAt(i));
+            if (next == search.dead) {
+                if (lastMatch >= 0) {
+                    return lastMatch;
+                }
+                // Mirrors the generated index methods, which restart from the initial state
+                state = search.root();
+                continue;
+            }
+            state = next;
+            if (state.accepting) {
+                lastMatch = i + 1;
+            }
+        }
+        return lastMatch;
+    }
+
+    private int findStart(int from, int matchEnd) {
+        LazyDFA reversed = pattern.reversed;
+        LazyDFA.State state = reversed.root();
+        int matchStart = state.accepting ? matchEnd : -1;
+        for (int i = matchEnd - 1; i >= from; i--) {
+            state = reversed.next(state, s.charAt(i));
+            if (state == reversed.dead) {
+                break;
+            }
+            if (state.accepting) {
+                matchStart = i;
+            }
+        }
+        if (matchStart < 0) {
+            throw new IllegalStateException("Found the end of a match at " + matchEnd + ", but could not find its start");
+        }
+        return matchStart;
+    }
+
+    @Override
+    public boolean findLine() {
+        int length = s.length();
+        while (nextLine < length) {
+            lineNumber++;
+            int from = nextLine;
+            int to = indexOfNewline(from);
+            nextLine = to + 1;
+            if (containedIn(from, to)) {
+                lineStart = from;
+                lineEnd = to;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int indexOfNewline(int from) {
+        for (int i = from; i < s.length(); i++) {
+            if (s.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        return s.length();
+    }
+
+    @Override
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public int lineStart() {
+        return lineStart;
+    }
+
+    @Override
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    @Override
+    public int start() {
+        return start;
+    }
+
+    @Override
+    public int end() {
+        return end;
+    }
+}
@@ -0,0 +1,136 @@
+package com.justinblank.strings;
+
+import com.justinblank.strings.RegexAST.Node;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A compiled regex that's matched by {@link LazyDFA}s, which are built as the input reaches their states, rather than
+ * by generating a class. Compiling never determinizes the regex, so it's cheap even for regexes whose DFAs are far
+ * larger than {@link DFACompiler} allows, and matching runs at DFA speed once the states the input needs are cached.
+ * <p>
+ * Like generated patterns, a LazyDFAPattern matches UTF-8 and Latin-1 bytes in place, reporting byte offsets. UTF-8 is
+ * matched with a second set of lazy DFAs, built over the regex's UTF-8 encoding the first time it's needed.
+ * <p>
+ * A LazyDFAPattern may be shared between threads, which also share its cached states. The matchers it creates are not
+ * thread safe.
+ */
+public class LazyDFAPattern implements Pattern {
+
+    /**
+     * The default bound on the number of states cached for each of the pattern's DFAs.
+     */
+    public static final int DEFAULT_MAX_CACHED_STATES = 10_000;
+
+    private final String regex;
+    private final Node node;
+    private final boolean leftmostLongest;
+    private final int maxCachedStates;
+    final LazyDFA dfa;
+    final LazyDFA containedIn;
+    final LazyDFA search;
+    final LazyDFA reversed;
+    /**
+     * The pattern matching the regex's UTF-8 encoding, or null until it's first needed.
+     */
+    private volatile LazyDFAPattern utf8;
+
+    private LazyDFAPattern(String regex, Node node, boolean leftmostLongest, int maxCachedStates) {
+        this.regex = regex;
+        this.node = node;
+        this.leftmostLongest = leftmostLongest;
+        this.maxCachedStates = maxCachedStates;
+        NFA forwardNFA = new NFA(RegexInstrBuilder.createNFA(node, leftmostLongest));
+        NFA reversedNFA = new NFA(RegexInstrBuilder.createNFA(node.reversed(), leftmostLongest));
+        this.dfa = new LazyDFA(forwardNFA, ConversionMode.BASIC, maxCachedStates);
+        this.containedIn = new LazyDFA(forwardNFA, ConversionMode.CONTAINED_IN, maxCachedStates);
+        this.search = new LazyDFA(forwardNFA, ConversionMode.DFA_SEARCH, maxCachedStates);
+        this.reversed = new LazyDFA(reversedNFA, ConversionMode.BASIC, maxCachedStates);
+    }
+
+    public static LazyDFAPattern compile(String regex) {
+        return compile(regex, 0);
+    }
+
+    public static LazyDFAPattern compile(String regex, int flags) {
+        return compile(regex, flags, DEFAULT_MAX_CACHED_STATES);
+    }
+
+    /**
+     * @param regex the regex
+     * @param flags the flags, as in {@link Pattern}
+     * @param maxCachedStates the maximum number of states to cache for each DFA, beyond which the cache is cleared
+     * @return the compiled pattern
+     */
+    public static LazyDFAPattern compile(String regex, int flags, int maxCachedStates) {
+        Objects.requireNonNull(regex, "regex cannot be null");
+        if (maxCachedStates < 1) {
+            throw new IllegalArgumentException("maxCachedStates must be positive, was " + maxCachedStates);
+        }
+        if ((flags & ~Pattern.ALL_FLAGS) != 0) {
+            throw new IllegalArgumentException("Unrecognized flags=" + flags);
+        }
+        Node node = RegexParser.parse(regex, flags);
+        boolean leftmostLongest = (flags & Pattern.LEFTMOST_LONGEST) == Pattern.LEFTMOST_LONGEST;
+        return new LazyDFAPattern(regex, node, leftmostLongest, maxCachedStates);
+    }
+
+    private LazyDFAPattern utf8() {
+        var utf8 = this.utf8;
+        if (utf8 == null) {
+            synchronized (this) {
+                utf8 = this.utf8;
+                if (utf8 == null) {
+                    utf8 = new LazyDFAPattern(regex, Utf8Encoding.encode(node), leftmostLongest, maxCachedStates);
+                    this.utf8 = utf8;
+                }
+            }
+        }
+        return utf8;
+    }
+
+    @Override
+    public Matcher matcher(String s) {
+        Objects.requireNonNull(s, "s cannot be null");
+        return new LazyDFAMatcher(this, s);
+    }
+
+    @Override
+    public Matcher matcher(CharSequence s) {
+        Objects.requireNonNull(s, "s cannot be null");
+        return new LazyDFAMatcher(this, s);
+    }
+
+    @Override
+    public Matcher matcher(char[] data, int offset, int length) {
+        return new LazyDFAMatcher(this, CharBuffer.wrap(data, offset, length));
+    }
+
+    @Override
+    public Matcher matcher(byte[] data, int offset, int length, Charset charset) {
+        return byteMatcher(new ByteChars(data, offset, length), charset);
+    }
+
+    @Override
+    public Matcher matcher(ByteBuffer buffer, Charset charset) {
+        return byteMatcher(new ByteChars(buffer), charset);
+    }
+
+    private Matcher byteMatcher(ByteChars bytes, Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return new LazyDFAMatcher(utf8(), bytes);
+        }
+        if (StandardCharsets.ISO_8859_1.equals(charset) || StandardCharsets.US_ASCII.equals(charset)) {
+            return new LazyDFAMatcher(this, bytes);
+        }
+        throw new UnsupportedOperationException("Matching against bytes encoded with " + charset + " is not supported");
+    }
+
+    public String regex() {
+        return regex;
+    }
+}
@@ -0,0 +1,84 @@
+package com.justinblank.strings;
+
+import com.justinblank.classcompiler.CompilerUtil;
+import com.justinblank.classcompiler.GenericVars;
+import com.justinblank.classcompiler.lang.Builtin;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static com.justinblank.classcompiler.lang.BinaryOperator.*;
+import static com.justinblank.classcompiler.lang.CodeElement.*;
+
+/**
+ * Builds a class implementing {@link Lexer} from a DFA created with {@link ConversionMode#LEXER}. The generated
+ * nextToken method runs the DFA from the given index until it reaches a dead state or the end of the string,
+ * remembering the last accepting state it passed through, which gives the longest token.
+ * <p>
+ * Besides the transition tables, for each state, the class stores the token it accepts, or -1.
+ */
+class LexerClassBuilder extends TableClassBuilder {
+
+    static final String TOKEN_TYPES_CONSTANT = "TOKEN_TYPES";
+
+    private static final String STRING = "s";
+    private static final String START = "start";
+    private static final String LENGTH = "length";
+    private static final String INDEX = "index";
+    private static final String STATE = "state";
+    private static final String ACCEPTED = "accepted";
+    private static final String TOKEN_TYPE = "tokenType";
+    private static final String TOKEN_END = "tokenEnd";
+
+    private final DFA dfa;
+    private final int tokenTypes;
+
+    LexerClassBuilder(String className, DFA dfa, int tokenTypes) {
+        super(className, Lexer.class, dfa);
+        this.dfa = dfa;
+        this.tokenTypes = tokenTypes;
+    }
+
+    void initMethods() {
+        addTables();
+        addEmptyConstructor();
+        addTokenTypesMethod();
+        addNextTokenMethod();
+    }
+
+    private void addTables() {
+        addTransitionTables();
+        int[] accepting = new int[table.statesCount()];
+        for (DFA state : dfa.allStates()) {
+            BitSet tokens = state.getAcceptedPatterns();
+            accepting[state.getStateNumber()] = tokens == null ? -1 : tokens.nextSetBit(0);
+        }
+        addIntArray(TOKEN_TYPES_CONSTANT, accepting);
+    }
+
+    private void addTokenTypesMethod() {
+        var method = mkMethod("tokenTypes", List.of(), "I", new GenericVars());
+        method.returnValue(tokenTypes);
+    }
+
+    private void addNextTokenMethod() {
+        var vars = new GenericVars(STRING, START, LENGTH, INDEX, STATE, ACCEPTED, TOKEN_TYPE, TOKEN_END);
+        var method = mkMethod("nextToken", List.of(CompilerUtil.STRING_DESCRIPTOR, "I"), "J", vars);
+        method.set(LENGTH, call("length", Builtin.I, read(STRING)));
+        method.set(STATE, 0);
+        method.set(INDEX, read(START));
+        // Tokens are never empty, so the initial state never accepts
+        method.set(TOKEN_TYPE, -1);
+        method.set(TOKEN_END, -1);
+        method.loop(lt(read(INDEX), read(LENGTH)), List.of(
+                set(STATE, nextState(read(STATE), call("charAt", Builtin.C, read(STRING), read(INDEX)))),
+                cond(eq(read(STATE), DFATable.DEAD_STATE)).withBody(escape()),
+                set(INDEX, plus(read(INDEX), 1)),
+                set(ACCEPTED, staticArray(TOKEN_TYPES_CONSTANT, read(STATE))),
+                cond(gte(read(ACCEPTED), 0)).withBody(List.of(
+                        set(TOKEN_TYPE, read(ACCEPTED)),
+                        set(TOKEN_END, read(INDEX))))));
+        method.cond(lt(read(TOKEN_TYPE), 0)).withBody(returnValue(Lexer.NO_TOKEN));
+        method.returnValue(callStatic(RegexSetUtil.class, "token", Builtin.L, read(TOKEN_TYPE), read(TOKEN_END)));
+    }
+}
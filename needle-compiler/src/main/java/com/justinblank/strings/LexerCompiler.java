@@ -0,0 +1,63 @@
+package com.justinblank.strings;
+
+import com.justinblank.classcompiler.ClassCompiler;
+import com.justinblank.strings.RegexAST.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compiles an ordered list of token regexes into a single {@link Lexer} class. The regexes' NFAs are combined as for a
+ * {@link RegexSetCompiler regex set}, but the DFA is anchored at the position where the token starts, and its accepting
+ * states record the first token they accept, so the generated class finds the longest token, and breaks ties by
+ * order, in one pass over the token's chars.
+ */
+public class LexerCompiler {
+
+    public static Lexer compile(List<String> tokens, String className) {
+        return compile(tokens, className, 0);
+    }
+
+    public static Lexer compile(List<String> tokens, String className, int flags) {
+        byte[] classBytes = compileToBytes(tokens, className, flags);
+        try {
+            Class<?> lexerClass = new PatternClassLoader().loadClass(className, classBytes);
+            return (Lexer) lexerClass.getDeclaredConstructor().newInstance();
+        } catch (Throwable t) {
+            throw new PatternClassCompilationException("Failed to compile lexer " + className, t);
+        }
+    }
+
+    public static byte[] compileToBytes(List<String> tokens, String className, int flags) {
+        Objects.requireNonNull(tokens, "tokens cannot be null");
+        Objects.requireNonNull(className, "name cannot be null");
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Cannot compile a lexer with no tokens");
+        }
+        if ((flags & ~Pattern.ALL_FLAGS) != 0) {
+            throw new IllegalArgumentException("Unrecognized flags=" + flags);
+        }
+        List<Node> nodes = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Objects.requireNonNull(token, "token cannot be null");
+            Node node = RegexParser.parse(token, flags);
+            if (node.minLength() == 0) {
+                throw new IllegalArgumentException("Token regex '" + token + "' matches the empty string");
+            }
+            nodes.add(node);
+        }
+        try {
+            NFA nfa = new NFA(RegexInstrBuilder.createSetNFA(nodes, false));
+            DFA dfa = NFAToDFACompiler.compile(nfa, ConversionMode.LEXER);
+            DFACompiler.checkForOverLongDFAs(List.of(dfa));
+
+            var builder = new LexerClassBuilder(className, dfa, tokens.size());
+            builder.initMethods();
+            return new ClassCompiler(builder).generateClassAsBytes();
+        }
+        catch (Exception e) {
+            throw new PatternClassCompilationException("Failed to create lexer class " + className, e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.justinblank.strings;
+
+import com.justinblank.strings.Search.SearchMethod;
+import com.justinblank.strings.Search.SearchMethodUtil;
+import com.justinblank.strings.Search.SearchMethods;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A pattern for a regex that matches only a single, non-empty string, which is searched for with Aho-Corasick rather
+ * than a DFA. Creating one takes microseconds, so {@link EngineSelector} uses it for literals that aren't matched
+ * often enough to be worth compiling.
+ * <p>
+ * Unlike the {@link SearchMethod}'s own matchers, the matchers it creates find successive matches and support line
+ * mode, like generated matchers do. UTF-8 bytes are matched by searching for the literal's UTF-8 encoding, which is
+ * self-synchronizing, so matches found in the bytes are always matches of the literal, and offsets are byte offsets.
+ */
+public class LiteralPattern implements Pattern {
+
+    private final String literal;
+    final SearchMethod searchMethod;
+    /**
+     * The pattern matching the literal's UTF-8 bytes, viewed as Latin-1 chars, or null until it's first needed.
+     */
+    private volatile LiteralPattern utf8;
+
+    private LiteralPattern(String literal, SearchMethod searchMethod) {
+        this.literal = literal;
+        this.searchMethod = searchMethod;
+    }
+
+    /**
+     * @param literal the string to match
+     * @return the pattern
+     */
+    public static LiteralPattern compile(String literal) {
+        Objects.requireNonNull(literal, "literal cannot be null");
+        if (literal.isEmpty()) {
+            throw new IllegalArgumentException("literal cannot be empty");
+        }
+        return new LiteralPattern(literal, SearchMethods.makeSearchMethod(List.of(literal)));
+    }
+
+    @Override
+    public Matcher matcher(String s) {
+        Objects.requireNonNull(s, "s cannot be null");
+        return new LiteralMatcher(this, s);
+    }
+
+    @Override
+    public Matcher matcher(byte[] data, int offset, int length, Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return utf8().matcher(new String(data, offset, length, StandardCharsets.ISO_8859_1));
+        }
+        return Pattern.super.matcher(data, offset, length, charset);
+    }
+
+    private LiteralPattern utf8() {
+        var utf8 = this.utf8;
+        if (utf8 == null) {
+            var encoded = new String(literal.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+            utf8 = encoded.equals(literal) ? this : compile(encoded);
+            this.utf8 = utf8;
+        }
+        return utf8;
+    }
+
+    public String literal() {
+        return literal;
+    }
+
+    static class LiteralMatcher implements Matcher {
+
+        private final LiteralPattern pattern;
+        private final String s;
+        private int nextStart;
+        private int start = -1;
+        private int end = -1;
+        private int nextLine;
+        private int lineNumber;
+        private int lineStart;
+        private int lineEnd;
+
+        LiteralMatcher(LiteralPattern pattern, String s) {
+            this.pattern = pattern;
+            this.s = s;
+        }
+
+        @Override
+        public boolean matches() {
+            return pattern.literal.equals(s);
+        }
+
+        @Override
+        public boolean containedIn() {
+            return pattern.searchMethod.containedIn(s);
+        }
+
+        @Override
+        public boolean find() {
+            if (nextStart >= s.length()) {
+                return false;
+            }
+            return find(nextStart, s.length());
+        }
+
+        @Override
+        public boolean find(int from, int to) {
+            SearchMethodUtil.checkIndices(s, from, to);
+            var result = pattern.searchMethod.find(s, from, to);
+            if (!result.matched) {
+                start = -1;
+                end = -1;
+                nextStart = s.length();
+                return false;
+            }
+            start = result.start;
+            end = result.end;
+            nextStart = end;
+            return true;
+        }
+
+        @Override
+        public boolean findLine() {
+            while (nextLine < s.length()) {
+                lineNumber++;
+                int from = nextLine;
+                int to = s.indexOf('\n', from);
+                if (to < 0) {
+                    to = s.length();
+                }
+                nextLine = to + 1;
+                if (pattern.searchMethod.find(s, from, to).matched) {
+                    lineStart = from;
+                    lineEnd = to;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int lineNumber() {
+            return lineNumber;
+        }
+
+        @Override
+        public int lineStart() {
+            return lineStart;
+        }
+
+        @Override
+        public int lineEnd() {
+            return lineEnd;
+        }
+
+        @Override
+        public int start() {
+            return start;
+        }
+
+        @Override
+        public int end() {
+            return end;
+        }
+    }
+}
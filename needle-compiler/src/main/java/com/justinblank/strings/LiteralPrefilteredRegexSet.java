@@ -0,0 +1,180 @@
+package com.justinblank.strings;
+
+import com.justinblank.strings.RegexAST.Node;
+import com.justinblank.strings.Search.SearchMethod;
+import com.justinblank.strings.Search.SearchMethods;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A regex set for rule sets too large to combine into a single DFA. Each regex is compiled to its own matcher, and
+ * tagged with a literal that any string it occurs in must contain: the longest of its shared prefix, shared suffix,
+ * and required factors, as computed by {@link Factorization}. The literals are searched for in a single Aho-Corasick
+ * pass, and only the matchers whose literal was found are run. Regexes without a usable literal are always run.
+ * <p>
+ * The search method only reports one literal per index, so when a literal is found, the literals that are its
+ * prefixes are found with it, and the literals it's a prefix of are checked individually.
+ */
+class LiteralPrefilteredRegexSet implements RegexSet {
+
+    private final Pattern[] patterns;
+    private final int[] alwaysRun;
+    /**
+     * For each regex, whether it matches exactly its literal, in which case finding the literal is enough.
+     */
+    private final boolean[] literalOnly;
+    private final SearchMethod literalSearch;
+    private final Map<String, Integer> literalIndexes;
+    private final String[] literals;
+    private final int[][] patternsByLiteral;
+    private final int[][] prefixesByLiteral;
+    private final int[][] extensionsByLiteral;
+
+    private LiteralPrefilteredRegexSet(Pattern[] patterns, String[] patternLiterals, boolean[] literalOnly) {
+        this.patterns = patterns;
+        this.literalOnly = literalOnly;
+        this.literalIndexes = new HashMap<>();
+        List<String> literals = new ArrayList<>();
+        List<List<Integer>> patternsByLiteral = new ArrayList<>();
+        List<Integer> alwaysRun = new ArrayList<>();
+        for (int i = 0; i < patterns.length; i++) {
+            String literal = patternLiterals[i];
+            if (literal == null) {
+                alwaysRun.add(i);
+                continue;
+            }
+            Integer index = literalIndexes.get(literal);
+            if (index == null) {
+                index = literals.size();
+                literalIndexes.put(literal, index);
+                literals.add(literal);
+                patternsByLiteral.add(new ArrayList<>());
+            }
+            patternsByLiteral.get(index).add(i);
+        }
+        this.alwaysRun = toArray(alwaysRun);
+        this.literals = literals.toArray(new String[0]);
+        this.patternsByLiteral = new int[literals.size()][];
+        for (int i = 0; i < literals.size(); i++) {
+            this.patternsByLiteral[i] = toArray(patternsByLiteral.get(i));
+        }
+
+        List<List<Integer>> prefixes = new ArrayList<>();
+        List<List<Integer>> extensions = new ArrayList<>();
+        for (int i = 0; i < literals.size(); i++) {
+            prefixes.add(new ArrayList<>());
+            extensions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < literals.size(); i++) {
+            String literal = literals.get(i);
+            for (int length = 1; length < literal.length(); length++) {
+                Integer prefix = literalIndexes.get(literal.substring(0, length));
+                if (prefix != null) {
+                    prefixes.get(i).add(prefix);
+                    extensions.get(prefix).add(i);
+                }
+            }
+        }
+        this.prefixesByLiteral = new int[literals.size()][];
+        this.extensionsByLiteral = new int[literals.size()][];
+        for (int i = 0; i < literals.size(); i++) {
+            this.prefixesByLiteral[i] = toArray(prefixes.get(i));
+            this.extensionsByLiteral[i] = toArray(extensions.get(i));
+        }
+        this.literalSearch = literals.isEmpty() ? null : SearchMethods.makeSearchMethod(literals);
+    }
+
+    static LiteralPrefilteredRegexSet compile(List<String> regexes, String className, int flags) {
+        var patterns = new Pattern[regexes.size()];
+        var patternLiterals = new String[regexes.size()];
+        var literalOnly = new boolean[regexes.size()];
+        for (int i = 0; i < regexes.size(); i++) {
+            String regex = regexes.get(i);
+            Node node = RegexParser.parse(regex, flags);
+            Factorization factorization = Factorization.buildFactorization(node);
+            patternLiterals[i] = requiredLiteral(factorization).orElse(null);
+            literalOnly[i] = patternLiterals[i] != null && Set.of(patternLiterals[i]).equals(factorization.getAll());
+            patterns[i] = DFACompiler.compile(regex, className + "_" + i, flags);
+        }
+        return new LiteralPrefilteredRegexSet(patterns, patternLiterals, literalOnly);
+    }
+
+    /**
+     * @param factorization the factorization of a regex
+     * @return the longest literal that every match of the regex contains, if there is one
+     */
+    static Optional<String> requiredLiteral(Factorization factorization) {
+        String best = factorization.getSharedPrefix().orElse("");
+        String suffix = factorization.getSharedSuffix().orElse("");
+        if (suffix.length() > best.length()) {
+            best = suffix;
+        }
+        for (String factor : factorization.getRequiredFactors()) {
+            if (factor.length() > best.length()) {
+                best = factor;
+            }
+        }
+        return best.isEmpty() ? Optional.empty() : Optional.of(best);
+    }
+
+    @Override
+    public int size() {
+        return patterns.length;
+    }
+
+    @Override
+    public long[] matchWords(String s) {
+        long[] words = new long[(patterns.length + 63) / 64];
+        for (int pattern : alwaysRun) {
+            if (patterns[pattern].matcher(s).containedIn()) {
+                mark(words, pattern);
+            }
+        }
+        if (literalSearch == null) {
+            return words;
+        }
+        boolean[] found = new boolean[literals.length];
+        int length = s.length();
+        int index = 0;
+        while (index < length) {
+            MatchResult result = literalSearch.find(s, index, length);
+            if (!result.matched) {
+                break;
+            }
+            int literal = literalIndexes.get(s.substring(result.start, result.end));
+            found[literal] = true;
+            for (int prefix : prefixesByLiteral[literal]) {
+                found[prefix] = true;
+            }
+            for (int extension : extensionsByLiteral[literal]) {
+                if (!found[extension] && s.startsWith(literals[extension], result.start)) {
+                    found[extension] = true;
+                }
+            }
+            index = result.start + 1;
+        }
+        for (int literal = 0; literal < literals.length; literal++) {
+            if (found[literal]) {
+                for (int pattern : patternsByLiteral[literal]) {
+                    if (literalOnly[pattern] || patterns[pattern].matcher(s).containedIn()) {
+                        mark(words, pattern);
+                    }
+                }
+            }
+        }
+        return words;
+    }
+
+    private static void mark(long[] words, int pattern) {
+        words[pattern >>> 6] |= 1L << pattern;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
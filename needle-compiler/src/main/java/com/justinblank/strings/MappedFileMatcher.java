@@ -0,0 +1,175 @@
+package com.justinblank.strings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Finds successive matches of a {@link MappedFilePattern} in a memory-mapped file. Segments of the file are mapped the
+ * first time they're read. Offsets are byte positions in the file.
+ * <p>
+ * Matches are found the same way as by generated matchers: the search DFA finds the end of the leftmost match, then
+ * the reversed DFA scans back from the end to find its start.
+ * <p>
+ * The file must not be modified while it's being searched.
+ */
+public class MappedFileMatcher implements Closeable {
+
+    private final DFATable search;
+    private final DFATable reversed;
+    private final FileChannel channel;
+    private final long size;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final MappedByteBuffer[] segments;
+
+    private long nextStart;
+    private boolean matched;
+    private long matchStart;
+    private long matchEnd;
+
+    MappedFileMatcher(MappedFilePattern pattern, Path path, int segmentSize) throws IOException {
+        if (Integer.bitCount(segmentSize) != 1) {
+            throw new IllegalArgumentException("Segment size must be a power of two, was " + segmentSize);
+        }
+        this.search = pattern.pattern.search;
+        this.reversed = pattern.pattern.reversed;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentSize);
+        this.segmentMask = segmentSize - 1;
+        this.segments = new MappedByteBuffer[(int) ((size + segmentMask) >>> segmentShift)];
+    }
+
+    /**
+     * Find the next match, starting from the end of the last match.
+     *
+     * @return true if a match was found
+     * @throws UncheckedIOException if mapping part of the file fails
+     */
+    public boolean find() {
+        matched = false;
+        if (nextStart > size) {
+            return false;
+        }
+        long end = findEnd(nextStart);
+        if (end == -1) {
+            nextStart = size + 1;
+            return false;
+        }
+        matched = true;
+        matchStart = findStart(nextStart, end);
+        matchEnd = end;
+        nextStart = matchStart == matchEnd ? matchEnd + 1 : matchEnd;
+        return true;
+    }
+
+    /**
+     * @return the byte offset in the file of the start of the last match
+     */
+    public long start() {
+        checkMatched();
+        return matchStart;
+    }
+
+    /**
+     * @return the byte offset in the file of the end of the last match
+     */
+    public long end() {
+        checkMatched();
+        return matchEnd;
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Closes the file. Mapped segments are released when they're garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void checkMatched() {
+        if (!matched) {
+            throw new IllegalStateException("No match available");
+        }
+    }
+
+    private long findEnd(long from) {
+        int state = 0;
+        long lastMatch = search.isAccepting(0) ? from : -1;
+        long position = from;
+        while (position < size) {
+            var segment = segment((int) (position >>> segmentShift));
+            int limit = segment.limit();
+            for (int i = (int) (position & segmentMask); i < limit; i++) {
+                int next = search.next(state, (char) (segment.get(i) & 0xFF));
+                if (next == DFATable.DEAD_STATE) {
+                    if (lastMatch >= 0) {
+                        return lastMatch;
+                    }
+                    // Mirrors the generated index methods, which restart from the initial state
+                    state = 0;
+                    continue;
+                }
+                state = next;
+                if (search.isAccepting(state)) {
+                    lastMatch = (position & ~segmentMask) + i + 1;
+                }
+            }
+            position = (position & ~segmentMask) + limit;
+        }
+        return lastMatch;
+    }
+
+    private long findStart(long from, long end) {
+        int state = 0;
+        long start = reversed.isAccepting(0) ? end : -1;
+        for (long i = end - 1; i >= from; i--) {
+            state = reversed.next(state, (char) (byteAt(i) & 0xFF));
+            if (state == DFATable.DEAD_STATE) {
+                break;
+            }
+            if (reversed.isAccepting(state)) {
+                start = i;
+            }
+        }
+        if (start < 0) {
+            throw new IllegalStateException("Found the end of a match at " + end + ", but could not find its start");
+        }
+        return start;
+    }
+
+    private byte byteAt(long position) {
+        return segment((int) (position >>> segmentShift)).get((int) (position & segmentMask));
+    }
+
+    private MappedByteBuffer segment(int index) {
+        var segment = segments[index];
+        if (segment == null) {
+            long start = (long) index << segmentShift;
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentMask + 1, size - start));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            segments[index] = segment;
+        }
+        return segment;
+    }
+}
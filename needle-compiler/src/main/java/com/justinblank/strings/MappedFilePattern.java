@@ -0,0 +1,56 @@
+package com.justinblank.strings;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A compiled regex for searching UTF-8 (or ASCII) files in place. Files are memory-mapped in segments, so they needn't
+ * fit on the heap and may be larger than 2GB, and match offsets are longs counting bytes from the start of the file.
+ * <p>
+ * Matching interprets the same byte oriented DFAs that generated matchers use for UTF-8 input, flattened into
+ * {@link DFATable}s, so searching a file doesn't generate a class or decode any text.
+ * <p>
+ * A MappedFilePattern is immutable and may be shared between threads. The {@link MappedFileMatcher}s it creates are not
+ * thread safe.
+ */
+public class MappedFilePattern {
+
+    /**
+     * The size of the regions a file is mapped in. Must be a power of two.
+     */
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    final StreamingPattern pattern;
+
+    private MappedFilePattern(StreamingPattern pattern) {
+        this.pattern = pattern;
+    }
+
+    public static MappedFilePattern compile(String regex) {
+        return compile(regex, 0);
+    }
+
+    public static MappedFilePattern compile(String regex, int flags) {
+        // The whole file is mapped, so the matcher can always scan back to the start of a match
+        return new MappedFilePattern(StreamingPattern.compile(regex, flags, Integer.MAX_VALUE, true));
+    }
+
+    /**
+     * Open and map a file for searching. The returned matcher must be closed.
+     *
+     * @param path the file to search
+     * @return a matcher
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public MappedFileMatcher matcher(Path path) throws IOException {
+        return new MappedFileMatcher(this, path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    MappedFileMatcher matcher(Path path, int segmentSize) throws IOException {
+        return new MappedFileMatcher(this, path, segmentSize);
+    }
+
+    public String regex() {
+        return pattern.regex();
+    }
+}
@@ -0,0 +1,20 @@
+package com.justinblank.strings;
+
+/**
+ * The groups of {@link Matcher} operations that {@link CompilerOptions#withOperations} can ask the compiler to build
+ * ahead of time. Each needs its own DFA, so patterns that only use some of them compile faster and to smaller classes.
+ */
+public enum MatcherOperation {
+    /**
+     * {@link Matcher#matches()}.
+     */
+    MATCHES,
+    /**
+     * {@link Matcher#containedIn()} and the line mode methods, such as {@link Matcher#findLine()}.
+     */
+    CONTAINED_IN,
+    /**
+     * {@link Matcher#find()}, {@link Matcher#find(int, int)}, {@link Matcher#start()} and {@link Matcher#end()}.
+     */
+    FIND
+}
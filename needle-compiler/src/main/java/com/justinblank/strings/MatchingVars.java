@@ -18,6 +18,11 @@ class MatchingVars implements Vars {
     static final String WAS_ACCEPTED = "wasAccepted";
     static final String SUFFIX_INDEX = "suffixIndex";
     static final String MAX_START = "maxStart";
+    static final String OFFSET = DFAClassBuilder.OFFSET_FIELD;
+    static final String LINE_START = DFAClassBuilder.LINE_START_FIELD;
+    static final String LINE_END = DFAClassBuilder.LINE_END_FIELD;
+    static final String LINE_NUMBER = DFAClassBuilder.LINE_NUMBER_FIELD;
+    static final String PREFIX_INDEX = "prefixIndex";
     int lengthVar = -1;
     int stringVar = -1;
     int charVar = -1;
@@ -28,6 +33,11 @@ class MatchingVars implements Vars {
     int byteClassVar = -1;
     int suffixIndexVar = -1;
     int maxStartVar = -1;
+    int offsetVar = -1;
+    int lineStartVar = -1;
+    int lineEndVar = -1;
+    int lineNumberVar = -1;
+    int prefixIndexVar = -1;
     int maxVar = 0;
 
     MatchingVars(int charVar, int counterVar, int stateVar, int lengthVar, int stringVar) {
@@ -65,6 +75,21 @@ class MatchingVars implements Vars {
         if (maxStartVar != -1) {
             variables.add(Pair.of(MAX_START, maxStartVar));
         }
+        if (offsetVar != -1) {
+            variables.add(Pair.of(OFFSET, offsetVar));
+        }
+        if (lineStartVar != -1) {
+            variables.add(Pair.of(LINE_START, lineStartVar));
+        }
+        if (lineEndVar != -1) {
+            variables.add(Pair.of(LINE_END, lineEndVar));
+        }
+        if (lineNumberVar != -1) {
+            variables.add(Pair.of(LINE_NUMBER, lineNumberVar));
+        }
+        if (prefixIndexVar != -1) {
+            variables.add(Pair.of(PREFIX_INDEX, prefixIndexVar));
+        }
         return variables;
     }
 
@@ -118,6 +143,23 @@ class MatchingVars implements Vars {
         return this;
     }
 
+    public MatchingVars setOffsetVar(int offsetVar) {
+        this.offsetVar = offsetVar;
+        return this;
+    }
+
+    public MatchingVars setLineVars(int lineStartVar, int lineEndVar, int lineNumberVar) {
+        this.lineStartVar = lineStartVar;
+        this.lineEndVar = lineEndVar;
+        this.lineNumberVar = lineNumberVar;
+        return this;
+    }
+
+    public MatchingVars setPrefixIndexVar(int prefixIndexVar) {
+        this.prefixIndexVar = prefixIndexVar;
+        return this;
+    }
+
     public int indexByName(String name) {
         switch (name) {
             case STATE:
@@ -140,6 +182,16 @@ class MatchingVars implements Vars {
                 return this.suffixIndexVar;
             case MAX_START:
                 return this.maxStartVar;
+            case OFFSET:
+                return this.offsetVar;
+            case LINE_START:
+                return this.lineStartVar;
+            case LINE_END:
+                return this.lineEndVar;
+            case LINE_NUMBER:
+                return this.lineNumberVar;
+            case PREFIX_INDEX:
+                return this.prefixIndexVar;
             default:
                 throw new IllegalArgumentException("Illegal argument for variable lookup: " + name);
         }
@@ -171,6 +223,21 @@ class MatchingVars implements Vars {
         else if (count == this.suffixIndexVar) {
             return SUFFIX_INDEX;
         }
+        else if (count == this.offsetVar) {
+            return OFFSET;
+        }
+        else if (count == this.lineStartVar) {
+            return LINE_START;
+        }
+        else if (count == this.lineEndVar) {
+            return LINE_END;
+        }
+        else if (count == this.lineNumberVar) {
+            return LINE_NUMBER;
+        }
+        else if (count == this.prefixIndexVar) {
+            return PREFIX_INDEX;
+        }
         else {
             return null;
         }
@@ -49,6 +49,7 @@ class MinimizeDFA {
             else {
                 minimized = new DFA(root, original.isAccepting(), state++);
             }
+            minimized.setAcceptedPatterns(original.getAcceptedPatterns());
             newDFAMap.put(set, minimized);
         }
         return minimized;
@@ -115,8 +116,13 @@ class MinimizeDFA {
         Set<DFA> nonAccepting = new HashSet<>(dfa.allStates());
         nonAccepting.removeAll(accepting);
         List<DFAGroup> dfaGroups = new ArrayList<>();
-        if (!accepting.isEmpty()) {
-            dfaGroups.addAll(partitionByTransitionCountAndTransitionTotal(partition, accepting));
+        // States accepting different sets of patterns can never be merged
+        Map<BitSet, Set<DFA>> acceptingByPatterns = new HashMap<>();
+        for (DFA acceptingDFA : accepting) {
+            acceptingByPatterns.computeIfAbsent(acceptingDFA.getAcceptedPatterns(), (p) -> new HashSet<>()).add(acceptingDFA);
+        }
+        for (Set<DFA> acceptingGroup : acceptingByPatterns.values()) {
+            dfaGroups.addAll(partitionByTransitionCountAndTransitionTotal(partition, acceptingGroup));
         }
         if (!nonAccepting.isEmpty()) {
             dfaGroups.addAll(partitionByTransitionCountAndTransitionTotal(partition, nonAccepting));
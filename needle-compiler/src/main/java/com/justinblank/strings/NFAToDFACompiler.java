@@ -12,9 +12,21 @@ class NFAToDFACompiler {
     private int nextState = 1; // root will always be zero
     private DFA root;
     private final NFA nfa;
+    /**
+     * The maximum number of states built before minimization. Determinization stops as soon as it's reached, so a regex
+     * whose DFA is too large fails after a bounded amount of work, even when its size was underestimated, and can fall
+     * back to a lazy DFA. Minimization can shrink a DFA, so this can reject some DFAs that would have fit after
+     * minimizing, but those are already too large to compile quickly.
+     */
+    private final int maxUnminimizedStates;
 
     NFAToDFACompiler(NFA nfa) {
+        this(nfa, DFACompiler.DEFAULT_MAX_STATES);
+    }
+
+    NFAToDFACompiler(NFA nfa, int maxUnminimizedStates) {
         this.nfa = nfa;
+        this.maxUnminimizedStates = maxUnminimizedStates;
     }
 
     public static DFA compile(NFA nfa, ConversionMode mode) {
@@ -22,7 +34,14 @@ class NFAToDFACompiler {
     }
 
     protected static DFA compile(NFA nfa, ConversionMode mode, boolean debug) {
-        DFA dfa = new NFAToDFACompiler(nfa)._compile(mode);
+        return compile(nfa, mode, debug, DFACompiler.DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * @throws DFATooLargeException if the DFA has more than maxUnminimizedStates states before minimization
+     */
+    static DFA compile(NFA nfa, ConversionMode mode, boolean debug, int maxUnminimizedStates) {
+        DFA dfa = new NFAToDFACompiler(nfa, maxUnminimizedStates)._compile(mode);
         dfa.pruneDeadStates();
         if (debug) {
             System.out.println("Pre-minimization dfa");
@@ -32,11 +51,14 @@ class NFAToDFACompiler {
     }
 
     DFA _compile(ConversionMode mode) {
-        StateSet states = new StateSet();
-        states.add(0, 0, RegexInstrBuilder.STARTING_PRIORITY);
-        states = getEpsilonClosure(states);
-        root = DFA.root(nfa.hasAcceptingState(states.getStates()));
-        states.seenAccepting = root.isAccepting();
+        StateSet states = initialStates();
+        root = DFA.root(states.seenAccepting);
+        if (mode == ConversionMode.SET) {
+            root.setAcceptedPatterns(acceptedPatterns(states));
+        }
+        else if (mode == ConversionMode.LEXER) {
+            root.setAcceptedPatterns(acceptedToken(states));
+        }
         storeDFA(states, root);
         addNFAStatesToDFA(states, mode);
         return root;
@@ -59,61 +81,28 @@ class NFAToDFACompiler {
         while (!pending.isEmpty()) {
             states = pending.pop();
             DFA dfa = getDFA(states);
-            StateSet epsilonClosure = getEpsilonClosure(states);
-            boolean accepting = epsilonClosure.seenAccepting;
-            // No point in ever going past an accepting state for the contained in search
-            // Searches will be correct without this block, because the compiled DFA algorithm also checks for accepting
-            // states, but produced DFA will be larger than necessary
-            if (accepting && mode == ConversionMode.CONTAINED_IN) {
+            StateSet epsilonClosure = closureForTransitions(states, mode);
+            if (epsilonClosure == null) {
                 continue;
             }
-            if ((mode == ConversionMode.CONTAINED_IN || (!accepting && mode == ConversionMode.DFA_SEARCH))) {
-                epsilonClosure.add(0, 0, RegexInstrBuilder.STARTING_PRIORITY);
-                // TODO: for the sake of normalizing things, should this be:
-                // var initialStates = new StateSet();
-                // initialStates.add(0, 0);
-                // initialStates = getEpsilonClosure(initialStates);
-                // for (var state : initialStates) {
-                //     epsilonClosure.add(state, initialStates.getDistance(state);
-                // }
-            }
             List<CharRange> ranges = CharRange.coverAllChars(CharRange.minimalCovering(findCharRanges(epsilonClosure.getStates())));
             for (CharRange range : ranges) {
                 // any element of the range is equally good here, getStart()/getEnd() doesn't matter
-                StateSet postTransitionStates = getEpsilonClosure(transition(epsilonClosure, range.getStart()));
-                // We want to add the initial state to the state set if we're doing a search method (not match) to
-                // enable restarting when we reach an empty state
-                // but we want to avoid doing that when we've reached an accepting state
-                if (!postTransitionStates.seenAccepting) {
-                    postTransitionStates.seenAccepting = epsilonClosure.seenAccepting || nfa.hasAcceptingState(postTransitionStates.getStates());
-                }
-                // TODO: Pruning should be a no-op for ConversionMode.BASIC, but in fact, removing the mode check will
-                //  cause test failures
-                if (postTransitionStates.seenAccepting && (mode == ConversionMode.CONTAINED_IN || mode == ConversionMode.DFA_SEARCH)) {
-                    boolean removed;
-                    do {
-                        removed = false;
-                        for (var state : postTransitionStates.getStates()) {
-                            if (nfa.isAcceptingState(state)) {
-                                var distance = postTransitionStates.getDistance(state);
-                                var priority = postTransitionStates.getPriority(state);
-                                if (postTransitionStates.prune(state, distance, priority)) {
-                                    removed = true;
-                                    break; // avoid ConcurrentModificationException
-                                }
-                            }
-                        }
-                    } while (removed);
-                }
-                if (!postTransitionStates.seenAccepting && (mode == ConversionMode.CONTAINED_IN || mode == ConversionMode.DFA_SEARCH)) {
-                    postTransitionStates.add(0, 0, RegexInstrBuilder.STARTING_PRIORITY);
-                    // This doesn't change behavior, but it does make it easier to read the stateSets
-                    postTransitionStates = getEpsilonClosure(postTransitionStates);
-                }
+                StateSet postTransitionStates = step(epsilonClosure, range.getStart(), mode);
                 DFA targetDfa = getDFA(postTransitionStates);
                 if (targetDfa == null) {
+                    if (nextState >= maxUnminimizedStates) {
+                        throw new DFATooLargeException("Can't build DFAs with more than " + maxUnminimizedStates
+                                + " states before minimization");
+                    }
                     pending.add(postTransitionStates);
                     targetDfa = new DFA(root, nfa.hasAcceptingState(postTransitionStates.getStates()), nextState++);
+                    if (mode == ConversionMode.SET) {
+                        targetDfa.setAcceptedPatterns(acceptedPatterns(postTransitionStates));
+                    }
+                    else if (mode == ConversionMode.LEXER) {
+                        targetDfa.setAcceptedPatterns(acceptedToken(postTransitionStates));
+                    }
                     storeDFA(postTransitionStates, targetDfa);
                 }
                 dfa.addTransition(range, targetDfa);
@@ -121,6 +110,112 @@ class NFAToDFACompiler {
         }
     }
 
+    /**
+     * @return the states of the NFA before reading any chars, which correspond to the root of the DFA
+     */
+    StateSet initialStates() {
+        StateSet states = new StateSet();
+        states.add(0, 0, RegexInstrBuilder.STARTING_PRIORITY);
+        states = getEpsilonClosure(states);
+        states.seenAccepting = nfa.hasAcceptingState(states.getStates());
+        return states;
+    }
+
+    /**
+     * Prepare the states corresponding to a DFA state for computing its transitions.
+     *
+     * @param states the states corresponding to a DFA state
+     * @param mode the conversion mode
+     * @return the states to transition from, or null if the DFA state should have no transitions
+     */
+    StateSet closureForTransitions(StateSet states, ConversionMode mode) {
+        StateSet epsilonClosure = getEpsilonClosure(states);
+        boolean accepting = epsilonClosure.seenAccepting;
+        // No point in ever going past an accepting state for the contained in search
+        // Searches will be correct without this block, because the compiled DFA algorithm also checks for accepting
+        // states, but produced DFA will be larger than necessary
+        if (accepting && mode == ConversionMode.CONTAINED_IN) {
+            return null;
+        }
+        if ((mode == ConversionMode.CONTAINED_IN || mode == ConversionMode.SET || (!accepting && mode == ConversionMode.DFA_SEARCH))) {
+            epsilonClosure.add(0, 0, RegexInstrBuilder.STARTING_PRIORITY);
+            // TODO: for the sake of normalizing things, should this be:
+            // var initialStates = new StateSet();
+            // initialStates.add(0, 0);
+            // initialStates = getEpsilonClosure(initialStates);
+            // for (var state : initialStates) {
+            //     epsilonClosure.add(state, initialStates.getDistance(state);
+            // }
+        }
+        return epsilonClosure;
+    }
+
+    /**
+     * Compute the states corresponding to the DFA state reached on a char.
+     *
+     * @param epsilonClosure the states returned by {@link #closureForTransitions(StateSet, ConversionMode)}
+     * @param c the char
+     * @param mode the conversion mode
+     * @return the states reached, which are empty if the DFA state reached is dead
+     */
+    StateSet step(StateSet epsilonClosure, char c, ConversionMode mode) {
+        StateSet postTransitionStates = getEpsilonClosure(transition(epsilonClosure, c));
+        // We want to add the initial state to the state set if we're doing a search method (not match) to
+        // enable restarting when we reach an empty state
+        // but we want to avoid doing that when we've reached an accepting state
+        // In SET and LEXER modes, each state only accepts the patterns whose MATCH instructions it contains
+        if (!postTransitionStates.seenAccepting && mode != ConversionMode.SET && mode != ConversionMode.LEXER) {
+            postTransitionStates.seenAccepting = epsilonClosure.seenAccepting || nfa.hasAcceptingState(postTransitionStates.getStates());
+        }
+        // TODO: Pruning should be a no-op for ConversionMode.BASIC, but in fact, removing the mode check will
+        //  cause test failures
+        if (postTransitionStates.seenAccepting && (mode == ConversionMode.CONTAINED_IN || mode == ConversionMode.DFA_SEARCH)) {
+            boolean removed;
+            do {
+                removed = false;
+                for (var state : postTransitionStates.getStates()) {
+                    if (nfa.isAcceptingState(state)) {
+                        var distance = postTransitionStates.getDistance(state);
+                        var priority = postTransitionStates.getPriority(state);
+                        if (postTransitionStates.prune(state, distance, priority)) {
+                            removed = true;
+                            break; // avoid ConcurrentModificationException
+                        }
+                    }
+                }
+            } while (removed);
+        }
+        if ((!postTransitionStates.seenAccepting && (mode == ConversionMode.CONTAINED_IN || mode == ConversionMode.DFA_SEARCH)) || mode == ConversionMode.SET) {
+            postTransitionStates.add(0, 0, RegexInstrBuilder.STARTING_PRIORITY);
+            // This doesn't change behavior, but it does make it easier to read the stateSets
+            postTransitionStates = getEpsilonClosure(postTransitionStates);
+        }
+        return postTransitionStates;
+    }
+
+    private BitSet acceptedPatterns(StateSet states) {
+        BitSet patterns = new BitSet();
+        for (Integer state : states.getStates()) {
+            if (nfa.isAcceptingState(state)) {
+                patterns.set(nfa.regexInstrs[state].patternId);
+            }
+        }
+        return patterns.isEmpty() ? null : patterns;
+    }
+
+    /**
+     * When several tokens match the same text, the one listed first wins, so a lexer's state only needs to record that
+     * token. Recording the others would also keep states that accept the same token from being merged by minimization.
+     */
+    private BitSet acceptedToken(StateSet states) {
+        BitSet patterns = acceptedPatterns(states);
+        if (patterns != null) {
+            int token = patterns.nextSetBit(0);
+            patterns.clear(token + 1, patterns.length());
+        }
+        return patterns;
+    }
+
     private DFA getDFA(StateSet states) {
         var stateDFAPairs = stateSets.get(states);
         if (stateDFAPairs == null) {
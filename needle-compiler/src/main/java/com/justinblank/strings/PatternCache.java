@@ -0,0 +1,198 @@
+package com.justinblank.strings;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of compiled patterns, keyed by regex, flags and {@link CharacterDistribution}, which names the
+ * generated classes itself.
+ * <p>
+ * Lookups are lock free. A regex requested by several threads at once is only compiled once, by the first of them, and
+ * the others wait for it. When the cache is full, compiling a new regex evicts the least recently used one. Finding it
+ * takes a scan of the cache, which is cheap next to the compilation that caused it. Regexes that fail to compile aren't
+ * cached.
+ */
+public class PatternCache {
+
+    /**
+     * Each pattern has its own class loader, so every cached pattern can use the same class name, which also lets a
+     * {@link ClassFileCache} find classes stored by earlier runs.
+     */
+    private static final String CLASS_NAME = "CachedPattern";
+
+    private final int maximumSize;
+    private final CompilerOptions options;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maximumSize the maximum number of patterns to keep
+     */
+    public PatternCache(int maximumSize) {
+        this(maximumSize, CompilerOptions.defaultOptions());
+    }
+
+    /**
+     * @param maximumSize the maximum number of patterns to keep
+     * @param options the options to compile with, whose flags and distribution are replaced by those of each lookup
+     */
+    public PatternCache(int maximumSize, CompilerOptions options) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive, was " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.options = Objects.requireNonNull(options, "options cannot be null");
+    }
+
+    public Pattern get(String regex) {
+        return get(regex, 0);
+    }
+
+    public Pattern get(String regex, int flags) {
+        return get(regex, flags, CharacterDistribution.DEFAULT);
+    }
+
+    /**
+     * Returns the cached pattern for the regex, compiling it if it isn't cached.
+     *
+     * @param regex the regex
+     * @param flags the flags to compile the regex with
+     * @param distribution the distribution of characters the pattern will be matched against, compared by identity
+     * @return the compiled pattern
+     * @throws PatternException if the regex can't be compiled
+     */
+    public Pattern get(String regex, int flags, CharacterDistribution distribution) {
+        Objects.requireNonNull(regex, "regex cannot be null");
+        var key = new Key(regex, flags, distribution);
+        var entry = entries.get(key);
+        if (entry == null) {
+            var created = new Entry(() -> compile(key), clock.incrementAndGet());
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+                misses.incrementAndGet();
+                evictIfFull(key);
+                entry.task.run();
+            }
+            else {
+                hits.incrementAndGet();
+            }
+        }
+        else {
+            hits.incrementAndGet();
+        }
+        entry.lastAccess = clock.incrementAndGet();
+        try {
+            return entry.task.get();
+        }
+        catch (ExecutionException e) {
+            entries.remove(key, entry);
+            var cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new PatternClassCompilationException("Failed to compile pattern from regex '" + regex + "'", cause);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PatternClassCompilationException("Interrupted while compiling regex '" + regex + "'", e);
+        }
+    }
+
+    private Pattern compile(Key key) {
+        return DFACompiler.compile(key.regex, CLASS_NAME, options.copy(key.flags, key.distribution));
+    }
+
+    private void evictIfFull(Key added) {
+        while (entries.size() > maximumSize) {
+            Key oldest = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (var e : entries.entrySet()) {
+                if (!e.getKey().equals(added) && e.getValue().lastAccess < oldestAccess) {
+                    oldest = e.getKey();
+                    oldestAccess = e.getValue().lastAccess;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest) != null) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return the number of lookups that found the regex already cached or being compiled
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that compiled the regex
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of patterns evicted to keep the cache within its maximum size
+     */
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of patterns cached, including those being compiled
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static class Key {
+        final String regex;
+        final int flags;
+        final CharacterDistribution distribution;
+
+        Key(String regex, int flags, CharacterDistribution distribution) {
+            this.regex = regex;
+            this.flags = flags;
+            this.distribution = distribution;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return flags == key.flags && regex.equals(key.regex) && distribution == key.distribution;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * regex.hashCode() + flags) + System.identityHashCode(distribution);
+        }
+    }
+
+    private static class Entry {
+        final FutureTask<Pattern> task;
+        volatile long lastAccess;
+
+        Entry(Callable<Pattern> compilation, long lastAccess) {
+            this.task = new FutureTask<>(compilation);
+            this.lastAccess = lastAccess;
+        }
+    }
+}
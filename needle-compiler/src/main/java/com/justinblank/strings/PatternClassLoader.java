@@ -0,0 +1,51 @@
+package com.justinblank.strings;
+
+/**
+ * Defines the classes generated by the compilers.
+ * <p>
+ * Each compiled pattern, lexer or regex set gets its own loader, which defines its classes and is referenced only by
+ * them. Once the pattern is unreachable, its classes and their static tables can be unloaded, so services compiling
+ * patterns for as long as they run don't fill up metaspace. Since no two patterns share a loader, generated class
+ * names only need to be unique within a pattern, and threads compiling different patterns never contend for a
+ * loader's lock.
+ * <p>
+ * The loader's parent is the loader that loaded this library, so that generated classes link against the library's
+ * classes wherever it's deployed.
+ */
+final class PatternClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    /**
+     * The options the pattern was compiled with, or null for loaders that don't define a pattern's classes.
+     */
+    private final CompilerOptions options;
+
+    PatternClassLoader() {
+        this(null);
+    }
+
+    PatternClassLoader(CompilerOptions options) {
+        super(PatternClassLoader.class.getClassLoader());
+        this.options = options;
+    }
+
+    /**
+     * @return the options the classes this loader defines were compiled with, or null if they're unknown
+     */
+    CompilerOptions options() {
+        return options;
+    }
+
+    /**
+     * @param name the binary name of the class
+     * @param classBytes the classfile
+     * @return the defined class
+     * @throws LinkageError if this loader has already defined a class with the same name
+     */
+    Class<?> loadClass(String name, byte[] classBytes) {
+        return defineClass(name, classBytes, 0, classBytes.length);
+    }
+}
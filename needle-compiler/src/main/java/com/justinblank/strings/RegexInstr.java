@@ -17,6 +17,10 @@ class RegexInstr {
     final int jumpTarget;
     final int[] splitTargets;
     int priority = 0;
+    /**
+     * For a MATCH instruction in an NFA built from a set of regexes, the index of the regex it accepts.
+     */
+    int patternId = 0;
 
     private static final int[] EMPTY = new int[0];
 
@@ -57,6 +61,12 @@ class RegexInstr {
         return instr;
     }
 
+    static RegexInstr match(int priority, int patternId) {
+        var instr = match(priority);
+        instr.patternId = patternId;
+        return instr;
+    }
+
     private void updatePriority(int priority) {
         if (priority > this.priority) {
             this.priority = priority;
@@ -65,7 +75,7 @@ class RegexInstr {
 
     public String toString() {
         if (opcode.equals(Opcode.MATCH)) {
-            return "Match, priority=" + priority;
+            return "Match, priority=" + priority + (patternId != 0 ? ", patternId=" + patternId : "");
         }
         else if (opcode.equals(Opcode.JUMP)) {
             return "Jump: " + jumpTarget + ", priority=" + priority;
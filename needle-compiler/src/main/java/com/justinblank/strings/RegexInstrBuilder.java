@@ -25,6 +25,46 @@ class RegexInstrBuilder {
         return new RegexInstrBuilder(leftMostLongest).build(ast);
     }
 
+    /**
+     * Create an NFA that is the union of the NFAs for each regex, tagging each regex's MATCH instruction with the
+     * regex's index. Instruction 0 splits to the start of each regex's instructions.
+     *
+     * @param asts the regexes
+     * @param leftMostLongest whether to use leftmost-longest semantics
+     * @return the instructions of the NFA
+     */
+    public static RegexInstr[] createSetNFA(List<Node> asts, boolean leftMostLongest) {
+        List<RegexInstr> instructions = new ArrayList<>();
+        instructions.add(null);
+        int[] starts = new int[asts.size()];
+        for (int patternId = 0; patternId < asts.size(); patternId++) {
+            int base = instructions.size();
+            starts[patternId] = base;
+            for (RegexInstr instr : createNFA(asts.get(patternId), leftMostLongest)) {
+                instructions.add(relocate(instr, base, patternId));
+            }
+        }
+        instructions.set(0, RegexInstr.split(starts, STARTING_PRIORITY));
+        return instructions.toArray(new RegexInstr[0]);
+    }
+
+    private static RegexInstr relocate(RegexInstr instr, int base, int patternId) {
+        switch (instr.opcode) {
+            case JUMP:
+                return RegexInstr.jump(instr.jumpTarget + base, instr.priority);
+            case SPLIT:
+                int[] targets = new int[instr.splitTargets.length];
+                for (int i = 0; i < targets.length; i++) {
+                    targets[i] = instr.splitTargets[i] + base;
+                }
+                return RegexInstr.split(targets, instr.priority);
+            case MATCH:
+                return RegexInstr.match(instr.priority, patternId);
+            default:
+                return instr;
+        }
+    }
+
     protected RegexInstr[] build(Node ast) {
         List<RegexInstr> instructions = new ArrayList<>();
         createPartial(ast, instructions);
@@ -0,0 +1,110 @@
+package com.justinblank.strings;
+
+import com.justinblank.classcompiler.CompilerUtil;
+import com.justinblank.classcompiler.GenericVars;
+import com.justinblank.classcompiler.lang.ArrayType;
+import com.justinblank.classcompiler.lang.Builtin;
+import com.justinblank.classcompiler.lang.CodeElement;
+import com.justinblank.classcompiler.lang.NewArray;
+import com.justinblank.classcompiler.lang.ReferenceType;
+import com.justinblank.classcompiler.lang.Void;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static com.justinblank.classcompiler.lang.BinaryOperator.*;
+import static com.justinblank.classcompiler.lang.CodeElement.*;
+import static com.justinblank.classcompiler.lang.Literal.literal;
+
+/**
+ * Builds a class implementing {@link RegexSet} from a DFA created with {@link ConversionMode#SET}. The generated
+ * matchWords method runs the DFA over the whole string, and whenever it reaches an accepting state, marks the patterns
+ * that state accepts.
+ * <p>
+ * Besides the transition tables, for each state, the class stores the offset of the list of patterns it accepts, or -1.
+ */
+class RegexSetClassBuilder extends TableClassBuilder {
+
+    static final String ACCEPTING_CONSTANT = "ACCEPTING";
+    static final String PATTERN_IDS_CONSTANT = "PATTERN_IDS";
+
+    private static final String STRING = "s";
+    private static final String WORDS = "words";
+    private static final String LENGTH = "length";
+    private static final String INDEX = "index";
+    private static final String STATE = "state";
+    private static final String ACCEPTED = "accepted";
+
+    private final DFA dfa;
+    private final int patternCount;
+
+    RegexSetClassBuilder(String className, DFA dfa, int patternCount) {
+        super(className, RegexSet.class, dfa);
+        this.dfa = dfa;
+        this.patternCount = patternCount;
+    }
+
+    void initMethods() {
+        addTables();
+        addEmptyConstructor();
+        addSizeMethod();
+        addMatchWordsMethod();
+    }
+
+    private void addTables() {
+        // Every char has a transition, since the DFA restarts its search at every index
+        for (DFA state : dfa.allStates()) {
+            for (int charClass = 0; charClass < table.classCount(); charClass++) {
+                if (table.transition(state.getStateNumber(), charClass) == DFATable.DEAD_STATE) {
+                    throw new IllegalStateException("Set DFA has no transition from state " + state.getStateNumber());
+                }
+            }
+        }
+        addTransitionTables();
+
+        int statesCount = table.statesCount();
+        int[] accepting = new int[statesCount];
+        List<Integer> patternIds = new ArrayList<>();
+        for (DFA state : dfa.allStates()) {
+            BitSet patterns = state.getAcceptedPatterns();
+            if (patterns == null) {
+                accepting[state.getStateNumber()] = -1;
+            } else {
+                accepting[state.getStateNumber()] = patternIds.size();
+                patterns.stream().forEach(patternIds::add);
+                patternIds.add(-1);
+            }
+        }
+        addIntArray(ACCEPTING_CONSTANT, accepting);
+        addIntArray(PATTERN_IDS_CONSTANT, patternIds.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private void addSizeMethod() {
+        var method = mkMethod("size", List.of(), "I", new GenericVars());
+        method.returnValue(patternCount);
+    }
+
+    private void addMatchWordsMethod() {
+        var vars = new GenericVars(STRING, WORDS, LENGTH, INDEX, STATE, ACCEPTED);
+        var method = mkMethod("matchWords", List.of(CompilerUtil.STRING_DESCRIPTOR), "[J", vars);
+        method.set(WORDS, NewArray.newArray(literal((patternCount + 63) / 64), Builtin.L));
+        method.set(LENGTH, call("length", Builtin.I, read(STRING)));
+        method.set(STATE, 0);
+        method.set(INDEX, 0);
+        method.set(ACCEPTED, staticArray(ACCEPTING_CONSTANT, read(STATE)));
+        method.cond(gte(read(ACCEPTED), 0)).withBody(mark());
+        method.loop(lt(read(INDEX), read(LENGTH)), List.of(
+                set(STATE, nextState(read(STATE), call("charAt", Builtin.C, read(STRING), read(INDEX)))),
+                set(ACCEPTED, staticArray(ACCEPTING_CONSTANT, read(STATE))),
+                cond(gte(read(ACCEPTED), 0)).withBody(mark()),
+                set(INDEX, plus(read(INDEX), 1))));
+        method.returnValue(read(WORDS));
+    }
+
+    private CodeElement mark() {
+        return callStatic(RegexSetUtil.class, "mark", Void.VOID, read(WORDS),
+                getStatic(PATTERN_IDS_CONSTANT, ReferenceType.of(getClassName()), ArrayType.of(Builtin.I)),
+                read(ACCEPTED));
+    }
+}
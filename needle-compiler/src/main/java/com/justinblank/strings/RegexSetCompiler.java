@@ -0,0 +1,84 @@
+package com.justinblank.strings;
+
+import com.justinblank.classcompiler.ClassCompiler;
+import com.justinblank.strings.RegexAST.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compiles a list of regexes into a single class that finds which of them occur in a string in one pass. The regexes'
+ * NFAs are combined into one, whose MATCH instructions are tagged with the index of their regex, and that NFA is
+ * converted to a DFA whose accepting states record which regexes they accept.
+ * <p>
+ * The combined DFA can be much larger than the DFAs for the individual regexes, and compilation fails if it exceeds
+ * the same limit on the number of states as a single regex. For large rule sets, {@link #compilePrefiltered} compiles
+ * each regex separately instead, and uses the literals they require to decide which to run.
+ */
+public class RegexSetCompiler {
+
+    public static RegexSet compile(List<String> regexes, String className) {
+        return compile(regexes, className, 0);
+    }
+
+    public static RegexSet compile(List<String> regexes, String className, int flags) {
+        byte[] classBytes = compileToBytes(regexes, className, flags);
+        try {
+            Class<?> setClass = new PatternClassLoader().loadClass(className, classBytes);
+            return (RegexSet) setClass.getDeclaredConstructor().newInstance();
+        } catch (Throwable t) {
+            throw new PatternClassCompilationException("Failed to compile regex set " + className, t);
+        }
+    }
+
+    /**
+     * Compile a regex set that runs a separate matcher for each regex, but only for those whose required literals occur
+     * in the string, which are found in a single Aho-Corasick pass. This avoids building a combined DFA, so it works for
+     * sets whose combined DFA would be too large, and is fast when most strings contain few of the literals.
+     *
+     * @param regexes the regexes
+     * @param className the prefix of the names of the generated matcher classes
+     * @param flags the flags to apply to every regex
+     * @return the regex set
+     */
+    public static RegexSet compilePrefiltered(List<String> regexes, String className, int flags) {
+        checkArguments(regexes, className, flags);
+        return LiteralPrefilteredRegexSet.compile(regexes, className, flags);
+    }
+
+    public static byte[] compileToBytes(List<String> regexes, String className, int flags) {
+        checkArguments(regexes, className, flags);
+        List<Node> nodes = new ArrayList<>(regexes.size());
+        for (String regex : regexes) {
+            nodes.add(RegexParser.parse(regex, flags));
+        }
+        try {
+            boolean leftmostLongest = (flags & Pattern.LEFTMOST_LONGEST) == Pattern.LEFTMOST_LONGEST;
+            NFA nfa = new NFA(RegexInstrBuilder.createSetNFA(nodes, leftmostLongest));
+            DFA dfa = NFAToDFACompiler.compile(nfa, ConversionMode.SET);
+            DFACompiler.checkForOverLongDFAs(List.of(dfa));
+
+            var builder = new RegexSetClassBuilder(className, dfa, regexes.size());
+            builder.initMethods();
+            return new ClassCompiler(builder).generateClassAsBytes();
+        }
+        catch (Exception e) {
+            throw new PatternClassCompilationException("Failed to create regex set class " + className, e);
+        }
+    }
+
+    private static void checkArguments(List<String> regexes, String className, int flags) {
+        Objects.requireNonNull(regexes, "regexes cannot be null");
+        Objects.requireNonNull(className, "name cannot be null");
+        if (regexes.isEmpty()) {
+            throw new IllegalArgumentException("Cannot compile an empty regex set");
+        }
+        if ((flags & ~Pattern.ALL_FLAGS) != 0) {
+            throw new IllegalArgumentException("Unrecognized flags=" + flags);
+        }
+        for (String regex : regexes) {
+            Objects.requireNonNull(regex, "regex cannot be null");
+        }
+    }
+}
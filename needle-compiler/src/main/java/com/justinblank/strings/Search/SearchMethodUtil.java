@@ -1,7 +1,7 @@
 package com.justinblank.strings.Search;
 
 public class SearchMethodUtil {
-    public static void checkIndices(String s, int start, int end) {
+    public static void checkIndices(CharSequence s, int start, int end) {
         int length = s.length();
         if (start > length || start < 0) {
             throw new IndexOutOfBoundsException("starting index " + start + " is out of bounds");
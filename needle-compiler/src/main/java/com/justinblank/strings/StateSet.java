@@ -80,7 +80,20 @@ class StateSet {
 
     @Override
     public int hashCode() {
-        return states.hashCode();
+        // Set.hashCode() sums the hashes of the states, which are small ints, so sets of nearby states collide, and large
+        // DFAs spend most of their construction time in HashMap collisions. Mixing each state's bits avoids that.
+        int hash = 0;
+        for (Integer state : states) {
+            hash += mix(state);
+        }
+        return hash;
+    }
+
+    private static int mix(int state) {
+        int h = state * 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
     }
 
     public Collection<Integer> getStates() {
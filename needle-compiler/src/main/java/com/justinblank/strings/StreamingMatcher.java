@@ -0,0 +1,278 @@
+package com.justinblank.strings;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Finds successive matches of a {@link StreamingPattern} in input that arrives in chunks, either pushed by the caller
+ * with {@link #feed(char[], int, int)} or pulled from a {@link Reader}. Matches may start and end in different chunks.
+ * Offsets are positions in the whole stream.
+ * <p>
+ * Matches are found the same way as by generated matchers: the search DFA finds the end of the leftmost match, then
+ * the reversed DFA scans back from the end to find its start. The state of the search, including the current DFA
+ * state, is held in this object between chunks, so no input is ever rescanned by the search DFA. The matcher retains
+ * only the input it might still need to scan backwards over, which is bounded by the pattern's
+ * {@link StreamingPattern#maxMatchLength()}, plus the chunk it's currently scanning.
+ * <p>
+ * If the regex has no maximum length, matches are limited to the pattern's window. A match is reported once any longer
+ * match would be longer than the window, and a match that can only be longer than the window causes an
+ * {@link IllegalStateException}.
+ */
+public class StreamingMatcher {
+
+    static final int READ_SIZE = 8192;
+
+    private final DFATable search;
+    private final DFATable reversed;
+    private final int maxMatchLength;
+    private final boolean windowed;
+    private final Reader reader;
+
+    private char[] buffer = new char[READ_SIZE];
+    /**
+     * The stream offset of buffer[0].
+     */
+    private long bufferStart;
+    private int bufferLength;
+    private boolean endOfInput;
+
+    /**
+     * The offset at which the current search started. No match can start before it.
+     */
+    private long searchFrom;
+    /**
+     * The offset of the next char the search DFA will read.
+     */
+    private long scanPos;
+    private int state;
+    /**
+     * The end of the leftmost match seen by the current search, or -1.
+     */
+    private long lastMatch;
+
+    private boolean matched;
+    private long matchStart;
+    private long matchEnd;
+
+    StreamingMatcher(StreamingPattern pattern, Reader reader) {
+        this.search = pattern.search;
+        this.reversed = pattern.reversed;
+        this.maxMatchLength = pattern.maxMatchLength;
+        this.windowed = pattern.windowed;
+        this.reader = reader;
+        startSearch(0);
+    }
+
+    /**
+     * Append a chunk of input. The chunk is copied, so the caller may reuse the array.
+     *
+     * @param data the array containing the chunk
+     * @param offset the start of the chunk
+     * @param length the length of the chunk
+     * @throws IllegalStateException if {@link #endInput()} has been called
+     */
+    public void feed(char[] data, int offset, int length) {
+        if (endOfInput) {
+            throw new IllegalStateException("Cannot feed input after the end of input");
+        }
+        CompiledPattern.checkSlice(data.length, offset, length);
+        compact();
+        ensureCapacity(bufferLength + length);
+        System.arraycopy(data, offset, buffer, bufferLength, length);
+        bufferLength += length;
+    }
+
+    /**
+     * Signal that no more input will be fed, so that matches at the very end of the input can be reported.
+     */
+    public void endInput() {
+        endOfInput = true;
+    }
+
+    /**
+     * Find the next match. If this matcher reads from a Reader, it reads until it finds a match or reaches the end of
+     * the input. Otherwise, a false result may only mean that more input is required: see {@link #needsInput()}.
+     *
+     * @return true if a match was found
+     * @throws UncheckedIOException if reading from the Reader fails
+     * @throws IllegalStateException if the regex has no maximum length, and the match can only be longer than the
+     * window
+     */
+    public boolean find() {
+        matched = false;
+        while (true) {
+            if (endOfInput && searchFrom > inputEnd()) {
+                return false;
+            }
+            if (scan() || (endOfInput && lastMatch >= 0)) {
+                long end = lastMatch;
+                long start = findStart(end);
+                matched = true;
+                matchStart = start;
+                matchEnd = end;
+                startSearch(start == end ? end + 1 : end);
+                return true;
+            }
+            if (endOfInput || reader == null) {
+                return false;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * @return true if the last call to {@link #find()} returned false because the matcher has not yet been fed enough
+     * input to determine the next match
+     */
+    public boolean needsInput() {
+        return !matched && !endOfInput;
+    }
+
+    /**
+     * @return the offset in the stream of the start of the last match
+     */
+    public long start() {
+        checkMatched();
+        return matchStart;
+    }
+
+    /**
+     * @return the offset in the stream of the end of the last match
+     */
+    public long end() {
+        checkMatched();
+        return matchEnd;
+    }
+
+    /**
+     * @return the text of the last match. Only available until the next call to {@link #find()} or
+     * {@link #feed(char[], int, int)}.
+     */
+    public String group() {
+        checkMatched();
+        return new String(buffer, (int) (matchStart - bufferStart), (int) (matchEnd - matchStart));
+    }
+
+    /**
+     * @return the number of chars of input received so far
+     */
+    public long position() {
+        return inputEnd();
+    }
+
+    private void checkMatched() {
+        if (!matched) {
+            throw new IllegalStateException("No match available");
+        }
+    }
+
+    private long inputEnd() {
+        return bufferStart + bufferLength;
+    }
+
+    private void startSearch(long from) {
+        searchFrom = from;
+        scanPos = from;
+        state = 0;
+        lastMatch = search.isAccepting(0) ? from : -1;
+    }
+
+    /**
+     * Run the search DFA over the available input.
+     *
+     * @return true if the DFA died after seeing a match, or can only see longer matches that don't fit in the window,
+     * so that lastMatch is the end of the match
+     */
+    private boolean scan() {
+        long inputEnd = inputEnd();
+        while (scanPos < inputEnd) {
+            int next = search.next(state, buffer[(int) (scanPos - bufferStart)]);
+            scanPos++;
+            if (next == DFATable.DEAD_STATE) {
+                if (lastMatch >= 0) {
+                    return true;
+                }
+                // Mirrors the generated index methods, which restart from the initial state
+                state = 0;
+                continue;
+            }
+            state = next;
+            if (search.isAccepting(state)) {
+                lastMatch = scanPos;
+            }
+            else if (lastMatch >= 0 && scanPos - lastMatch > maxMatchLength) {
+                // Any match ending later would start no later than lastMatch, so it would be longer than the window
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long findStart(long end) {
+        int reversedState = 0;
+        long start = reversed.isAccepting(0) ? end : -1;
+        long limit = Math.max(searchFrom, end - maxMatchLength);
+        long i = end - 1;
+        for (; i >= limit; i--) {
+            reversedState = reversed.next(reversedState, buffer[(int) (i - bufferStart)]);
+            if (reversedState == DFATable.DEAD_STATE) {
+                break;
+            }
+            if (reversed.isAccepting(reversedState)) {
+                start = i;
+            }
+        }
+        // If the reversed DFA could still go on, the match might start before the window
+        if (windowed && i < limit && limit > searchFrom) {
+            throw windowExceeded();
+        }
+        if (start < 0) {
+            throw new IllegalStateException("Found the end of a match at " + end + ", but could not find its start");
+        }
+        return start;
+    }
+
+    private IllegalStateException windowExceeded() {
+        return new IllegalStateException("Match starting after offset " + searchFrom + " is longer than the maximum of "
+                + maxMatchLength + " chars");
+    }
+
+    private void fill() {
+        compact();
+        ensureCapacity(bufferLength + READ_SIZE);
+        try {
+            int read = reader.read(buffer, bufferLength, buffer.length - bufferLength);
+            if (read == -1) {
+                endOfInput = true;
+            }
+            else {
+                bufferLength += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Discard input that can't be part of any future match. A match ending after the current scan position, or after
+     * lastMatch if we've seen one, can't start more than maxMatchLength chars before it.
+     */
+    private void compact() {
+        long keepFrom = Math.max(searchFrom, (lastMatch >= 0 ? lastMatch : scanPos) - maxMatchLength);
+        keepFrom = Math.min(keepFrom, inputEnd());
+        if (keepFrom > bufferStart) {
+            int discarded = (int) (keepFrom - bufferStart);
+            System.arraycopy(buffer, discarded, buffer, 0, bufferLength - discarded);
+            bufferLength -= discarded;
+            bufferStart = keepFrom;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, 2 * buffer.length));
+        }
+    }
+}
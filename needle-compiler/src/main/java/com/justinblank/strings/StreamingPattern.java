@@ -0,0 +1,118 @@
+package com.justinblank.strings;
+
+import com.justinblank.strings.RegexAST.Node;
+
+import java.io.Reader;
+import java.util.Objects;
+
+/**
+ * A compiled regex for searching input that arrives in chunks, such as a stream too large to hold in memory. Matching
+ * is done by interpreting {@link DFATable}s rather than by generating a class, and offsets are longs.
+ * <p>
+ * A StreamingPattern is immutable and may be shared between threads. The {@link StreamingMatcher}s it creates are not
+ * thread safe.
+ */
+public class StreamingPattern {
+
+    /**
+     * The default bound, in chars, on the length of matches for regexes with no maximum length.
+     */
+    public static final int DEFAULT_WINDOW = 1 << 20;
+
+    private final String regex;
+    final DFATable search;
+    final DFATable reversed;
+    final int maxMatchLength;
+    /**
+     * Whether maxMatchLength comes from the window, rather than from the regex.
+     */
+    final boolean windowed;
+
+    private StreamingPattern(String regex, DFATable search, DFATable reversed, int maxMatchLength, boolean windowed) {
+        this.regex = regex;
+        this.search = search;
+        this.reversed = reversed;
+        this.maxMatchLength = maxMatchLength;
+        this.windowed = windowed;
+    }
+
+    public static StreamingPattern compile(String regex) {
+        return compile(regex, 0);
+    }
+
+    public static StreamingPattern compile(String regex, int flags) {
+        return compile(regex, flags, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param regex the regex
+     * @param flags the flags, as in {@link Pattern}
+     * @param window the maximum length of a match, used only if the regex itself has no maximum length. A matcher
+     *               holds at most about twice this many chars of input that it has already scanned.
+     * @return the compiled pattern
+     */
+    public static StreamingPattern compile(String regex, int flags, int window) {
+        return compile(regex, flags, window, false);
+    }
+
+    /**
+     * @param utf8 whether to build the tables over UTF-8 bytes (see {@link Utf8Encoding}) rather than chars
+     */
+    static StreamingPattern compile(String regex, int flags, int window, boolean utf8) {
+        Objects.requireNonNull(regex, "regex cannot be null");
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive, was " + window);
+        }
+        if ((flags & ~Pattern.ALL_FLAGS) != 0) {
+            throw new IllegalArgumentException("Unrecognized flags=" + flags);
+        }
+        try {
+            Node node = RegexParser.parse(regex, flags);
+            if (utf8) {
+                node = Utf8Encoding.encode(node);
+            }
+            Factorization factorization = Factorization.buildFactorization(node);
+            boolean leftmostLongest = (flags & Pattern.LEFTMOST_LONGEST) == Pattern.LEFTMOST_LONGEST;
+            NFA forwardNFA = new NFA(RegexInstrBuilder.createNFA(node, leftmostLongest));
+            NFA reversedNFA = new NFA(RegexInstrBuilder.createNFA(node.reversed(), leftmostLongest));
+            DFA dfaSearch = NFAToDFACompiler.compile(forwardNFA, ConversionMode.DFA_SEARCH);
+            DFA dfaReversed = NFAToDFACompiler.compile(reversedNFA, ConversionMode.BASIC);
+            var maxLength = factorization.getMaxLength();
+            return new StreamingPattern(regex, DFATable.of(dfaSearch), DFATable.of(dfaReversed),
+                    maxLength.orElse(window), maxLength.isEmpty());
+        }
+        catch (PatternException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new PatternClassCompilationException("Failed to compile streaming pattern for regex '" + regex + "'", e);
+        }
+    }
+
+    /**
+     * @return a matcher to which the caller feeds input with {@link StreamingMatcher#feed(char[], int, int)}
+     */
+    public StreamingMatcher matcher() {
+        return new StreamingMatcher(this, null);
+    }
+
+    /**
+     * @param reader the input, which the matcher reads as needed
+     * @return a matcher that reads from the reader
+     */
+    public StreamingMatcher matcher(Reader reader) {
+        Objects.requireNonNull(reader, "reader cannot be null");
+        return new StreamingMatcher(this, reader);
+    }
+
+    /**
+     * @return the maximum length of a match: the regex's own maximum length if it has one, otherwise the window
+     */
+    public int maxMatchLength() {
+        return maxMatchLength;
+    }
+
+    public String regex() {
+        return regex;
+    }
+}
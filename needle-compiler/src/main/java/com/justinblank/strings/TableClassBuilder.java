@@ -0,0 +1,119 @@
+package com.justinblank.strings;
+
+import com.justinblank.classcompiler.ClassBuilder;
+import com.justinblank.classcompiler.CompilerUtil;
+import com.justinblank.classcompiler.Field;
+import com.justinblank.classcompiler.lang.ArrayType;
+import com.justinblank.classcompiler.lang.Builtin;
+import com.justinblank.classcompiler.lang.Expression;
+import com.justinblank.classcompiler.lang.ReferenceType;
+
+import java.util.Arrays;
+
+import static com.justinblank.classcompiler.lang.ArrayRead.arrayRead;
+import static com.justinblank.classcompiler.lang.BinaryOperator.mul;
+import static com.justinblank.classcompiler.lang.BinaryOperator.plus;
+import static com.justinblank.classcompiler.lang.CodeElement.callStatic;
+import static com.justinblank.classcompiler.lang.CodeElement.getStatic;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Base class for builders of classes that run a DFA stored in int arrays, rather than one compiled to branches. The
+ * arrays are too large to be initialized element by element in a static initializer, so they're encoded in string
+ * constants, which are decoded when the class is initialized.
+ */
+abstract class TableClassBuilder extends ClassBuilder {
+
+    static final String CHAR_CLASSES_CONSTANT = "CHAR_CLASSES";
+    static final String CHAR_CLASS_BOUNDARIES_CONSTANT = "CHAR_CLASS_BOUNDARIES";
+    /**
+     * The number of chars whose classes are stored in a table. Other chars are looked up among the class boundaries.
+     */
+    static final int CHAR_CLASS_TABLE_SIZE = 256;
+    static final String TRANSITIONS_CONSTANT = "TRANSITIONS";
+
+    /**
+     * The maximum number of chars in an encoded string constant. Chars take up to three bytes in the constant pool,
+     * which limits a string to 65535 bytes.
+     */
+    static final int MAX_CHUNK_LENGTH = 16384;
+
+    protected final DFATable table;
+    private int constantCount;
+
+    TableClassBuilder(String className, Class<?> implemented, DFA dfa) {
+        super(className, "", "java/lang/Object", new String[]{CompilerUtil.internalName(implemented)});
+        this.table = DFATable.of(dfa);
+    }
+
+    /**
+     * Add the map from chars to classes of chars, and the transition table indexed by state and char class, in which
+     * missing transitions are {@link DFATable#DEAD_STATE}. The map is a table of the classes of the first
+     * {@link #CHAR_CLASS_TABLE_SIZE} chars, plus the boundaries between classes, which are searched for other chars.
+     */
+    protected void addTransitionTables() {
+        int[] charClasses = new int[CHAR_CLASS_TABLE_SIZE];
+        for (int c = 0; c < CHAR_CLASS_TABLE_SIZE; c++) {
+            charClasses[c] = table.charClass((char) c);
+        }
+        addIntArray(CHAR_CLASSES_CONSTANT, charClasses);
+        addIntArray(CHAR_CLASS_BOUNDARIES_CONSTANT, table.charClassBoundaries());
+
+        int statesCount = table.statesCount();
+        int[] transitions = new int[statesCount * table.classCount()];
+        for (int state = 0; state < statesCount; state++) {
+            for (int charClass = 0; charClass < table.classCount(); charClass++) {
+                transitions[state * table.classCount() + charClass] = table.transition(state, charClass);
+            }
+        }
+        addIntArray(TRANSITIONS_CONSTANT, transitions);
+    }
+
+    protected void addIntArray(String name, int[] values) {
+        addField(new Field(ACC_STATIC | ACC_PRIVATE | ACC_FINAL, name, "[I", null, null));
+        var staticBlock = addStaticBlock();
+        staticBlock.push(values.length)
+                .newArray(T_INT)
+                .putStatic(name, true, "[I");
+        // Values that don't fit in a char, such as state numbers in DFAs with more than 65534 states, take two
+        boolean wide = Arrays.stream(values).anyMatch(value -> value >= Character.MAX_VALUE);
+        int chunkLength = wide ? MAX_CHUNK_LENGTH / 2 : MAX_CHUNK_LENGTH;
+        for (int offset = 0; offset < values.length; offset += chunkLength) {
+            int end = Math.min(values.length, offset + chunkLength);
+            var sb = new StringBuilder(wide ? 2 * (end - offset) : end - offset);
+            for (int i = offset; i < end; i++) {
+                if (values[i] < -1 || values[i] == Integer.MAX_VALUE) {
+                    throw new IllegalStateException("Value can't be encoded: " + values[i]);
+                }
+                int encoded = values[i] + 1;
+                if (wide) {
+                    sb.append((char) (encoded >>> 16));
+                }
+                sb.append((char) encoded);
+            }
+            String chunkName = name + "_" + constantCount++;
+            addConstant(chunkName, CompilerUtil.STRING_DESCRIPTOR, sb.toString());
+            staticBlock.readStatic(name, "[I")
+                    .push(offset)
+                    .readStatic(chunkName, CompilerUtil.STRING_DESCRIPTOR)
+                    .callStatic(wide ? "fillWide" : "fill", CompilerUtil.internalName(RegexSetUtil.class), "([IILjava/lang/String;)V");
+        }
+    }
+
+    /**
+     * @return an expression for the state reached from state on the char c
+     */
+    protected Expression nextState(Expression state, Expression c) {
+        return staticArray(TRANSITIONS_CONSTANT, plus(mul(state, table.classCount()),
+                callStatic(RegexSetUtil.class, "charClass", Builtin.I, staticField(CHAR_CLASSES_CONSTANT),
+                        staticField(CHAR_CLASS_BOUNDARIES_CONSTANT), c)));
+    }
+
+    protected Expression staticArray(String name, Expression index) {
+        return arrayRead(staticField(name), index);
+    }
+
+    private Expression staticField(String name) {
+        return getStatic(name, ReferenceType.of(getClassName()), ArrayType.of(Builtin.I));
+    }
+}
@@ -0,0 +1,169 @@
+package com.justinblank.strings;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pattern that can answer as soon as its regex is parsed, while its class is compiled in the background.
+ * <p>
+ * Until the class is ready, matchers are created by a {@link LazyDFAPattern}, which builds DFA states as the input
+ * reaches them. Compiling the class runs on the {@link CompilerOptions}' executor, or the common pool if they don't
+ * have one, and may be put off until the pattern has been used a given number of times, so that patterns which are
+ * rarely used never pay for it. Once the class is loaded, it replaces the lazy DFA for every matcher created
+ * afterwards, and {@link #compiled()} completes. Matchers created before the switch keep using the lazy DFA. Both
+ * tiers support every input and line mode, with the same results, so which one answers only affects how fast it does.
+ * <p>
+ * If the regex's DFAs are too large to compile, and the options allow falling back, the pattern keeps using the lazy
+ * DFA, and {@link #compiled()} completes with it. If compiling fails otherwise, the pattern also keeps using the lazy
+ * DFA, and {@link #compiled()} completes exceptionally.
+ * <p>
+ * A TieredPattern may be shared between threads.
+ */
+public class TieredPattern implements Pattern {
+
+    private final String regex;
+    private final String className;
+    private final CompilerOptions options;
+    private final int usesBeforeCompiling;
+    private final AtomicInteger uses = new AtomicInteger();
+    private final AtomicBoolean compileStarted = new AtomicBoolean();
+    private final CompletableFuture<Pattern> compiled = new CompletableFuture<>();
+    private volatile Pattern current;
+
+    private TieredPattern(String regex, String className, CompilerOptions options, int usesBeforeCompiling,
+                          LazyDFAPattern interpreted) {
+        this.regex = regex;
+        this.className = className;
+        this.options = options;
+        this.usesBeforeCompiling = usesBeforeCompiling;
+        this.current = interpreted;
+    }
+
+    /**
+     * Parse a regex, and start compiling it to a class in the background.
+     *
+     * @param regex the regex
+     * @param className the name of the generated class
+     * @param options the compiler options
+     * @return the pattern
+     * @throws PatternSyntaxException if the regex is malformed
+     */
+    public static TieredPattern compile(String regex, String className, CompilerOptions options) {
+        return compile(regex, className, options, 0);
+    }
+
+    /**
+     * Parse a regex, and compile it to a class in the background once it's been used a number of times.
+     *
+     * @param regex the regex
+     * @param className the name of the generated class
+     * @param options the compiler options
+     * @param usesBeforeCompiling how many matchers to create before starting to compile the class, or 0 to start
+     *                            immediately
+     * @return the pattern
+     * @throws PatternSyntaxException if the regex is malformed
+     */
+    public static TieredPattern compile(String regex, String className, CompilerOptions options,
+                                        int usesBeforeCompiling) {
+        Objects.requireNonNull(regex, "regex cannot be null");
+        Objects.requireNonNull(className, "className cannot be null");
+        Objects.requireNonNull(options, "options cannot be null");
+        if (usesBeforeCompiling < 0) {
+            throw new IllegalArgumentException("usesBeforeCompiling cannot be negative, was " + usesBeforeCompiling);
+        }
+        var interpreted = LazyDFAPattern.compile(regex, options.flags);
+        var pattern = new TieredPattern(regex, className, options, usesBeforeCompiling, interpreted);
+        if (usesBeforeCompiling == 0) {
+            pattern.startCompiling();
+        }
+        return pattern;
+    }
+
+    private void recordUse() {
+        if (!compileStarted.get() && uses.incrementAndGet() >= usesBeforeCompiling) {
+            startCompiling();
+        }
+    }
+
+    private void startCompiling() {
+        if (!compileStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Executor executor = options.executor != null ? options.executor : ForkJoinPool.commonPool();
+        try {
+            executor.execute(this::compileClass);
+        }
+        catch (RejectedExecutionException e) {
+            compiled.completeExceptionally(e);
+        }
+    }
+
+    private void compileClass() {
+        try {
+            var pattern = DFACompiler.compile(regex, className, options);
+            // A fallback would only replace the lazy DFA with one whose cache is empty
+            if (!(pattern instanceof LazyDFAPattern)) {
+                current = pattern;
+            }
+            compiled.complete(current);
+        }
+        catch (Throwable t) {
+            compiled.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * @return a future that completes with the pattern matchers are created by once compilation has finished
+     */
+    public CompletableFuture<Pattern> compiled() {
+        return compiled;
+    }
+
+    /**
+     * @return the pattern new matchers are currently created by
+     */
+    Pattern current() {
+        return current;
+    }
+
+    public String regex() {
+        return regex;
+    }
+
+    @Override
+    public Matcher matcher(String s) {
+        recordUse();
+        return current.matcher(s);
+    }
+
+    @Override
+    public Matcher matcher(CharSequence s) {
+        recordUse();
+        return current.matcher(s);
+    }
+
+    @Override
+    public Matcher matcher(char[] data, int offset, int length) {
+        recordUse();
+        return current.matcher(data, offset, length);
+    }
+
+    @Override
+    public Matcher matcher(byte[] data, int offset, int length, Charset charset) {
+        recordUse();
+        return current.matcher(data, offset, length, charset);
+    }
+
+    @Override
+    public Matcher matcher(ByteBuffer buffer, Charset charset) {
+        recordUse();
+        return current.matcher(buffer, charset);
+    }
+}
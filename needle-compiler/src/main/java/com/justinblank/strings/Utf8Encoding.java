@@ -0,0 +1,159 @@
+package com.justinblank.strings;
+
+import com.justinblank.strings.RegexAST.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites a regex AST over UTF-16 chars into an equivalent AST over UTF-8 bytes, so that the DFAs built from it can
+ * scan encoded input directly. Each byte is represented by a char in the range 0-255.
+ * <p>
+ * Char ranges become unions of byte range sequences, one per run of code points that share an encoded length and
+ * leading bytes. A range that covers every surrogate char also accepts every supplementary code point, since in UTF-16
+ * those are exactly the characters such a range would match. Other surrogate chars are encoded as the three byte
+ * sequences they'd have if they were code points, which never appear in valid UTF-8, so they never match.
+ */
+final class Utf8Encoding {
+
+    static final int MAX_ONE_BYTE = 0x7F;
+    static final int MAX_TWO_BYTES = 0x7FF;
+    static final int MAX_THREE_BYTES = 0xFFFF;
+    static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+
+    private Utf8Encoding() {}
+
+    static Node encode(Node node) {
+        if (node instanceof Concatenation) {
+            var concatenation = (Concatenation) node;
+            return new Concatenation(encode(concatenation.head), encode(concatenation.tail));
+        }
+        else if (node instanceof Repetition) {
+            return new Repetition(encode(((Repetition) node).node));
+        }
+        else if (node instanceof CountedRepetition) {
+            var repetition = (CountedRepetition) node;
+            return new CountedRepetition(encode(repetition.node), repetition.min, repetition.max);
+        }
+        else if (node instanceof Union) {
+            var union = (Union) node;
+            var left = encode(union.left);
+            var right = encode(union.right);
+            return union.withPriority ? Union.orderedChoice(left, right) : Union.unorderedChoice(left, right);
+        }
+        else if (node instanceof CharRangeNode) {
+            return encode(((CharRangeNode) node).range());
+        }
+        else if (node instanceof LiteralNode) {
+            return new LiteralNode(encode(((LiteralNode) node).getLiteral()));
+        }
+        throw new IllegalStateException("Unhandled ast node type=" + node.getClass().getSimpleName());
+    }
+
+    /**
+     * Encode a string, representing each byte as a char. Unpaired surrogates are encoded as if they were code points.
+     */
+    static String encode(String s) {
+        var sb = new StringBuilder(s.length());
+        var bytes = new int[4];
+        for (int i = 0; i < s.length(); ) {
+            int codePoint = s.codePointAt(i);
+            int length = encode(codePoint, bytes);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) bytes[j]);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return sb.toString();
+    }
+
+    private static Node encode(CharRange range) {
+        List<int[][]> sequences = new ArrayList<>();
+        split(range.getStart(), range.getEnd(), sequences);
+        if (range.getStart() <= Character.MIN_SURROGATE && range.getEnd() >= Character.MAX_SURROGATE) {
+            split(Character.MIN_SUPPLEMENTARY_CODE_POINT, MAX_CODE_POINT, sequences);
+        }
+        Node union = null;
+        for (var sequence : sequences) {
+            Node node = null;
+            for (var byteRange : sequence) {
+                var rangeNode = new CharRangeNode((char) byteRange[0], (char) byteRange[1]);
+                node = node == null ? rangeNode : new Concatenation(node, rangeNode);
+            }
+            union = union == null ? node : Union.unorderedChoice(union, node);
+        }
+        return union;
+    }
+
+    /**
+     * Split the code points from start to end into sequences of byte ranges, such that each sequence matches exactly
+     * the encodings of a contiguous run of those code points, and together they match all of them.
+     */
+    static void split(int start, int end, List<int[][]> sequences) {
+        if (start > end) {
+            return;
+        }
+        for (int boundary : new int[]{MAX_ONE_BYTE, MAX_TWO_BYTES, MAX_THREE_BYTES}) {
+            if (start <= boundary && end > boundary) {
+                split(start, boundary, sequences);
+                split(boundary + 1, end, sequences);
+                return;
+            }
+        }
+        if (end <= MAX_ONE_BYTE) {
+            sequences.add(new int[][]{{start, end}});
+            return;
+        }
+        // Split until every continuation byte after the first differing byte spans its whole range
+        for (int i = 1; i < 4; i++) {
+            int max = (1 << (6 * i)) - 1;
+            if ((start & ~max) != (end & ~max)) {
+                if ((start & max) != 0) {
+                    split(start, start | max, sequences);
+                    split((start | max) + 1, end, sequences);
+                    return;
+                }
+                if ((end & max) != max) {
+                    split(start, (end & ~max) - 1, sequences);
+                    split(end & ~max, end, sequences);
+                    return;
+                }
+            }
+        }
+        var startBytes = new int[4];
+        var endBytes = new int[4];
+        int length = encode(start, startBytes);
+        encode(end, endBytes);
+        var sequence = new int[length][];
+        for (int i = 0; i < length; i++) {
+            sequence[i] = new int[]{startBytes[i], endBytes[i]};
+        }
+        sequences.add(sequence);
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    static int encode(int codePoint, int[] bytes) {
+        if (codePoint <= MAX_ONE_BYTE) {
+            bytes[0] = codePoint;
+            return 1;
+        }
+        else if (codePoint <= MAX_TWO_BYTES) {
+            bytes[0] = 0xC0 | (codePoint >> 6);
+            bytes[1] = 0x80 | (codePoint & 0x3F);
+            return 2;
+        }
+        else if (codePoint <= MAX_THREE_BYTES) {
+            bytes[0] = 0xE0 | (codePoint >> 12);
+            bytes[1] = 0x80 | ((codePoint >> 6) & 0x3F);
+            bytes[2] = 0x80 | (codePoint & 0x3F);
+            return 3;
+        }
+        bytes[0] = 0xF0 | (codePoint >> 18);
+        bytes[1] = 0x80 | ((codePoint >> 12) & 0x3F);
+        bytes[2] = 0x80 | ((codePoint >> 6) & 0x3F);
+        bytes[3] = 0x80 | (codePoint & 0x3F);
+        return 4;
+    }
+}
@@ -2,10 +2,12 @@ package com.justinblank.strings.precompile;
 
 import com.justinblank.strings.CompilerOptions;
 import com.justinblank.strings.DFACompiler;
+import com.justinblank.strings.MatcherOperation;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.EnumSet;
 
 public class Precompile {
 
@@ -37,14 +39,17 @@ public class Precompile {
     }
 
     /**
-     * Compile a regex to bytecode and write it to a specified file
+     * Compile a regex to bytecode and write it to a specified file. The class supports every operation, whatever
+     * operations the options declare, since a class that only supports some of them compiles the rest at runtime,
+     * which needs needle-compiler on the classpath.
      * @param regex the regex
      * @param className the name of the created class
      * @param directory the directory where the file should be written
      * @throws IOException in case the file cannot be written
      */
     public static String precompile(String regex, String className, File directory, CompilerOptions compilerOptions) throws IOException {
-        var bytes = DFACompiler.compileToBytes(regex, className, compilerOptions);
+        var options = compilerOptions.withOperations(EnumSet.allOf(MatcherOperation.class));
+        var bytes = DFACompiler.compileToBytes(regex, className, options);
         var target = directory.getAbsolutePath() + "/" + className + ".class";
         try (var fos = new FileOutputStream(target)) {
             fos.write(bytes);
@@ -57,4 +57,22 @@ class ByteClassUtilTest {
         assertEquals((short) 13, byteClasses[49]);
     }
 
-}
\ No newline at end of file
+    @Test
+    void fillMultipleByteClassesFromStringUsingIntsSingleArray() {
+        var byteClasses = new int[13 * 4];
+        ByteClassUtil.fillMultipleByteClassesFromStringUsingInts_singleArray(byteClasses, 4, "0:1-2,2-3,3-c;1:1-3,2-4,3-13;2:1-4,2-5,3-186a0;c:1-d,2-e,3-17");
+        assertEquals(2, byteClasses[1]);
+        assertEquals(12, byteClasses[3]);
+        assertEquals(100_000, byteClasses[11]);
+        assertEquals(13, byteClasses[49]);
+    }
+
+    @Test
+    void fillStatesFromString() {
+        var states = new boolean[20];
+        ByteClassUtil.fillStatesFromString(states, "1,c,13");
+        for (int i = 0; i < states.length; i++) {
+            assertEquals(i == 1 || i == 12 || i == 19, states[i]);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CharClassesTest {
+
+    @Test
+    void singleClass() {
+        var charClasses = CharClasses.of(List.of(0, Character.MAX_VALUE + 1));
+        assertEquals(1, charClasses.count());
+        assertEquals(0, charClasses.classOf('a'));
+        assertEquals(0, charClasses.classOf(Character.MAX_VALUE));
+    }
+
+    @Test
+    void classesAreRunsBetweenBoundaries() {
+        var charClasses = CharClasses.of(List.of((int) 'a', 'z' + 1, 0x100, 0x3000, 0x3000, (int) Character.MAX_VALUE));
+        assertEquals(6, charClasses.count());
+        assertEquals(0, charClasses.classOf('`'));
+        assertEquals(1, charClasses.classOf('a'));
+        assertEquals(1, charClasses.classOf('z'));
+        assertEquals(2, charClasses.classOf('{'));
+        assertEquals(2, charClasses.classOf((char) 0xFF));
+        assertEquals(3, charClasses.classOf((char) 0x100));
+        assertEquals(3, charClasses.classOf((char) 0x2FFF));
+        assertEquals(4, charClasses.classOf((char) 0x3000));
+        assertEquals(5, charClasses.classOf(Character.MAX_VALUE));
+    }
+
+    @Test
+    void matchesCountingBoundaries() {
+        var random = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            var boundaries = new TreeSet<Integer>();
+            for (int j = random.nextInt(50); j > 0; j--) {
+                boundaries.add(random.nextBoolean() ? random.nextInt(300) : random.nextInt(Character.MAX_VALUE + 1));
+            }
+            var charClasses = CharClasses.of(boundaries);
+            boundaries.remove(0);
+            assertEquals(boundaries.size() + 1, charClasses.count());
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                assertEquals(boundaries.headSet(c, true).size(), charClasses.classOf((char) c), "c=" + c);
+            }
+        }
+    }
+}
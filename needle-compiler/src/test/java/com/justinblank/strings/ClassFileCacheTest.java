@@ -0,0 +1,132 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassFileCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reusesClassesStoredByAnEarlierCache() {
+        var options = CompilerOptions.defaultOptions().withClassFileCache(new ClassFileCache(tempDir, 1 << 20));
+        var first = DFACompiler.compile("Sher(lock|ry)[0-9]+", "DiskCachedPattern", options);
+        assertEquals(1, options.classFileCache.missCount());
+
+        // A new cache over the same directory, as a restarted process would create
+        var reopened = CompilerOptions.defaultOptions().withClassFileCache(new ClassFileCache(tempDir, 1 << 20));
+        var second = DFACompiler.compile("Sher(lock|ry)[0-9]+", "DiskCachedPattern", reopened);
+        assertEquals(1, reopened.classFileCache.hitCount());
+        assertNotSame(first.getClass(), second.getClass());
+        assertTrue(second.matcher("Sherry221").matches());
+        assertTrue(second.matcher("at Sherlock1 ").containedIn());
+        assertFalse(second.matcher("Sherlock").matches());
+    }
+
+    @Test
+    void cachesTheClassCompiledForDeferredOperations() {
+        var cache = new ClassFileCache(tempDir, 1 << 20);
+        var options = CompilerOptions.defaultOptions().withClassFileCache(cache).withOperations(MatcherOperation.MATCHES);
+        var pattern = DFACompiler.compile("Sher(lock|ry)", "DeferredCachedPattern", options);
+        assertEquals(1, cache.missCount());
+        assertTrue(pattern.matcher("Sherlock Holmes").containedIn());
+        assertEquals(2, cache.missCount());
+
+        var reopened = options.withClassFileCache(new ClassFileCache(tempDir, 1 << 20));
+        var second = DFACompiler.compile("Sher(lock|ry)", "DeferredCachedPattern", reopened);
+        assertTrue(second.matcher("Sherlock Holmes").containedIn());
+        assertEquals(2, reopened.classFileCache.hitCount());
+        assertEquals(0, reopened.classFileCache.missCount());
+    }
+
+    @Test
+    void recompilesCorruptClasses() throws IOException {
+        var cache = new ClassFileCache(tempDir, 1 << 20);
+        var options = CompilerOptions.defaultOptions().withClassFileCache(cache);
+        DFACompiler.compile("[a-c]+d", "CorruptedPattern", options);
+        var file = onlyFile();
+        var contents = Files.readAllBytes(file);
+        contents[contents.length / 2] ^= 1;
+        Files.write(file, contents);
+
+        var pattern = DFACompiler.compile("[a-c]+d", "CorruptedPattern", options);
+        assertEquals(0, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertTrue(pattern.matcher("abcd").matches());
+        DFACompiler.compile("[a-c]+d", "CorruptedPattern", options);
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    void evictsClassesBeyondTheSizeLimit() throws IOException {
+        var options = CompilerOptions.defaultOptions().withClassFileCache(new ClassFileCache(tempDir, 1 << 20));
+        DFACompiler.compile("a[0-9]+", "EvictedPattern", options);
+        long classSize = Files.size(onlyFile());
+
+        var cache = new ClassFileCache(tempDir, classSize * 3);
+        options = options.withClassFileCache(cache);
+        for (int i = 0; i < 10; i++) {
+            DFACompiler.compile("a[0-9]+", "EvictedPattern" + i, options);
+        }
+        long total = 0;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                total += Files.size(file);
+            }
+        }
+        assertTrue(total <= classSize * 3, "Cache grew to " + total + " bytes");
+        assertTrue(total > 0);
+    }
+
+    @Test
+    void keyDependsOnEverythingThatChangesTheClass() {
+        var options = CompilerOptions.defaultOptions();
+        var key = ClassFileCache.key("abc", "Name", options);
+        assertEquals(key, ClassFileCache.key("abc", "Name", CompilerOptions.defaultOptions()));
+        assertNotEquals(key, ClassFileCache.key("abd", "Name", options));
+        assertNotEquals(key, ClassFileCache.key("abc", "OtherName", options));
+        assertNotEquals(key, ClassFileCache.key("abc", "Name", CompilerOptions.fromFlags(Pattern.CASE_INSENSITIVE)));
+        assertNotEquals(key, ClassFileCache.key("abc", "Name", options.withOperations(MatcherOperation.MATCHES)));
+        assertNotEquals(key, ClassFileCache.key("abc", "Name", options.copy(0, CharacterDistribution.ENGLISH)));
+    }
+
+    @Test
+    void compilerVersionIsAHashOfTheCompilersCode() throws IOException {
+        String version = ClassFileCache.compilerVersion();
+        assertEquals(64, version.length(), version);
+        assertEquals(version, ClassFileCache.compilerVersion());
+
+        var classes = Files.createDirectories(tempDir.resolve("classes/com/example"));
+        Files.write(classes.resolve("Compiler.class"), new byte[]{1, 2, 3});
+        Files.write(classes.resolve("README"), new byte[]{4});
+        var jar = Files.write(tempDir.resolve("library.jar"), new byte[]{5, 6});
+        var locations = List.of(tempDir.resolve("classes"), jar);
+        String fingerprint = ClassFileCache.fingerprint(locations);
+        assertEquals(fingerprint, ClassFileCache.fingerprint(locations));
+
+        Files.write(classes.resolve("README"), new byte[]{7});
+        assertEquals(fingerprint, ClassFileCache.fingerprint(locations));
+        Files.write(classes.resolve("Compiler.class"), new byte[]{1, 2, 4});
+        String changedClass = ClassFileCache.fingerprint(locations);
+        assertNotEquals(fingerprint, changedClass);
+        Files.write(jar, new byte[]{5, 7});
+        assertNotEquals(changedClass, ClassFileCache.fingerprint(locations));
+    }
+
+    private Path onlyFile() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            var all = files.toArray(Path[]::new);
+            assertEquals(1, all.length);
+            return all[0];
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compiles many patterns without keeping them, and checks that their classes are unloaded. The soak test is tagged
+// slow, so it only runs with -Pslow-tests. Run it with e.g. -Dneedle.soak.patterns=1000000 to soak test for longer.
+class ClassUnloadingTest {
+
+    private static final int SOAK_PATTERNS = Integer.getInteger("needle.soak.patterns", 10_000);
+    private static final int BATCHES = 10;
+
+    @Test
+    void compiledPatternsAreUnloaded() {
+        compileAndUnload(100);
+    }
+
+    @Test
+    @Tag("slow")
+    void compiledPatternsAreUnloadedWhenSoakTesting() {
+        compileAndUnload(SOAK_PATTERNS);
+    }
+
+    private static void compileAndUnload(int patterns) {
+        var classLoading = ManagementFactory.getClassLoadingMXBean();
+        long unloadedBefore = classLoading.getUnloadedClassCount();
+        long loadedAfterFirstBatch = 0;
+        long metaspaceAfterFirstBatch = 0;
+        for (int batch = 0; batch < BATCHES; batch++) {
+            for (int i = 0; i < patterns / BATCHES; i++) {
+                int n = batch * (patterns / BATCHES) + i;
+                // Every pattern's classes have the same name, which only works when each has its own loader
+                var pattern = DFACompiler.compile("[a-z]+" + n + "(x|yz)", "UnloadedPattern");
+                assertTrue(pattern.matcher("abc" + n + "yz").matches());
+            }
+            System.gc();
+            if (batch == 0) {
+                loadedAfterFirstBatch = classLoading.getLoadedClassCount();
+                metaspaceAfterFirstBatch = metaspaceUsed();
+            }
+        }
+        long loaded = classLoading.getLoadedClassCount();
+        long metaspace = metaspaceUsed();
+        assertTrue(classLoading.getUnloadedClassCount() - unloadedBefore >= patterns,
+                "Only unloaded " + (classLoading.getUnloadedClassCount() - unloadedBefore) + " classes");
+        // Without unloading, every pattern compiled after the first batch would add at least one class
+        assertTrue(loaded - loadedAfterFirstBatch < patterns / 2,
+                "Loaded classes grew from " + loadedAfterFirstBatch + " to " + loaded);
+        assertTrue(metaspace - metaspaceAfterFirstBatch < 16 * 1024 * 1024,
+                "Metaspace grew from " + metaspaceAfterFirstBatch + " to " + metaspace);
+    }
+
+    private static long metaspaceUsed() {
+        long used = 0;
+        for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.NON_HEAP && pool.getName().contains("Metaspace")) {
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+}
@@ -76,6 +76,52 @@ class DFAClassBuilderTest {
         }
     }
 
+    @Test
+    void encodesStatesAsShortsAndInts() throws Exception {
+        var regex = "(a|b)*a(a|b){3}";
+        var javaPattern = java.util.regex.Pattern.compile(regex);
+        var node = RegexParser.parse(regex, 0);
+        var nfa = new NFA(RegexInstrBuilder.createNFA(node));
+        var reversedNFA = new NFA(RegexInstrBuilder.createNFA(node.reversed()));
+        var dfa = NFAToDFACompiler.compile(nfa, ConversionMode.BASIC);
+        var containedInDFA = NFAToDFACompiler.compile(nfa, ConversionMode.CONTAINED_IN);
+        var reversedDFA = NFAToDFACompiler.compile(reversedNFA, ConversionMode.BASIC);
+        var searchDFA = NFAToDFACompiler.compile(nfa, ConversionMode.DFA_SEARCH);
+        var factorization = Factorization.buildFactorization(node);
+        for (var useInts : new boolean[]{false, true}) {
+            var name = useInts ? "intStates" : "shortStates";
+            var builder = new DFAClassBuilder(name, dfa, containedInDFA, reversedDFA, searchDFA,
+                    factorization, CompilerOptions.defaultOptions());
+            builder.maxByteStates = 1;
+            if (useInts) {
+                builder.maxShortStates = 1;
+            }
+            builder.initMethods();
+            var c = compileFromBuilder(builder, name);
+            var random = new Random(1);
+            for (int i = 0; i < 100; i++) {
+                var sb = new StringBuilder();
+                for (int j = random.nextInt(12); j > 0; j--) {
+                    sb.append(random.nextBoolean() ? 'a' : 'b');
+                }
+                var haystack = sb.toString();
+                var javaMatcher = javaPattern.matcher(haystack);
+                assertEquals(javaMatcher.matches(), matcher(c, haystack).matches(), haystack);
+                assertEquals(javaMatcher.find(0), matcher(c, haystack).containedIn(), haystack);
+                var matcher = matcher(c, haystack);
+                assertEquals(javaMatcher.find(0), matcher.find(), haystack);
+                if (javaMatcher.find(0)) {
+                    assertEquals(javaMatcher.start(), matcher.start(), haystack);
+                    assertEquals(javaMatcher.end(), matcher.end(), haystack);
+                }
+            }
+        }
+    }
+
+    private static Matcher matcher(Class<?> c, String haystack) throws Exception {
+        return (Matcher) c.getDeclaredConstructor(String.class).newInstance(haystack);
+    }
+
     @Test
     void buildPossiblyEmptyRange() {
         // This triggers handling of an empty string prefix
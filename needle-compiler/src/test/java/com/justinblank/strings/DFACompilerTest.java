@@ -2,17 +2,26 @@ package com.justinblank.strings;
 
 import com.justinblank.strings.RegexAST.Node;
 import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.quicktheories.QuickTheory;
 import org.quicktheories.core.Gen;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import static com.justinblank.strings.MatcherTestUtil.*;
 import static com.justinblank.strings.Pattern.*;
 import static com.justinblank.strings.SearchMethodTestUtil.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -571,6 +580,226 @@ public class DFACompilerTest {
         }
     }
 
+    @Test
+    void refusesRegexesEstimatedAboveTheLimitWithoutBuildingThem() {
+        var regex = "(a|b)*a(a|b){18}";
+        assertTrue(DFACompiler.estimateStates(regex, 0) > DFACompiler.DEFAULT_MAX_STATES);
+        var pattern = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> DFACompiler.compile(regex, "estimatedTooLarge"));
+        assertEquals(Engine.LAZY_DFA, Engine.of(pattern));
+    }
+
+    @Test
+    void stopsDeterminizingUnderestimatedRegexesPartway() {
+        // Estimated below the limit, but its DFAs are larger
+        var regex = "(a|b)*a(a|b){15}";
+        assertTrue(DFACompiler.estimateStates(regex, 0) < DFACompiler.DEFAULT_MAX_STATES);
+        var pattern = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> DFACompiler.compile(regex, "underestimated"));
+        assertEquals(Engine.LAZY_DFA, Engine.of(pattern));
+        assertTrue(pattern.matcher("a" + "b".repeat(15)).matches());
+
+        var exception = assertThrows(PatternClassCompilationException.class, () ->
+                DFACompiler.compile(regex, "underestimatedNoFallback", CompilerOptions.defaultOptions().withFallback(false)));
+        assertTrue(exception.getCause() instanceof DFATooLargeException);
+        assertTrue(exception.getCause().getMessage().contains("before minimization"));
+    }
+
+    @Test
+    void fallsBackToLazyDFAForExponentialPattern() {
+        var regex = "(a|b)*a(a|b){20}";
+        var pattern = DFACompiler.compile(regex, "exponentialFallback");
+        assertEquals(Engine.LAZY_DFA, Engine.of(pattern));
+        var haystack = "b" + "a" + "b".repeat(20);
+        assertTrue(pattern.matcher(haystack).matches());
+        assertFalse(pattern.matcher("b".repeat(5) + "a" + "b".repeat(19)).containedIn());
+        assertEquals(Engine.COMPILED_DFA, Engine.of(DFACompiler.compile("a(a|b){3}", "smallNoFallback")));
+
+        var exception = assertThrows(PatternClassCompilationException.class, () ->
+                DFACompiler.compile(regex, "exponentialNoFallback", CompilerOptions.defaultOptions().withFallback(false)));
+        assertTrue(exception.getCause() instanceof DFATooLargeException);
+    }
+
+    @Test
+    void refusesDFAsWithMoreStatesThanAConfiguredLimit() {
+        // Its DFA has 2^9 states after minimization, and more before
+        var regex = "(a|b)*a(a|b){8}";
+        var options = CompilerOptions.defaultOptions().withFallback(false).withOperations(MatcherOperation.MATCHES);
+        var exception = assertThrows(PatternClassCompilationException.class, () ->
+                DFACompiler.compile(regex, "loweredStateLimit", options.withMaxStates(256)));
+        assertTrue(exception.getCause() instanceof DFATooLargeException);
+
+        var pattern = DFACompiler.compile(regex, "configuredStateLimit", options.withMaxStates(1000));
+        assertEquals(Engine.COMPILED_DFA, Engine.of(pattern));
+        assertSameMatchesAsJava(regex, pattern, 8, new Random(2));
+    }
+
+    @Test
+    @Tag("slow")
+    void compilesDFAWithMoreStatesThanTheDefaultLimitWhenRaised() {
+        // Its DFA has 2^16 states after minimization, and more before
+        var regex = "(a|b)*a(a|b){15}";
+        var options = CompilerOptions.defaultOptions().withFallback(false).withOperations(MatcherOperation.MATCHES);
+        var exception = assertThrows(PatternClassCompilationException.class, () ->
+                DFACompiler.compile(regex, "defaultStateLimit", options));
+        assertTrue(exception.getCause() instanceof DFATooLargeException);
+
+        var pattern = DFACompiler.compile(regex, "raisedStateLimit", options.withMaxStates(1 << 18));
+        assertEquals(Engine.COMPILED_DFA, Engine.of(pattern));
+        assertSameMatchesAsJava(regex, pattern, 15, new Random(2));
+    }
+
+    private static void assertSameMatchesAsJava(String regex, Pattern pattern, int minLength, Random random) {
+        var javaPattern = java.util.regex.Pattern.compile(regex);
+        for (int i = 0; i < 100; i++) {
+            var sb = new StringBuilder();
+            for (int j = minLength - 1 + random.nextInt(10); j > 0; j--) {
+                sb.append(random.nextBoolean() ? 'a' : 'b');
+            }
+            var s = sb.toString();
+            assertEquals(javaPattern.matcher(s).matches(), pattern.matcher(s).matches(), s);
+        }
+    }
+
+    @Test
+    @Tag("slow")
+    void compilesDFAWithMoreStatesThanFitInAShort() {
+        var regex = "(a|b)*a(a|b){14}";
+        var pattern = DFACompiler.compile(regex, "intStateArrays", CompilerOptions.defaultOptions().withFallback(false));
+        assertEquals(Engine.COMPILED_DFA, Engine.of(pattern));
+        var javaPattern = java.util.regex.Pattern.compile(regex);
+        var random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            var sb = new StringBuilder();
+            for (int j = random.nextInt(40); j > 0; j--) {
+                sb.append(random.nextBoolean() ? 'a' : 'b');
+            }
+            var haystack = sb.toString();
+            assertEquals(javaPattern.matcher(haystack).matches(), pattern.matcher(haystack).matches(), haystack);
+            assertEquals(javaPattern.matcher(haystack).find(), pattern.matcher(haystack).containedIn(), haystack);
+        }
+    }
+
+    @Test
+    void operationsThatWerentBuiltAreCompiledOnFirstUse() {
+        var regexes = List.of("Sherlock", "[a-c]+d|x[b-e]", "(ab|a|bcdef|g)+", "[0-9]{3}-[0-9]{4}", "ε|λ", "a.*b");
+        var haystacks = List.of("", "Sherlock", "abcd xb\nSherlock", "acd\nxe 555-1234", "λ ab\nab", "xx aab\nbcdefg");
+        var operationSets = List.of(List.of(MatcherOperation.MATCHES), List.of(MatcherOperation.CONTAINED_IN),
+                List.of(MatcherOperation.FIND), List.of(MatcherOperation.MATCHES, MatcherOperation.FIND));
+        for (int i = 0; i < regexes.size(); i++) {
+            var regex = regexes.get(i);
+            var expected = DFACompiler.compile(regex, "allOperations" + i);
+            for (int j = 0; j < operationSets.size(); j++) {
+                var operations = operationSets.get(j);
+                var options = CompilerOptions.defaultOptions().withOperations(operations.get(0),
+                        operations.subList(1, operations.size()).toArray(new MatcherOperation[0]));
+                var pattern = DFACompiler.compile(regex, "someOperations" + i + "_" + j, options);
+                for (var haystack : haystacks) {
+                    var description = regex + " in " + haystack;
+                    assertSameMatches(expected.matcher(haystack), pattern.matcher(haystack), description);
+                    assertSameLines(expected.matcher(haystack), pattern.matcher(haystack), description);
+                }
+            }
+        }
+    }
+
+    @Test
+    void buildingFewerOperationsGeneratesSmallerClasses() {
+        var regex = "[A-Za-z]+ing|Sher(lock|ry)";
+        var all = DFACompiler.compileToBytes(regex, "allOperationsSize", CompilerOptions.defaultOptions());
+        var matchesOnly = DFACompiler.compileToBytes(regex, "matchesOnlySize",
+                CompilerOptions.defaultOptions().withOperations(MatcherOperation.MATCHES));
+        assertTrue(matchesOnly.length < all.length * 3 / 4, matchesOnly.length + " vs " + all.length);
+    }
+
+    @Test
+    void lineModeMembersAreOnlyGeneratedWithContainedIn() {
+        var matchesOnly = DFACompiler.compile("Sher(lock|ry)", "matchesOnlyLineFields",
+                CompilerOptions.defaultOptions().withOperations(MatcherOperation.MATCHES));
+        var fields = Arrays.stream(matchesOnly.matcher("").getClass().getDeclaredFields()).map(Field::getName)
+                .collect(Collectors.toSet());
+        assertFalse(fields.contains(DFAClassBuilder.NEXT_LINE_FIELD), fields.toString());
+        assertFalse(fields.contains(DFAClassBuilder.NEWLINE_CONSTANT), fields.toString());
+        assertTrue(matchesOnly.matcher("a\nSherry").findLine());
+
+        var all = DFACompiler.compile("Sher(lock|ry)", "allOperationsLineFields");
+        fields = Arrays.stream(all.matcher("").getClass().getDeclaredFields()).map(Field::getName)
+                .collect(Collectors.toSet());
+        assertTrue(fields.contains(DFAClassBuilder.NEXT_LINE_FIELD), fields.toString());
+    }
+
+    @Test
+    void buildingDFAsOnAnExecutorGeneratesTheSameClass() throws Exception {
+        var executor = Executors.newFixedThreadPool(3);
+        try {
+            var regexes = List.of("Sherlock", "[A-Za-z]+ing|Sher(lock|ry)", "(ab|a|bcdef|g)+", "[0-9]{3}-[0-9]{4}", "ε|λ");
+            for (int i = 0; i < regexes.size(); i++) {
+                var sequential = DFACompiler.compileToBytes(regexes.get(i), "sequential" + i, CompilerOptions.defaultOptions());
+                var concurrent = DFACompiler.compileToBytes(regexes.get(i), "sequential" + i,
+                        CompilerOptions.defaultOptions().withExecutor(executor));
+                assertArrayEquals(sequential, concurrent, regexes.get(i));
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void compilingOnABusyExecutorDoesNotWaitForIt() throws Exception {
+        var executor = Executors.newSingleThreadExecutor();
+        var release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            var options = CompilerOptions.defaultOptions().withExecutor(executor);
+            var pattern = DFACompiler.compile("[A-Za-z]+ing", "busyExecutor", options);
+            var matcher = pattern.matcher("Sherlock was singing");
+            assertTrue(matcher.find());
+            assertEquals(13, matcher.start());
+            assertEquals(20, matcher.end());
+        }
+        finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void compilesPatternsConcurrently() throws Exception {
+        var regexes = List.of("Sherlock", "[A-Za-z]+ing", "(ab|a|bcdef|g)+", "[0-9]{3}-[0-9]{4}", "ε|λ", "a.*b");
+        var executor = Executors.newFixedThreadPool(4);
+        var start = new CountDownLatch(1);
+        try {
+            var futures = new ArrayList<java.util.concurrent.Future<Pattern>>();
+            for (int i = 0; i < 24; i++) {
+                var regex = regexes.get(i % regexes.size());
+                var className = "concurrentlyCompiled" + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return DFACompiler.compile(regex, className);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < futures.size(); i++) {
+                var regex = regexes.get(i % regexes.size());
+                var pattern = futures.get(i).get();
+                var javaPattern = java.util.regex.Pattern.compile(regex);
+                for (var haystack : List.of("Sherlock singing", "ab 555-1234", "λ", "bcdefg")) {
+                    assertEquals(javaPattern.matcher(haystack).find(), pattern.matcher(haystack).containedIn(), regex);
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     void largeRegex() {
         String largeRegex = CORE_LARGE_REGEX_STRING + "4}";
@@ -772,6 +1001,242 @@ public class DFACompilerTest {
         assertNotEquals(0, nonMatches);
     }
 
+    @Test
+    void alternateInputFileBasedTests() throws Exception {
+        var baseName = "dfaAlternateInputFileBasedTests";
+        var counter = new AtomicInteger();
+        var patterns = new HashMap<Pair<String, Integer>, Pattern>();
+        var errors = new ArrayList<String>();
+        for (var spec : new RegexTestSpecParser().readTests()) {
+            int flags = generateFlags(spec);
+            var pattern = patterns.computeIfAbsent(Pair.of(spec.pattern, flags), (p) -> DFACompiler.compile(spec.pattern, baseName + counter.incrementAndGet(), flags));
+            var description = "spec='" + spec.pattern + "' with flags=" + flags + " against needle='" + spec.target + "'";
+            // Surround the slice with copies of the target, so that reading outside the slice changes the result
+            var padded = (spec.target + spec.target + spec.target).toCharArray();
+            var offset = spec.target.length();
+            try {
+                compareToStringMatcher(errors, "CharSequence " + description, pattern, spec.target,
+                        () -> pattern.matcher(new StringBuilder(spec.target)));
+                compareToStringMatcher(errors, "char[] " + description, pattern, spec.target,
+                        () -> pattern.matcher(padded, offset, spec.target.length()));
+                if (spec.target.chars().allMatch(c -> c <= 0xFF)) {
+                    var bytes = (spec.target + spec.target + spec.target).getBytes(StandardCharsets.ISO_8859_1);
+                    compareToStringMatcher(errors, "Latin-1 " + description, pattern, spec.target,
+                            () -> pattern.matcher(bytes, offset, spec.target.length(), StandardCharsets.ISO_8859_1));
+                }
+                // Surrogates match individually in a String, but only as whole code points in UTF-8
+                if (!hasSurrogates(spec.pattern) && !hasSurrogates(spec.target)) {
+                    var encoded = spec.target.getBytes(StandardCharsets.UTF_8);
+                    var bytes = (spec.target + spec.target + spec.target).getBytes(StandardCharsets.UTF_8);
+                    compareToStringMatcher(errors, "UTF-8 " + description, pattern, spec.target,
+                            () -> pattern.matcher(bytes, encoded.length, encoded.length, StandardCharsets.UTF_8),
+                            i -> spec.target.substring(0, i).getBytes(StandardCharsets.UTF_8).length);
+                    var buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+                    buffer.position(encoded.length).limit(2 * encoded.length);
+                    compareToStringMatcher(errors, "UTF-8 ByteBuffer " + description, pattern, spec.target,
+                            () -> pattern.matcher(buffer, StandardCharsets.UTF_8),
+                            i -> spec.target.substring(0, i).getBytes(StandardCharsets.UTF_8).length);
+                }
+            }
+            catch (Throwable t) {
+                errors.add("Error matching " + description + ": " + t);
+            }
+        }
+        if (!errors.isEmpty()) {
+            for (var error : errors) {
+                System.out.println(error);
+            }
+            fail("Errors in alternate input file based tests");
+        }
+    }
+
+    private static boolean hasSurrogates(String s) {
+        return s.chars().anyMatch(c -> Character.isSurrogate((char) c));
+    }
+
+    private static void compareToStringMatcher(List<String> errors, String description, Pattern pattern, String target,
+                                               java.util.function.Supplier<Matcher> matcherSupplier) {
+        compareToStringMatcher(errors, description, pattern, target, matcherSupplier, i -> i);
+    }
+
+    /**
+     * @param toIndex converts an index in target to the corresponding index in the input read by the matcher
+     */
+    private static void compareToStringMatcher(List<String> errors, String description, Pattern pattern, String target,
+                                               java.util.function.Supplier<Matcher> matcherSupplier,
+                                               java.util.function.IntUnaryOperator toIndex) {
+        if (pattern.matcher(target).matches() != matcherSupplier.get().matches()) {
+            errors.add("Different results for matches on " + description);
+        }
+        if (pattern.matcher(target).containedIn() != matcherSupplier.get().containedIn()) {
+            errors.add("Different results for containedIn on " + description);
+        }
+        var stringMatcher = pattern.matcher(target);
+        var matcher = matcherSupplier.get();
+        var found = stringMatcher.find();
+        if (found != matcher.find()) {
+            errors.add("Different results for find on " + description);
+        } else if (found && (toIndex.applyAsInt(stringMatcher.start()) != matcher.start()
+                || toIndex.applyAsInt(stringMatcher.end()) != matcher.end())) {
+            errors.add("Different indexes for find on " + description);
+        }
+    }
+
+    @Test
+    void charSequenceMatcherReadsFromSequence() {
+        var pattern = DFACompiler.compile("Sher(lock|ry)", "charSequenceMatcher");
+        var sb = new StringBuilder("Sherlock Holmes");
+        assertTrue(pattern.matcher(sb).containedIn());
+        assertFalse(pattern.matcher(sb).matches());
+        var matcher = pattern.matcher(java.nio.CharBuffer.wrap("My name is Sherlock Holmes"));
+        assertTrue(matcher.find());
+        assertEquals(11, matcher.start());
+        assertEquals(19, matcher.end());
+        assertTrue(pattern.matcher((CharSequence) "Sherry").matches());
+        assertFalse(pattern.matcher(new StringBuilder("Watson")).containedIn());
+    }
+
+    @Test
+    void charArrayMatcherReadsOnlyFromSlice() {
+        var pattern = DFACompiler.compile("Sher(lock|ry)", "charArrayMatcher");
+        var data = "Sherlock Sherry Watson".toCharArray();
+        assertTrue(pattern.matcher(data, 0, 8).matches());
+        assertTrue(pattern.matcher(data, 9, 6).matches());
+        assertFalse(pattern.matcher(data, 9, 5).containedIn());
+        assertFalse(pattern.matcher(data, 16, 6).containedIn());
+        var matcher = pattern.matcher(data, 1, 20);
+        assertTrue(matcher.find());
+        assertEquals(8, matcher.start());
+        assertEquals(14, matcher.end());
+        assertThrows(IndexOutOfBoundsException.class, () -> pattern.matcher(data, 20, 3));
+    }
+
+    @Test
+    void utf8MatcherReportsByteOffsets() {
+        var pattern = DFACompiler.compile("caf.(s|é)", "utf8Matcher");
+        var data = "Le cafés à Zürich, caféé".getBytes(StandardCharsets.UTF_8);
+        var matcher = pattern.matcher(data, 0, data.length, StandardCharsets.UTF_8);
+        assertTrue(matcher.find());
+        assertEquals(3, matcher.start());
+        assertEquals(9, matcher.end());
+        assertTrue(matcher.find());
+        assertEquals(22, matcher.start());
+        assertEquals(29, matcher.end());
+        assertFalse(matcher.find());
+        assertTrue(pattern.matcher(data, 22, 7, StandardCharsets.UTF_8).matches());
+        // A slice that cuts the last character in half
+        assertFalse(pattern.matcher(data, 22, 6, StandardCharsets.UTF_8).containedIn());
+    }
+
+    @Test
+    void utf8MatcherFallsBackToLazyDFAWhenOnlyTheByteDFAIsTooLarge() {
+        // Each é is two bytes, so the DFAs over UTF-8 are much larger than those over chars
+        var regex = "(a|é)*a(a|é){8}";
+        var options = CompilerOptions.defaultOptions().withMaxStates(1000);
+        var pattern = DFACompiler.compile(regex, "utf8Fallback", options);
+        assertEquals(Engine.COMPILED_DFA, Engine.of(pattern));
+        var s = "éa" + "é".repeat(8);
+        assertTrue(pattern.matcher(s).matches());
+        var bytes = s.getBytes(StandardCharsets.UTF_8);
+        var matcher = pattern.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8);
+        assertTrue(matcher instanceof LazyDFAMatcher);
+        assertTrue(matcher.find());
+        assertEquals(0, matcher.start());
+        assertEquals(bytes.length, matcher.end());
+        assertTrue(pattern.matcher(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8).matches());
+        // The fallback is remembered, so later matchers don't try to compile the class again
+        assertTimeoutPreemptively(Duration.ofMillis(500), () -> {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(pattern.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8).matches());
+            }
+        });
+
+        var noFallback = DFACompiler.compile(regex, "utf8NoFallback", options.withFallback(false));
+        var first = assertThrows(PatternClassCompilationException.class,
+                () -> noFallback.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8));
+        assertTrue(first.getCause() instanceof DFATooLargeException);
+        var second = assertTimeoutPreemptively(Duration.ofMillis(500), () -> assertThrows(PatternClassCompilationException.class,
+                () -> noFallback.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8)));
+        assertSame(first, second);
+    }
+
+    @Test
+    void utf8MatcherMatchesWholeCodePoints() {
+        var pattern = DFACompiler.compile("a.b", "utf8CodePoints");
+        for (var s : List.of("aéb", "a€b", "a😀b")) {
+            var bytes = s.getBytes(StandardCharsets.UTF_8);
+            assertTrue(pattern.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8).matches(), s);
+        }
+        var invalid = new byte[]{'a', (byte) 0xC3, 'b'};
+        assertFalse(pattern.matcher(invalid, 0, invalid.length, StandardCharsets.UTF_8).matches());
+        var bytes = "aéb".getBytes(StandardCharsets.ISO_8859_1);
+        assertTrue(pattern.matcher(bytes, 0, bytes.length, StandardCharsets.ISO_8859_1).matches());
+        assertThrows(UnsupportedOperationException.class, () -> pattern.matcher(bytes, 0, 3, StandardCharsets.UTF_16));
+    }
+
+    @Test
+    void byteBufferMatcherReadsBetweenPositionAndLimit() {
+        var pattern = DFACompiler.compile("Sher(lock|ry)", "byteBufferMatcher");
+        var bytes = "Sherlock Sherry Watson".getBytes(StandardCharsets.US_ASCII);
+        for (var buffer : List.of(ByteBuffer.wrap(bytes), ByteBuffer.allocateDirect(bytes.length).put(bytes).flip())) {
+            buffer.position(9).limit(15);
+            assertTrue(pattern.matcher(buffer, StandardCharsets.UTF_8).matches());
+            assertTrue(pattern.matcher(buffer, StandardCharsets.ISO_8859_1).matches());
+            assertEquals(9, buffer.position());
+            assertEquals(15, buffer.limit());
+            buffer.position(1).limit(22);
+            var matcher = pattern.matcher(buffer, StandardCharsets.UTF_8);
+            assertTrue(matcher.find());
+            assertEquals(8, matcher.start());
+            assertEquals(14, matcher.end());
+            buffer.position(16);
+            assertFalse(pattern.matcher(buffer, StandardCharsets.UTF_8).containedIn());
+        }
+    }
+
+    @Test
+    void findLineReportsMatchingLines() {
+        var text = "Sherlock Holmes\n\nwatson\nMrs. Hudson, Sherry\nSher\nlock\nMoriarty";
+        var regexes = List.of("Sher(lock|ry)", "[a-z]+son", "o", "x*", "Sher\nlock", "[^a]+", "Moriarty", "é");
+        for (var regex : regexes) {
+            var pattern = anonymousPattern(regex);
+            var expected = expectedLines(regex, text);
+            assertEquals(expected, foundLines(pattern.matcher(text)), regex);
+            assertEquals(expected, foundLines(pattern.matcher((CharSequence) new StringBuilder(text))), regex);
+            var padded = ("xx\n" + text + "\nyy").toCharArray();
+            // Offsets are relative to the slice, and the newline ending the slice doesn't start another line
+            assertEquals(expected, foundLines(pattern.matcher(padded, 3, text.length() + 1)), regex);
+        }
+    }
+
+    private static List<List<Integer>> expectedLines(String regex, String text) {
+        var javaPattern = java.util.regex.Pattern.compile(regex);
+        var lines = new ArrayList<List<Integer>>();
+        int lineStart = 0;
+        int lineNumber = 1;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd == -1) {
+                lineEnd = text.length();
+            }
+            if (javaPattern.matcher(text.substring(lineStart, lineEnd)).find()) {
+                lines.add(List.of(lineNumber, lineStart, lineEnd));
+            }
+            lineStart = lineEnd + 1;
+            lineNumber++;
+        }
+        return lines;
+    }
+
+    private static List<List<Integer>> foundLines(Matcher matcher) {
+        var lines = new ArrayList<List<Integer>>();
+        while (matcher.findLine()) {
+            lines.add(List.of(matcher.lineNumber(), matcher.lineStart(), matcher.lineEnd()));
+        }
+        assertFalse(matcher.findLine());
+        return lines;
+    }
+
     private static int generateFlags(RegexTestSpec spec) {
         if (spec.flags != null) {
             return spec.flags.flags;
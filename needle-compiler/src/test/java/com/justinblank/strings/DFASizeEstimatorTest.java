@@ -0,0 +1,121 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DFASizeEstimatorTest {
+
+    @Test
+    void literalsAreLinear() {
+        assertTrue(estimate("Sherlock") < 100);
+        assertTrue(estimate("Sherlock|Watson|Holmes") < 100);
+        assertTrue(estimate("[A-Z][a-z]+ing") < 100);
+    }
+
+    @Test
+    void countedRepetitionsAreExpanded() {
+        long estimate = estimate("a{1000}");
+        assertTrue(estimate >= 1000, "Estimate was " + estimate);
+        assertTrue(estimate < 2000, "Estimate was " + estimate);
+    }
+
+    @Test
+    void repetitionsOfOneClassAreLinear() {
+        assertTrue(estimate("[0-9]{20}") < 100);
+        assertTrue(estimate("[0-9]{3}-[0-9]{4}") < 100);
+    }
+
+    @Test
+    void windowsAfterLoopsAreExponential() {
+        assertTrue(estimate("(a|b)*a(a|b){20}") >= 1 << 20);
+        assertTrue(estimate("a.{20}") >= 1 << 20);
+        assertTrue(estimate("a.{100}") >= 1L << 62);
+    }
+
+    @Test
+    void windowsFollowOneBranchOfAUnion() {
+        long estimate = estimate("Holmes.{1,10}Watson|Watson.{1,10}Holmes");
+        assertTrue(estimate >= 1 << 10, "Estimate was " + estimate);
+        assertTrue(estimate < 1 << 11, "Estimate was " + estimate);
+        assertTrue(estimate("b|a.{20}") >= 1 << 20);
+        assertTrue(estimate("(b|c)a.{20}") >= 1 << 20);
+    }
+
+    @Test
+    void countedRepetitionsOfUnionsTerminate() {
+        assertTrue(estimate("((AB)|(BA)){1,2}") < 100);
+        assertTrue(estimate("(a|bc){3}.*a.{20}") >= 1 << 20);
+    }
+
+    @Test
+    void estimatesAreNearActualSizes() {
+        for (String regex : new String[]{"(a|b)*a(a|b){10}", "[0-9]{3}-[0-9]{4}", "Sher(lock|ry)"}) {
+            var nfa = NFA.createNFANoAhoCorasick(regex);
+            int actual = NFAToDFACompiler.compile(nfa, ConversionMode.DFA_SEARCH).statesCount();
+            long estimate = estimate(regex);
+            assertTrue(estimate >= actual / 4 && estimate <= actual * 4L,
+                    "Estimate for " + regex + " was " + estimate + ", actual was " + actual);
+        }
+    }
+
+    @Test
+    void utf8EstimatesScaleByEncodedLength() {
+        for (String regex : new String[]{"Sherlock|Watson", "(a|b)*a(a|b){10}", "[0-9]{3}-[0-9]{4}"}) {
+            assertEquals(estimate(regex), estimateUtf8(regex), regex);
+        }
+        assertTrue(estimateUtf8("(a|é)*a(a|é){12}") >= 2 * estimate("(a|é)*a(a|é){12}"));
+        assertTrue(estimateUtf8("(a|€)*a(a|€){12}") >= 3 * estimate("(a|€)*a(a|€){12}"));
+        assertTrue(estimateUtf8(".*a.{20}") >= 4L << 20);
+    }
+
+    @Test
+    void utf8EstimatesAreNearActualSizes() {
+        for (String regex : new String[]{"(a|é)*a(a|é){8}", "caf(é|e)s?"}) {
+            var encoded = Utf8Encoding.encode(RegexParser.parse(regex, 0));
+            var nfa = new NFA(RegexInstrBuilder.createNFA(encoded, false));
+            int actual = NFAToDFACompiler.compile(nfa, ConversionMode.DFA_SEARCH).statesCount();
+            long estimate = estimateUtf8(regex);
+            assertTrue(estimate >= actual / 4 && estimate <= actual * 4L,
+                    "Estimate for " + regex + " was " + estimate + ", actual was " + actual);
+        }
+    }
+
+    @Test
+    void compilerRejectsUtf8MatchersEstimatedAboveTheLimit() {
+        var regex = "(a|é)*a(a|é){15}";
+        assertTrue(estimate(regex) < DFACompiler.DEFAULT_MAX_STATES);
+        var exception = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThrows(PatternClassCompilationException.class,
+                () -> DFACompiler.compileToBytes(regex, "utf8EstimatedTooLarge", CompilerOptions.defaultOptions(), InputType.UTF8_BYTES)));
+        assertTrue(exception.getCause() instanceof DFATooLargeException);
+        assertTrue(exception.getCause().getMessage().startsWith("Estimated"), exception.getCause().getMessage());
+    }
+
+    @Test
+    void fitsByteClasses() {
+        assertTrue(DFASizeEstimator.fitsByteClasses(RegexParser.parse("[a-z]+[0-9]{3}")));
+        var manyChars = new StringBuilder();
+        for (char c = 'Ā'; c < '̀'; c++) {
+            manyChars.append(c);
+        }
+        assertFalse(DFASizeEstimator.fitsByteClasses(RegexParser.parse(manyChars.toString())));
+    }
+
+    @Test
+    void compilerRejectsExponentialRegexesWithoutBuildingThem() {
+        var pattern = DFACompiler.compile("(a|b)*a(a|b){40}", "estimatedTooLarge");
+        assertEquals(Engine.LAZY_DFA, Engine.of(pattern));
+        assertTrue(pattern.matcher("a" + "b".repeat(40)).matches());
+    }
+
+    private static long estimate(String regex) {
+        return DFACompiler.estimateStates(regex, 0);
+    }
+
+    private static long estimateUtf8(String regex) {
+        var node = RegexParser.parse(regex, 0);
+        return DFASizeEstimator.estimateUtf8(node, Utf8Encoding.encode(node));
+    }
+}
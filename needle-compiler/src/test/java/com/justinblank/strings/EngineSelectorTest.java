@@ -0,0 +1,101 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.justinblank.strings.MatcherTestUtil.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineSelectorTest {
+
+    private static final CompilerOptions ONE_SHOT = CompilerOptions.defaultOptions().withExpectedUses(1);
+    private static final CompilerOptions HOT = CompilerOptions.defaultOptions().withExpectedUses(10_000_000);
+
+    @Test
+    void oneShotPatternsDoNotGenerateClasses() {
+        assertEquals(Engine.LITERAL, EngineSelector.choose("Sherlock", ONE_SHOT));
+        assertEquals(Engine.LITERAL, EngineSelector.choose("Sher(lock)", ONE_SHOT));
+        assertEquals(Engine.LAZY_DFA, EngineSelector.choose("Sher(lock|ry)", ONE_SHOT));
+        assertEquals(Engine.LAZY_DFA, EngineSelector.choose("[a-z]+[0-9]", ONE_SHOT));
+    }
+
+    @Test
+    void hotPatternsAreCompiled() {
+        assertEquals(Engine.COMPILED_DFA, EngineSelector.choose("Sherlock", HOT));
+        assertEquals(Engine.COMPILED_DFA, EngineSelector.choose("Sher(lock|ry)", HOT));
+        assertEquals(Engine.COMPILED_DFA, EngineSelector.choose("Sherlock", CompilerOptions.defaultOptions()));
+    }
+
+    @Test
+    void patternsTooLargeToCompileUseTheLazyDFA() {
+        assertEquals(Engine.LAZY_DFA, EngineSelector.choose(".*a.{40}", HOT));
+    }
+
+    @Test
+    void caseInsensitiveLiteralsAreNotSearchedForLiterally() {
+        var options = new CompilerOptions(Pattern.CASE_INSENSITIVE, CharacterDistribution.DEFAULT, DebugOptions.none())
+                .withExpectedUses(1);
+        assertEquals(Engine.LAZY_DFA, EngineSelector.choose("Sherlock", options));
+    }
+
+    @Test
+    void compiledPatternsUseTheChosenEngine() {
+        for (var options : new CompilerOptions[]{ONE_SHOT, HOT}) {
+            for (var regex : new String[]{"Sherlock", "Sher(lock|ry)", "[0-9]{2,3}"}) {
+                var pattern = EngineSelector.compile(regex, "SelectedPattern", options);
+                assertEquals(EngineSelector.choose(regex, options), Engine.of(pattern));
+            }
+        }
+    }
+
+    @Test
+    void literalPatternsFindSuccessiveMatches() {
+        var pattern = EngineSelector.compile("Sher\\.lock", "SelectedLiteral", ONE_SHOT);
+        assertEquals(Engine.LITERAL, Engine.of(pattern));
+        var text = "Sher.lock and Sherlock and Sher.lock";
+        var matcher = pattern.matcher(text);
+        var expected = DFACompiler.compile("Sher\\.lock", "ExpectedLiteral").matcher(text);
+        while (expected.find()) {
+            assertTrue(matcher.find());
+            assertEquals(expected.start(), matcher.start());
+            assertEquals(expected.end(), matcher.end());
+        }
+        assertFalse(matcher.find());
+        assertTrue(pattern.matcher("Sher.lock").matches());
+        assertFalse(pattern.matcher("Sher.lock ").matches());
+        assertTrue(pattern.matcher("a Sher.lock").containedIn());
+        assertFalse(pattern.matcher("Sherlock").containedIn());
+        var bounded = pattern.matcher(text);
+        assertFalse(bounded.find(1, 20));
+        assertTrue(bounded.find(0, 9));
+    }
+
+    @Test
+    void everyEngineSupportsTheWholeApi() {
+        var text = "Élémentaire, Sherlock\nSherry\nSher.lock and Élémentaire\n";
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (var options : new CompilerOptions[]{ONE_SHOT, HOT}) {
+            for (var regex : new String[]{"Élémentaire", "Sherlock", "Sher(lock|ry)"}) {
+                var pattern = EngineSelector.compile(regex, "SelectedApiPattern", options);
+                var expected = DFACompiler.compile(regex, "ExpectedApiPattern");
+                var description = regex + " with " + Engine.of(pattern);
+                assertSameMatches(expected.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8),
+                        pattern.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8), description);
+                assertSameMatches(expected.matcher(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8),
+                        pattern.matcher(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8), description);
+                assertSameMatches(expected.matcher(text.toCharArray(), 0, text.length()),
+                        pattern.matcher(text.toCharArray(), 0, text.length()), description);
+                assertSameLines(expected.matcher(text), pattern.matcher(text), description);
+                assertSameLines(expected.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8),
+                        pattern.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8), description);
+            }
+        }
+    }
+
+    @Test
+    void rejectsNegativeExpectedUses() {
+        assertThrows(IllegalArgumentException.class, () -> CompilerOptions.defaultOptions().withExpectedUses(-1));
+    }
+}
@@ -0,0 +1,185 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.justinblank.strings.MatcherTestUtil.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyDFAPatternTest {
+
+    private static final String EXPONENTIAL_REGEX = "(a|b)*a(a|b){20}";
+
+    @Test
+    void fileBasedTests() throws Exception {
+        var patterns = new HashMap<String, LazyDFAPattern>();
+        var errors = new ArrayList<String>();
+        for (var spec : new RegexTestSpecParser().readTests()) {
+            int flags = spec.flags != null ? spec.flags.flags : 0;
+            var pattern = patterns.computeIfAbsent(spec.pattern + "/" + flags, p -> LazyDFAPattern.compile(spec.pattern, flags));
+            var description = "spec='" + spec.pattern + "' with flags=" + flags + " against needle='" + spec.target + "'";
+            try {
+                var matcher = pattern.matcher(spec.target);
+                if (matcher.containedIn() != spec.successful) {
+                    errors.add("Wrong result for containedIn on " + description + ", expected " + spec.successful);
+                }
+                boolean found = matcher.find();
+                if (found != spec.successful) {
+                    errors.add("Wrong result for find on " + description + ", expected " + spec.successful);
+                }
+                else if (found && (matcher.start() != spec.start || matcher.end() != spec.end)) {
+                    errors.add("Wrong indexes for " + description + ", expected start=" + spec.start + ", end=" + spec.end
+                            + ", actual start=" + matcher.start() + ", end=" + matcher.end());
+                }
+            }
+            catch (Exception e) {
+                errors.add("Error matching " + description + ": " + e);
+            }
+        }
+        if (!errors.isEmpty()) {
+            errors.forEach(System.out::println);
+            fail("Errors in lazy DFA file based tests");
+        }
+    }
+
+    @Test
+    void matchesRegexWithExponentialDFA() {
+        var pattern = LazyDFAPattern.compile(EXPONENTIAL_REGEX);
+        var javaPattern = java.util.regex.Pattern.compile(EXPONENTIAL_REGEX);
+        var random = new Random(31);
+        for (int i = 0; i < 200; i++) {
+            var s = randomString(random, "abc", 60);
+            assertSameResults(pattern, javaPattern, s);
+        }
+    }
+
+    @Test
+    void clearsCacheWhenFull() {
+        var pattern = LazyDFAPattern.compile(EXPONENTIAL_REGEX, 0, 16);
+        var javaPattern = java.util.regex.Pattern.compile(EXPONENTIAL_REGEX);
+        var random = new Random(37);
+        for (int i = 0; i < 50; i++) {
+            assertSameResults(pattern, javaPattern, randomString(random, "ab", 200));
+        }
+        assertTrue(pattern.search.clears() > 0);
+    }
+
+    @Test
+    void sharesCacheBetweenThreads() throws Exception {
+        var pattern = LazyDFAPattern.compile(EXPONENTIAL_REGEX, 0, 64);
+        var javaPattern = java.util.regex.Pattern.compile(EXPONENTIAL_REGEX);
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int thread = 0; thread < 4; thread++) {
+                var random = new Random(thread);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        assertSameResults(pattern, javaPattern, randomString(random, "ab", 100));
+                    }
+                }));
+            }
+            for (var future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void findsSuccessiveMatches() {
+        var matcher = LazyDFAPattern.compile("Sher(lock|ry)").matcher("Sherlock and Sherry");
+        var ends = new ArrayList<Integer>();
+        while (matcher.find()) {
+            ends.add(matcher.end());
+        }
+        assertEquals(List.of(8, 19), ends);
+        assertTrue(LazyDFAPattern.compile("a*").matcher("").matches());
+        assertTrue(LazyDFAPattern.compile("a*").matcher("aaa").find(1, 3));
+    }
+
+    @Test
+    void matchesLikeGeneratedPatternsOverEveryInput() {
+        var regex = "[α-ω]+a|é|b\\s";
+        var lazy = LazyDFAPattern.compile(regex);
+        var compiled = DFACompiler.compile(regex, "LazyComparisonPattern");
+        var random = new Random(17);
+        for (int i = 0; i < 200; i++) {
+            var s = randomString(random, "aébαω \n", 30);
+            var bytes = s.getBytes(StandardCharsets.UTF_8);
+            assertSameMatches(compiled.matcher(s), lazy.matcher(s), s);
+            assertSameMatches(compiled.matcher((CharSequence) new StringBuilder(s)),
+                    lazy.matcher((CharSequence) new StringBuilder(s)), s);
+            assertSameMatches(compiled.matcher(s.toCharArray(), 0, s.length()),
+                    lazy.matcher(s.toCharArray(), 0, s.length()), s);
+            assertSameMatches(compiled.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8),
+                    lazy.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8), s);
+            assertSameMatches(compiled.matcher(ByteBuffer.allocateDirect(bytes.length).put(bytes).flip(), StandardCharsets.UTF_8),
+                    lazy.matcher(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8), s);
+            assertSameLines(compiled.matcher(s), lazy.matcher(s), s);
+            assertSameLines(compiled.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8),
+                    lazy.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8), s);
+        }
+    }
+
+    @Test
+    void fallbackMatchesUtf8BytesAndLines() {
+        var pattern = DFACompiler.compile(EXPONENTIAL_REGEX, "FallbackUtf8Pattern");
+        assertEquals(Engine.LAZY_DFA, Engine.of(pattern));
+        var match = "a" + "b".repeat(20);
+        var text = "é\nnothing here\nü " + match + "\n";
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        int matchStart = text.indexOf(match) + 2;
+
+        var matcher = pattern.matcher(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8);
+        assertTrue(matcher.find());
+        assertEquals(matchStart, matcher.start());
+        assertEquals(matchStart + match.length(), matcher.end());
+        assertFalse(matcher.find());
+
+        var lines = pattern.matcher(text);
+        assertTrue(lines.findLine());
+        assertEquals(3, lines.lineNumber());
+        assertEquals(text.lastIndexOf("ü"), lines.lineStart());
+        assertEquals(text.length() - 1, lines.lineEnd());
+        assertFalse(lines.findLine());
+
+        var byteLines = pattern.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8);
+        assertTrue(byteLines.findLine());
+        assertEquals(3, byteLines.lineNumber());
+        assertEquals(bytes.length - 1, byteLines.lineEnd());
+    }
+
+    private static void assertSameResults(LazyDFAPattern pattern, java.util.regex.Pattern javaPattern, String s) {
+        var javaMatcher = javaPattern.matcher(s);
+        assertEquals(javaMatcher.matches(), pattern.matcher(s).matches(), s);
+        assertEquals(javaMatcher.reset().find(), pattern.matcher(s).containedIn(), s);
+        var matcher = pattern.matcher(s);
+        javaMatcher.reset();
+        while (javaMatcher.find()) {
+            assertTrue(matcher.find(), s);
+            assertEquals(javaMatcher.start(), matcher.start(), s);
+            assertEquals(javaMatcher.end(), matcher.end(), s);
+        }
+        assertFalse(matcher.find(), s);
+    }
+
+    private static String randomString(Random random, String alphabet, int maxLength) {
+        var sb = new StringBuilder();
+        int length = random.nextInt(maxLength);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LexerCompilerTest {
+
+    private static final AtomicInteger CLASS_NAME_COUNTER = new AtomicInteger();
+
+    private static final List<String> TOKENS = List.of("if", "else", "[a-z][a-z0-9]*", "[0-9]+", "[0-9]+\\.[0-9]+",
+            "=", "==", "[ \n]+", "\"[^\"]*\"", "é+");
+
+    @Test
+    void findsLongestToken() {
+        var lexer = compile(TOKENS, 0);
+        assertEquals(TOKENS.size(), lexer.tokenTypes());
+        assertToken(lexer, "if x", 0, 0, 2);
+        assertToken(lexer, "iffy", 0, 2, 4);
+        assertToken(lexer, "x == 1.5", 2, 6, 4);
+        assertToken(lexer, "x == 1.5", 5, 4, 8);
+        assertToken(lexer, "x == 1.", 5, 3, 6);
+        assertToken(lexer, "\"a b\"", 0, 8, 5);
+        assertEquals(Lexer.NO_TOKEN, lexer.nextToken("x + 1", 2));
+        assertEquals(Lexer.NO_TOKEN, lexer.nextToken("\"unterminated", 0));
+    }
+
+    @Test
+    void matchesReferenceTokenizer() {
+        var lexer = compile(TOKENS, 0);
+        var random = new Random(23);
+        var alphabet = "ifelsxyz019.=\" \né+";
+        for (int i = 0; i < 500; i++) {
+            var sb = new StringBuilder();
+            int length = random.nextInt(25);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            var s = sb.toString();
+            for (int start = 0; start < s.length(); start++) {
+                assertEquals(expected(TOKENS, s, start), lexer.nextToken(s, start), s + " at " + start);
+            }
+        }
+    }
+
+    @Test
+    void tokenizesDocument() {
+        var lexer = compile(TOKENS, 0);
+        var s = "if x == 10 else y = \"done\"";
+        var types = new ArrayList<Integer>();
+        int index = 0;
+        while (index < s.length()) {
+            long token = lexer.nextToken(s, index);
+            assertNotEquals(Lexer.NO_TOKEN, token);
+            types.add(Lexer.tokenType(token));
+            index = Lexer.tokenEnd(token);
+        }
+        assertEquals(List.of(0, 7, 2, 7, 6, 7, 3, 7, 1, 7, 2, 7, 5, 7, 8), types);
+    }
+
+    @Test
+    void appliesFlags() {
+        var lexer = compile(List.of("select", "[a-z]+"), Pattern.CASE_INSENSITIVE);
+        assertToken(lexer, "SELECT", 0, 0, 6);
+        assertToken(lexer, "Selection", 0, 1, 9);
+    }
+
+    @Test
+    void rejectsTokensMatchingEmptyString() {
+        assertThrows(IllegalArgumentException.class, () -> compile(List.of("a", "b*"), 0));
+        assertThrows(IllegalArgumentException.class, () -> compile(List.of(), 0));
+    }
+
+    private static void assertToken(Lexer lexer, String s, int start, int tokenType, int end) {
+        long token = lexer.nextToken(s, start);
+        assertEquals(tokenType, Lexer.tokenType(token), s);
+        assertEquals(end, Lexer.tokenEnd(token), s);
+    }
+
+    private static Lexer compile(List<String> tokens, int flags) {
+        return LexerCompiler.compile(tokens, "Lexer" + CLASS_NAME_COUNTER.incrementAndGet(), flags);
+    }
+
+    private static long expected(List<String> tokens, String s, int start) {
+        int bestType = -1;
+        int bestEnd = -1;
+        for (int i = 0; i < tokens.size(); i++) {
+            var matcher = java.util.regex.Pattern.compile(tokens.get(i)).matcher(s);
+            for (int end = s.length(); end > Math.max(bestEnd, start); end--) {
+                if (matcher.region(start, end).matches()) {
+                    bestType = i;
+                    bestEnd = end;
+                    break;
+                }
+            }
+        }
+        return bestType == -1 ? Lexer.NO_TOKEN : Lexer.token(bestType, bestEnd);
+    }
+}
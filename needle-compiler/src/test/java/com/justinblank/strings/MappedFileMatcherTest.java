@@ -0,0 +1,73 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileMatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void findsAllMatchesAsByteOffsets() throws IOException {
+        var text = "Sherlock Holmes und Sherry Wätson trafen Sherlock; Sherlöck und Sherry. ".repeat(50);
+        var file = tempDir.resolve("sherlock.txt");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        var pattern = MappedFilePattern.compile("Sher(lock|ry|löck)");
+        // Small segments so that matches and multi-byte characters straddle segment boundaries
+        for (int segmentSize : new int[]{16, 64, MappedFilePattern.DEFAULT_SEGMENT_SIZE}) {
+            try (var matcher = pattern.matcher(file, segmentSize)) {
+                var javaMatcher = java.util.regex.Pattern.compile("Sher(lock|ry|löck)").matcher(text);
+                int count = 0;
+                while (matcher.find()) {
+                    assertTrue(javaMatcher.find());
+                    assertEquals(byteOffset(text, javaMatcher.start()), matcher.start());
+                    assertEquals(byteOffset(text, javaMatcher.end()), matcher.end());
+                    count++;
+                }
+                assertFalse(javaMatcher.find());
+                assertEquals(250, count);
+            }
+        }
+    }
+
+    @Test
+    void handlesEmptyAndNonMatchingFiles() throws IOException {
+        var empty = tempDir.resolve("empty.txt");
+        Files.writeString(empty, "");
+        var pattern = MappedFilePattern.compile("abc");
+        try (var matcher = pattern.matcher(empty)) {
+            assertEquals(0, matcher.size());
+            assertFalse(matcher.find());
+        }
+        var file = tempDir.resolve("hay.txt");
+        Files.writeString(file, "ab".repeat(1000));
+        try (var matcher = pattern.matcher(file, 32)) {
+            assertFalse(matcher.find());
+            assertThrows(IllegalStateException.class, matcher::start);
+        }
+    }
+
+    @Test
+    void unboundedMatchesCanSpanSegments() throws IOException {
+        var file = tempDir.resolve("long.txt");
+        Files.writeString(file, "xx<" + "y".repeat(1000) + ">zz");
+        try (var matcher = MappedFilePattern.compile("<[^>]*>").matcher(file, 16)) {
+            assertTrue(matcher.find());
+            assertEquals(2, matcher.start());
+            assertEquals(1004, matcher.end());
+            assertFalse(matcher.find());
+        }
+    }
+
+    private static long byteOffset(String text, int charIndex) {
+        return text.substring(0, charIndex).getBytes(StandardCharsets.UTF_8).length;
+    }
+}
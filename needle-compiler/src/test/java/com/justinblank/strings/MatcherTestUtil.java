@@ -0,0 +1,30 @@
+package com.justinblank.strings;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Assertions comparing the results of two matchers over the same haystack, e.g. from patterns using different engines.
+ */
+public class MatcherTestUtil {
+
+    public static void assertSameMatches(Matcher expected, Matcher actual, String description) {
+        assertEquals(expected.containedIn(), actual.containedIn(), description);
+        assertEquals(expected.matches(), actual.matches(), description);
+        while (expected.find()) {
+            assertTrue(actual.find(), description);
+            assertEquals(expected.start(), actual.start(), description);
+            assertEquals(expected.end(), actual.end(), description);
+        }
+        assertFalse(actual.find(), description);
+    }
+
+    public static void assertSameLines(Matcher expected, Matcher actual, String description) {
+        while (expected.findLine()) {
+            assertTrue(actual.findLine(), description);
+            assertEquals(expected.lineNumber(), actual.lineNumber(), description);
+            assertEquals(expected.lineStart(), actual.lineStart(), description);
+            assertEquals(expected.lineEnd(), actual.lineEnd(), description);
+        }
+        assertFalse(actual.findLine(), description);
+    }
+}
@@ -0,0 +1,78 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternCacheTest {
+
+    @Test
+    void returnsTheSamePatternForTheSameRegexAndFlags() {
+        var cache = new PatternCache(10);
+        var pattern = cache.get("Sher(lock|ry)");
+        assertSame(pattern, cache.get("Sher(lock|ry)"));
+        assertNotSame(pattern, cache.get("Sher(lock|ry)", Pattern.CASE_INSENSITIVE));
+        assertNotSame(pattern, cache.get("Sher(lock|ry)", 0, CharacterDistribution.ENGLISH));
+        assertTrue(pattern.matcher("Sherry").matches());
+        assertTrue(cache.get("Sher(lock|ry)", Pattern.CASE_INSENSITIVE).matcher("SHERLOCK").matches());
+        assertEquals(2, cache.hitCount());
+        assertEquals(3, cache.missCount());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedPattern() {
+        var cache = new PatternCache(2);
+        var a = cache.get("a+");
+        cache.get("b+");
+        assertSame(a, cache.get("a+"));
+        cache.get("c+");
+        assertEquals(1, cache.evictionCount());
+        assertEquals(2, cache.size());
+        assertSame(a, cache.get("a+"));
+        cache.get("b+");
+        assertEquals(4, cache.missCount());
+        assertEquals(2, cache.evictionCount());
+    }
+
+    @Test
+    void doesNotCacheFailures() {
+        var cache = new PatternCache(2);
+        assertThrows(PatternException.class, () -> cache.get("(a"));
+        assertThrows(PatternException.class, () -> cache.get("(a"));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    void compilesEachRegexOnceWhenRequestedConcurrently() throws Exception {
+        var cache = new PatternCache(100);
+        var executor = Executors.newFixedThreadPool(4);
+        var start = new CountDownLatch(1);
+        try {
+            List<Future<Pattern>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                var regex = "[0-9]{" + (i % 4 + 1) + "}";
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(regex);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < futures.size(); i++) {
+                assertSame(futures.get(i % 4).get(), futures.get(i).get());
+            }
+            assertEquals(4, cache.missCount());
+            assertEquals(36, cache.hitCount());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
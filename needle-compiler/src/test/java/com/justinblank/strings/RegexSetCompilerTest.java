@@ -0,0 +1,147 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegexSetCompilerTest {
+
+    private static final AtomicInteger CLASS_NAME_COUNTER = new AtomicInteger();
+
+    private static final List<String> REGEXES = List.of("Sherlock", "Sher(lock|ry)", "[a-z]+ing", "ab*c", "a{2,4}b",
+            "[0-9]+", "(abc|def)+x", "é+", "x*", "Holmes.{0,5}Watson", "[α-ω]{2}", "ock");
+
+    @Test
+    void reportsEveryRegexThatOccurs() {
+        var set = compile(REGEXES, 0);
+        assertEquals(REGEXES.size(), set.size());
+        for (var haystack : haystacks()) {
+            assertEquals(expected(REGEXES, haystack), set.matches(haystack), haystack);
+        }
+    }
+
+    @Test
+    void prefilteredSetReportsEveryRegexThatOccurs() {
+        var set = compilePrefiltered(REGEXES, 0);
+        assertEquals(REGEXES.size(), set.size());
+        for (var haystack : haystacks()) {
+            assertEquals(expected(REGEXES, haystack), set.matches(haystack), haystack);
+        }
+    }
+
+    @Test
+    void prefilteredSetFindsOverlappingLiterals() {
+        var regexes = List.of("ab", "abcd", "b", "bc[0-9]", "abc", "cd+e", "d");
+        var set = compilePrefiltered(regexes, 0);
+        for (var haystack : List.of("abcd", "ab", "xabcx", "bc1", "abc1cdde", "abcdd", "bbbb", "dab")) {
+            assertEquals(expected(regexes, haystack), set.matches(haystack), haystack);
+        }
+    }
+
+    @Test
+    void prefilteredSetHandlesManyRegexes() {
+        var regexes = new ArrayList<String>();
+        for (int i = 0; i < 200; i++) {
+            regexes.add("rule" + i + "[a-c]+x");
+        }
+        regexes.add("[0-9]{3}");
+        var set = compilePrefiltered(regexes, 0);
+        assertArrayEquals(new int[0], set.matchingPatterns("no rules here"));
+        assertArrayEquals(new int[]{1, 10, 199, 200}, set.matchingPatterns("rule1ax rule10bcx rule19x rule199cx"));
+        assertArrayEquals(new int[]{12, 200}, set.matchingPatterns("rule12abx rule123"));
+    }
+
+    @Test
+    void extractsLongestRequiredLiteral() {
+        assertEquals("Sherlock", requiredLiteral("Sherlock"));
+        assertEquals("Sher", requiredLiteral("Sher(lock|ry)"));
+        assertEquals("Watson", requiredLiteral("Holmes?.{0,5}Watson"));
+        assertEquals("ing", requiredLiteral("[a-z]+ing"));
+        assertNull(requiredLiteral("[0-9]+"));
+        assertNull(requiredLiteral("x*"));
+    }
+
+    private static List<String> haystacks() {
+        var haystacks = new ArrayList<>(List.of("", "Sherlock", "Sherry singing", "abbbc aab", "defabcx 123",
+                "Holmes and Watson", "Holmes met Watson", "καλη", "éé", "lock Sher"));
+        var random = new Random(17);
+        var alphabet = "abcdefhiklmnorswxHSW0é αβ";
+        for (int i = 0; i < 500; i++) {
+            var sb = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            haystacks.add(sb.toString());
+        }
+        return haystacks;
+    }
+
+    @Test
+    void reportsPatternsAsIntArray() {
+        var set = compile(REGEXES, 0);
+        assertArrayEquals(new int[]{0, 1, 8, 11}, set.matchingPatterns("Sherlock"));
+        assertTrue(set.matchesAny("Sherlock"));
+        var noEmptyPattern = compile(List.of("Sherlock", "Watson"), 0);
+        assertArrayEquals(new int[0], noEmptyPattern.matchingPatterns("Holmes"));
+        assertFalse(noEmptyPattern.matchesAny("Holmes"));
+    }
+
+    @Test
+    void handlesMoreThanOneWordOfPatterns() {
+        var regexes = new ArrayList<String>();
+        for (int i = 0; i < 150; i++) {
+            regexes.add("w" + i + "x");
+        }
+        var set = compile(regexes, 0);
+        assertEquals(3, set.matchWords("").length);
+        var matched = set.matches("w0x w64x w149x w15");
+        assertEquals(BitSet.valueOf(new long[]{1, 1, 1L << 21}), matched);
+    }
+
+    @Test
+    void appliesFlagsToEveryRegex() {
+        var set = compile(List.of("sherlock", "watson"), Pattern.CASE_INSENSITIVE);
+        assertArrayEquals(new int[]{0, 1}, set.matchingPatterns("SHERLOCK and Watson"));
+    }
+
+    @Test
+    void classSizeDoesNotDependOnTheRangeOfChars() {
+        var classBytes = RegexSetCompiler.compileToBytes(List.of("Sherlock", "Watson"), "SmallRegexSet", 0);
+        assertTrue(classBytes.length < 4096, "Class has " + classBytes.length + " bytes");
+    }
+
+    @Test
+    void rejectsEmptySet() {
+        assertThrows(IllegalArgumentException.class, () -> compile(List.of(), 0));
+    }
+
+    private static RegexSet compile(List<String> regexes, int flags) {
+        return RegexSetCompiler.compile(regexes, "RegexSet" + CLASS_NAME_COUNTER.incrementAndGet(), flags);
+    }
+
+    private static RegexSet compilePrefiltered(List<String> regexes, int flags) {
+        return RegexSetCompiler.compilePrefiltered(regexes, "PrefilteredRegexSet" + CLASS_NAME_COUNTER.incrementAndGet(), flags);
+    }
+
+    private static String requiredLiteral(String regex) {
+        var factorization = Factorization.buildFactorization(RegexParser.parse(regex));
+        return LiteralPrefilteredRegexSet.requiredLiteral(factorization).orElse(null);
+    }
+
+    private static BitSet expected(List<String> regexes, String haystack) {
+        var expected = new BitSet();
+        for (int i = 0; i < regexes.size(); i++) {
+            if (java.util.regex.Pattern.compile(regexes.get(i)).matcher(haystack).find()) {
+                expected.set(i);
+            }
+        }
+        return expected;
+    }
+}
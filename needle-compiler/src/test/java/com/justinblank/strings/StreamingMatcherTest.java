@@ -0,0 +1,181 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingMatcherTest {
+
+    @Test
+    void fileBasedTests() throws Exception {
+        var patterns = new HashMap<String, StreamingPattern>();
+        var errors = new ArrayList<String>();
+        for (var spec : new RegexTestSpecParser().readTests()) {
+            int flags = spec.flags != null ? spec.flags.flags : 0;
+            var pattern = patterns.computeIfAbsent(spec.pattern + "/" + flags, p -> StreamingPattern.compile(spec.pattern, flags));
+            var description = "spec='" + spec.pattern + "' with flags=" + flags + " against needle='" + spec.target + "'";
+            for (int chunkSize : new int[]{1, 3}) {
+                var matcher = pattern.matcher();
+                for (int i = 0; i < spec.target.length(); i += chunkSize) {
+                    matcher.feed(spec.target.toCharArray(), i, Math.min(chunkSize, spec.target.length() - i));
+                }
+                matcher.endInput();
+                checkFirstMatch(errors, "chunkSize=" + chunkSize + " " + description, spec, matcher);
+            }
+            checkFirstMatch(errors, "Reader " + description, spec, pattern.matcher(new StringReader(spec.target)));
+        }
+        if (!errors.isEmpty()) {
+            errors.forEach(System.out::println);
+            fail("Errors in streaming file based tests");
+        }
+    }
+
+    private static void checkFirstMatch(List<String> errors, String description, RegexTestSpec spec, StreamingMatcher matcher) {
+        try {
+            boolean found = matcher.find();
+            if (found != spec.successful) {
+                errors.add("Wrong result for find on " + description + ", expected " + spec.successful);
+            }
+            else if (found && (matcher.start() != spec.start || matcher.end() != spec.end)) {
+                errors.add("Wrong indexes for " + description + ", expected start=" + spec.start + ", end=" + spec.end
+                        + ", actual start=" + matcher.start() + ", end=" + matcher.end());
+            }
+        }
+        catch (Exception e) {
+            errors.add("Error matching " + description + ": " + e);
+        }
+    }
+
+    @Test
+    void findsAllMatchesAcrossChunkBoundaries() {
+        var text = "Sherlock Holmes and Sherry Watson met Sherlock again; Sherlocks everywhere. ".repeat(500);
+        var pattern = StreamingPattern.compile("Sher(lock|ry)s?");
+        var matcher = pattern.matcher();
+        var javaMatcher = java.util.regex.Pattern.compile("Sher(lock|ry)s?").matcher(text);
+        var chars = text.toCharArray();
+        int fed = 0;
+        int chunkSize = 7;
+        int count = 0;
+        while (true) {
+            if (matcher.find()) {
+                assertTrue(javaMatcher.find());
+                assertEquals(javaMatcher.start(), matcher.start());
+                assertEquals(javaMatcher.end(), matcher.end());
+                assertEquals(javaMatcher.group(), matcher.group());
+                count++;
+            }
+            else if (matcher.needsInput()) {
+                if (fed == chars.length) {
+                    matcher.endInput();
+                }
+                else {
+                    int length = Math.min(chunkSize, chars.length - fed);
+                    matcher.feed(chars, fed, length);
+                    fed += length;
+                }
+            }
+            else {
+                break;
+            }
+        }
+        assertFalse(javaMatcher.find());
+        assertEquals(2000, count);
+    }
+
+    @Test
+    void readsLongStreamsThroughReader() {
+        var pattern = StreamingPattern.compile("needle[0-9]+");
+        var matcher = pattern.matcher(new RepeatingReader("hay ".repeat(1000), 5_000, "needle12345"));
+        assertTrue(matcher.find());
+        assertEquals(20_000_000L, matcher.start());
+        assertEquals(20_000_011L, matcher.end());
+        assertEquals("needle12345", matcher.group());
+        assertFalse(matcher.find());
+    }
+
+    @Test
+    void unboundedMatchesLongerThanWindowFail() {
+        var pattern = StreamingPattern.compile("a[^b]*b", 0, 100);
+        assertEquals(100, pattern.maxMatchLength());
+        var matcher = pattern.matcher(new StringReader("a" + "x".repeat(50) + "b " + "a" + "x".repeat(500) + "b"));
+        assertTrue(matcher.find());
+        assertEquals(52, matcher.end());
+        assertThrows(IllegalStateException.class, matcher::find);
+    }
+
+    @Test
+    void reportsShortMatchWhenLongerMatchesWouldExceedWindow() {
+        var pattern = StreamingPattern.compile("a[a-z]*b", 0, 16);
+        var matcher = pattern.matcher(new StringReader("ab" + "x".repeat(100)));
+        assertTrue(matcher.find());
+        assertEquals(0, matcher.start());
+        assertEquals(2, matcher.end());
+        assertFalse(matcher.find());
+    }
+
+    @Test
+    void boundedPatternsIgnoreWindow() {
+        var pattern = StreamingPattern.compile("a[0-9]{200}", 0, 10);
+        assertEquals(201, pattern.maxMatchLength());
+        var matcher = pattern.matcher(new StringReader("zzz" + "a" + "1".repeat(200)));
+        assertTrue(matcher.find());
+        assertEquals(3, matcher.start());
+        assertEquals(204, matcher.end());
+    }
+
+    @Test
+    void feedAfterEndOfInputFails() {
+        var matcher = StreamingPattern.compile("abc").matcher();
+        matcher.endInput();
+        assertThrows(IllegalStateException.class, () -> matcher.feed(new char[1], 0, 1));
+    }
+
+    /**
+     * Produces a block of text a number of times, followed by a suffix, without holding the whole stream in memory.
+     */
+    private static class RepeatingReader extends Reader {
+
+        private final String block;
+        private final String suffix;
+        private int remainingBlocks;
+        private String current;
+        private int index;
+
+        RepeatingReader(String block, int count, String suffix) {
+            this.block = block;
+            this.suffix = suffix;
+            this.remainingBlocks = count;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (current == null || index == current.length()) {
+                if (remainingBlocks > 0) {
+                    remainingBlocks--;
+                    current = block;
+                }
+                else if (current != suffix) {
+                    current = suffix;
+                }
+                else {
+                    return -1;
+                }
+                index = 0;
+            }
+            int read = Math.min(len, current.length() - index);
+            current.getChars(index, index + read, cbuf, off);
+            index += read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredPatternTest {
+
+    /**
+     * Runs tasks only when asked to, so tests can observe the pattern before and after compiling.
+     */
+    static class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove().run();
+            }
+        }
+    }
+
+    @Test
+    void answersBeforeAndAfterTheClassIsCompiled() throws Exception {
+        var executor = new ManualExecutor();
+        var options = CompilerOptions.defaultOptions().withExecutor(executor);
+        var pattern = TieredPattern.compile("Sher(lock|ry)[0-9]*", "TieredSherlock", options);
+        assertEquals(Engine.LAZY_DFA, Engine.of(pattern));
+        assertFalse(pattern.compiled().isDone());
+        var before = pattern.matcher("Dear Sherry42, ");
+        assertTrue(before.containedIn());
+        assertFindsSherry(pattern);
+
+        executor.runAll();
+        assertTrue(pattern.compiled().isDone());
+        assertSame(pattern.current(), pattern.compiled().get());
+        assertEquals(Engine.COMPILED_DFA, Engine.of(pattern));
+        assertTrue(pattern.matcher("Sherlock").matches());
+        assertFindsSherry(pattern);
+        // Matchers created before the switch still work
+        assertTrue(before.containedIn());
+    }
+
+    private static void assertFindsSherry(Pattern pattern) {
+        var matcher = pattern.matcher("Dear Sherry42, ");
+        assertTrue(matcher.find());
+        assertEquals(5, matcher.start());
+        assertEquals(13, matcher.end());
+    }
+
+    @Test
+    void supportsEveryInputAndLineModeInBothTiers() {
+        var executor = new ManualExecutor();
+        var options = CompilerOptions.defaultOptions().withExecutor(executor);
+        var pattern = TieredPattern.compile("Sher(lock|ry)", "TieredInputs", options);
+        var text = "Élémentaire\nmy dear Sherlock\n";
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (int tier = 0; tier < 2; tier++) {
+            var matcher = pattern.matcher(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8);
+            assertTrue(matcher.find());
+            assertEquals(22, matcher.start());
+            assertTrue(pattern.matcher(bytes, 0, bytes.length, StandardCharsets.UTF_8).containedIn());
+            var lines = pattern.matcher(text);
+            assertTrue(lines.findLine());
+            assertEquals(2, lines.lineNumber());
+            assertEquals(12, lines.lineStart());
+            assertFalse(lines.findLine());
+            executor.runAll();
+        }
+        assertEquals(Engine.COMPILED_DFA, Engine.of(pattern));
+    }
+
+    @Test
+    void waitsForTheGivenNumberOfUsesBeforeCompiling() {
+        var executor = new ManualExecutor();
+        var options = CompilerOptions.defaultOptions().withExecutor(executor);
+        var pattern = TieredPattern.compile("[a-c]+d", "TieredAfterUses", options, 3);
+        assertTrue(pattern.matcher("abcd").matches());
+        assertTrue(pattern.matcher("abd").matches());
+        assertTrue(executor.tasks.isEmpty());
+        assertFalse(pattern.matcher("abe").matches());
+        assertEquals(1, executor.tasks.size());
+        pattern.matcher("abcd");
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(Engine.COMPILED_DFA, Engine.of(pattern));
+    }
+
+    @Test
+    void compilesOnTheCommonPoolByDefault() throws Exception {
+        var pattern = TieredPattern.compile("[0-9]{3}-[0-9]{4}", "TieredCommonPool", CompilerOptions.defaultOptions());
+        var compiled = pattern.compiled().get(30, TimeUnit.SECONDS);
+        assertEquals(Engine.COMPILED_DFA, Engine.of(compiled));
+        assertTrue(pattern.matcher("555-1234").matches());
+    }
+
+    @Test
+    void keepsTheLazyDFAWhenTheRegexIsTooLargeToCompile() throws Exception {
+        var executor = new ManualExecutor();
+        var options = CompilerOptions.defaultOptions().withExecutor(executor);
+        var pattern = TieredPattern.compile("(a|b)*a(a|b){20}", "TieredTooLarge", options);
+        var lazy = pattern.current();
+        executor.runAll();
+        assertSame(lazy, pattern.compiled().get());
+        assertEquals(Engine.LAZY_DFA, Engine.of(pattern));
+        assertTrue(pattern.matcher("b".repeat(5) + "a" + "b".repeat(20)).matches());
+    }
+
+    @Test
+    void reportsCompilationFailuresAndKeepsAnswering() {
+        var executor = new ManualExecutor();
+        var options = CompilerOptions.defaultOptions().withExecutor(executor).withFallback(false);
+        var pattern = TieredPattern.compile("(a|b)*a(a|b){20}", "TieredFailure", options);
+        executor.runAll();
+        var e = assertThrows(ExecutionException.class, () -> pattern.compiled().get());
+        assertTrue(e.getCause() instanceof PatternClassCompilationException);
+        assertTrue(pattern.matcher("a" + "b".repeat(20)).matches());
+    }
+
+    @Test
+    void rejectsMalformedRegexesImmediately() {
+        var executor = new ManualExecutor();
+        var options = CompilerOptions.defaultOptions().withExecutor(executor);
+        assertThrows(PatternException.class, () -> TieredPattern.compile("(a", "TieredMalformed", options));
+        assertTrue(executor.tasks.isEmpty());
+    }
+}
@@ -0,0 +1,62 @@
+package com.justinblank.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Utf8EncodingTest {
+
+    @Test
+    void encodeMatchesJdkForValidStrings() {
+        for (var s : List.of("", "abc", "Zürich", "€100", "😀 and 😁", "߿ࠀ￿")) {
+            var expected = new String(s.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+            assertEquals(expected, Utf8Encoding.encode(s), s);
+        }
+    }
+
+    @Test
+    void splitCoversExactlyTheRange() {
+        checkSplit(0, 0x7F);
+        checkSplit('a', 'z');
+        checkSplit(0x80, 0x7FF);
+        checkSplit(0x41, 0x3000);
+        checkSplit(0x7FE, 0x801);
+        checkSplit(0xE000, 0x10FFFF);
+        checkSplit(0x10000, 0x10FFFF);
+        checkSplit(0x1F600, 0x1F64F);
+        checkSplit(0, Character.MAX_CODE_POINT);
+    }
+
+    private static void checkSplit(int start, int end) {
+        List<int[][]> sequences = new ArrayList<>();
+        Utf8Encoding.split(start, end, sequences);
+        var bytes = new int[4];
+        for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint++) {
+            int length = Utf8Encoding.encode(codePoint, bytes);
+            int matching = 0;
+            for (var sequence : sequences) {
+                if (matches(sequence, bytes, length)) {
+                    matching++;
+                }
+            }
+            boolean inRange = codePoint >= start && codePoint <= end;
+            assertEquals(inRange ? 1 : 0, matching, "Wrong number of matching sequences for codePoint=" + codePoint);
+        }
+    }
+
+    private static boolean matches(int[][] sequence, int[] bytes, int length) {
+        if (sequence.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] < sequence[i][0] || bytes[i] > sequence[i][1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,11 +1,18 @@
 package com.justinblank.strings.precompile;
 
+import com.justinblank.classcompiler.CompilerUtil;
+import com.justinblank.strings.CompilerOptions;
+import com.justinblank.strings.DeferredOperations;
+import com.justinblank.strings.MatcherOperation;
 import org.assertj.core.util.Files;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PrecompileTest {
@@ -19,4 +26,14 @@ class PrecompileTest {
         var output = new String(proc.getInputStream().readAllBytes());
         assertTrue(output.contains("compiled Java class data"));
     }
+
+    @Test
+    void precompiledClassesSupportEveryOperation() throws IOException {
+        File dir = Files.newTemporaryFolder();
+        var options = CompilerOptions.defaultOptions().withOperations(MatcherOperation.MATCHES);
+        var target = Precompile.precompile("[0-9]{3}-[0-9]{4}", "PrecompiledMatchesOnly", dir, options);
+        // Deferring operations would make the class depend on needle-compiler at runtime
+        var classData = new String(java.nio.file.Files.readAllBytes(Path.of(target)), StandardCharsets.ISO_8859_1);
+        assertFalse(classData.contains(CompilerUtil.internalName(DeferredOperations.class)));
+    }
 }
@@ -0,0 +1,132 @@
+package com.justinblank.strings.grep;
+
+import com.justinblank.strings.Pattern;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Searches a single file for matching lines, writing them as they're found.
+ * <p>
+ * The file is memory-mapped and matched in place as UTF-8. A ByteBuffer can't hold more than 2GB, so larger files are
+ * mapped in chunks, each ending at a newline so that no line is split between chunks.
+ */
+class FileSearch {
+
+    static final int CHUNK_SIZE = 1 << 30;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 13;
+
+    private final Pattern pattern;
+    private final GrepOptions options;
+    private final int chunkSize;
+
+    FileSearch(Pattern pattern, GrepOptions options) {
+        this(pattern, options, CHUNK_SIZE);
+    }
+
+    FileSearch(Pattern pattern, GrepOptions options, int chunkSize) {
+        this.pattern = pattern;
+        this.options = options;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param path the file to search
+     * @param name the name to print before each line, or null to print lines alone
+     * @param output where to print the matching lines, which is flushed but not closed
+     * @return whether any line matched
+     * @throws IOException if the file can't be read or the output can't be written
+     */
+    boolean search(Path path, String name, OutputStream output) throws IOException {
+        var out = new BufferedOutputStream(output, OUTPUT_BUFFER_SIZE);
+        try {
+            return searchChunks(path, name, out);
+        } finally {
+            out.flush();
+        }
+    }
+
+    private boolean searchChunks(Path path, String name, OutputStream out) throws IOException {
+        long count = 0;
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            long lineBase = 0;
+            byte[] line = new byte[256];
+            while (position < size) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(chunkSize, size - position));
+                int chunkLength = buffer.limit();
+                if (position + chunkLength < size) {
+                    int lastNewline = lastNewline(buffer, chunkLength);
+                    if (lastNewline >= 0) {
+                        chunkLength = lastNewline + 1;
+                        buffer.limit(chunkLength);
+                    }
+                }
+                var matcher = pattern.matcher(buffer, StandardCharsets.UTF_8);
+                while (matcher.findLine()) {
+                    count++;
+                    if (options.filesWithMatches) {
+                        writeString(out, (name != null ? name : path.toString()) + "\n");
+                        return true;
+                    }
+                    if (!options.count) {
+                        if (name != null) {
+                            writeString(out, name + ":");
+                        }
+                        if (options.lineNumbers) {
+                            writeString(out, (lineBase + matcher.lineNumber()) + ":");
+                        }
+                        int lineLength = matcher.lineEnd() - matcher.lineStart();
+                        if (lineLength > line.length) {
+                            line = new byte[Math.max(lineLength, 2 * line.length)];
+                        }
+                        buffer.position(matcher.lineStart());
+                        buffer.get(line, 0, lineLength);
+                        buffer.position(0);
+                        out.write(line, 0, lineLength);
+                        out.write('\n');
+                    }
+                }
+                position += chunkLength;
+                if (options.lineNumbers && position < size) {
+                    lineBase += countNewlines(buffer, chunkLength);
+                }
+            }
+        }
+        if (options.count) {
+            writeString(out, (name != null ? name + ":" : "") + count + "\n");
+        }
+        return count > 0;
+    }
+
+    private static int lastNewline(MappedByteBuffer buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long countNewlines(MappedByteBuffer buffer, int length) {
+        long newlines = 0;
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(i) == '\n') {
+                newlines++;
+            }
+        }
+        return newlines;
+    }
+
+    private static void writeString(OutputStream out, String s) throws IOException {
+        out.write(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
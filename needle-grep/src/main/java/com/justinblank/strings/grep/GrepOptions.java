@@ -0,0 +1,94 @@
+package com.justinblank.strings.grep;
+
+import com.justinblank.strings.Pattern;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parsed command line of {@link NeedleGrep}.
+ */
+class GrepOptions {
+
+    static final String USAGE = "Usage: needle-grep [-c] [-l] [-n] [-i] [-j threads] regex path...\n"
+            + "  -c          print the number of matching lines in each file\n"
+            + "  -l          print only the names of files containing a match\n"
+            + "  -n          prefix each matching line with its line number\n"
+            + "  -i          match case insensitively\n"
+            + "  -j threads  the number of files to search in parallel (default: available processors)\n"
+            + "Directories are searched recursively.";
+
+    boolean count;
+    boolean filesWithMatches;
+    boolean lineNumbers;
+    int flags;
+    int threads = Runtime.getRuntime().availableProcessors();
+    String regex;
+    final List<Path> paths = new ArrayList<>();
+
+    /**
+     * @param args the command line arguments
+     * @return the parsed options
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    static GrepOptions parse(String[] args) {
+        var options = new GrepOptions();
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("-") && args[i].length() > 1; i++) {
+            var arg = args[i];
+            if (arg.equals("--")) {
+                i++;
+                break;
+            }
+            if (arg.equals("-j")) {
+                if (++i == args.length) {
+                    throw new IllegalArgumentException("-j requires a number of threads");
+                }
+                options.threads = parseThreads(args[i]);
+                continue;
+            }
+            for (int j = 1; j < arg.length(); j++) {
+                switch (arg.charAt(j)) {
+                    case 'c':
+                        options.count = true;
+                        break;
+                    case 'l':
+                        options.filesWithMatches = true;
+                        break;
+                    case 'n':
+                        options.lineNumbers = true;
+                        break;
+                    case 'i':
+                        options.flags |= Pattern.CASE_INSENSITIVE;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unrecognized option '-" + arg.charAt(j) + "'");
+                }
+            }
+        }
+        if (i == args.length) {
+            throw new IllegalArgumentException("No regex specified");
+        }
+        options.regex = args[i++];
+        for (; i < args.length; i++) {
+            options.paths.add(Path.of(args[i]));
+        }
+        if (options.paths.isEmpty()) {
+            throw new IllegalArgumentException("No paths specified");
+        }
+        return options;
+    }
+
+    private static int parseThreads(String arg) {
+        try {
+            int threads = Integer.parseInt(arg);
+            if (threads > 0) {
+                return threads;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid number of threads '" + arg + "'");
+    }
+}
@@ -0,0 +1,161 @@
+package com.justinblank.strings.grep;
+
+import com.justinblank.strings.CompilerOptions;
+import com.justinblank.strings.DFACompiler;
+import com.justinblank.strings.Pattern;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A grep-like command line tool. The regex is compiled once with {@link DFACompiler}, then files are searched in
+ * parallel, each one memory-mapped and matched in place as UTF-8 using the matcher's line mode. Output is printed in
+ * the order the files were given, or in the order they were found when walking a directory. Only as many files are
+ * searched at once as there are threads, and each prints through an {@link OrderedOutput}, so memory use doesn't grow
+ * with the number of files or the size of their output.
+ * <p>
+ * Exits with status 0 if any line matched, 1 if none did, and 2 if there was an error.
+ */
+public class NeedleGrep {
+
+    static final int MATCHED = 0;
+    static final int NOT_MATCHED = 1;
+    static final int ERROR = 2;
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(String[] args, OutputStream stdout, PrintStream stderr) {
+        GrepOptions options;
+        try {
+            options = GrepOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            stderr.println("needle-grep: " + e.getMessage());
+            stderr.println(GrepOptions.USAGE);
+            return ERROR;
+        }
+        Pattern pattern;
+        try {
+            pattern = DFACompiler.compile(options.regex, "NeedleGrepMatcher", CompilerOptions.fromFlags(options.flags));
+        } catch (RuntimeException e) {
+            stderr.println("needle-grep: invalid regex '" + options.regex + "': " + e.getMessage());
+            return ERROR;
+        }
+
+        var search = new FileSearch(pattern, options);
+        boolean withNames = options.paths.size() > 1 || options.paths.stream().anyMatch(Files::isDirectory);
+        // Every file being searched has a thread, so the file whose output is printing never waits behind the others
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads, r -> {
+            var thread = new Thread(r, "needle-grep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var out = new BufferedOutputStream(stdout, 1 << 16);
+        var output = new OrderedOutput(out);
+        var searches = new ArrayDeque<Search>();
+        var status = new Status();
+        try {
+            for (var root : options.paths) {
+                List<Path> files;
+                try {
+                    files = listFiles(root);
+                } catch (IOException | UncheckedIOException e) {
+                    // Earlier files' errors are printed first
+                    while (!searches.isEmpty()) {
+                        searches.remove().await(status, stderr);
+                    }
+                    stderr.println("needle-grep: " + root + ": " + e.getMessage());
+                    status.error = true;
+                    continue;
+                }
+                for (var file : files) {
+                    if (searches.size() == options.threads) {
+                        searches.remove().await(status, stderr);
+                    }
+                    var section = output.next();
+                    searches.add(new Search(file, pool.submit(() -> {
+                        try (section) {
+                            return search.search(file, withNames ? file.toString() : null, section);
+                        }
+                    })));
+                }
+            }
+            while (!searches.isEmpty()) {
+                searches.remove().await(status, stderr);
+            }
+            out.flush();
+        } catch (IOException e) {
+            stderr.println("needle-grep: failed to write output: " + e.getMessage());
+            return ERROR;
+        } finally {
+            pool.shutdownNow();
+        }
+        if (status.error) {
+            return ERROR;
+        }
+        return status.matched ? MATCHED : NOT_MATCHED;
+    }
+
+    private static class Status {
+        boolean matched;
+        boolean error;
+    }
+
+    private static class Search {
+        final Path file;
+        final Future<Boolean> result;
+
+        Search(Path file, Future<Boolean> result) {
+            this.file = file;
+            this.result = result;
+        }
+
+        void await(Status status, PrintStream stderr) {
+            try {
+                status.matched |= result.get();
+            } catch (ExecutionException e) {
+                stderr.println("needle-grep: " + file + ": " + describe(e));
+                status.error = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stderr.println("needle-grep: interrupted");
+                status.error = true;
+            }
+        }
+    }
+
+    private static List<Path> listFiles(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return List.of(root);
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static String describe(Throwable e) {
+        // Futures wrap the exceptions their tasks throw
+        while (e.getCause() != null) {
+            e = e.getCause();
+        }
+        if (e instanceof NoSuchFileException) {
+            return "No such file or directory";
+        }
+        return e.getMessage();
+    }
+}
@@ -0,0 +1,119 @@
+package com.justinblank.strings.grep;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+
+/**
+ * Lets files searched in parallel print their output in the order they were started, without holding any file's whole
+ * output in memory.
+ * <p>
+ * Each file writes to its own {@link Section}. The earliest section that hasn't been closed writes straight through to
+ * the output. Later sections buffer what they write until they reach the limit, then wait for their turn. So at most
+ * one limit's worth of output is buffered for each section that's open at once.
+ */
+class OrderedOutput {
+
+    static final int MAX_BUFFERED = 1 << 20;
+
+    private final OutputStream out;
+    private final int maxBuffered;
+    private final ArrayDeque<Section> sections = new ArrayDeque<>();
+
+    OrderedOutput(OutputStream out) {
+        this(out, MAX_BUFFERED);
+    }
+
+    OrderedOutput(OutputStream out, int maxBuffered) {
+        this.out = out;
+        this.maxBuffered = maxBuffered;
+    }
+
+    /**
+     * @return a section that prints after those created before it
+     */
+    synchronized Section next() {
+        var section = new Section();
+        sections.add(section);
+        return section;
+    }
+
+    /**
+     * Prints the buffered output of sections that have become the earliest open section. Must hold the lock. Sections
+     * advance even if printing fails, so that no writer waits forever.
+     */
+    private void drain() throws IOException {
+        IOException failure = null;
+        while (!sections.isEmpty()) {
+            var head = sections.peek();
+            try {
+                head.buffer.writeTo(out);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            head.buffer.reset();
+            if (!head.closed) {
+                break;
+            }
+            sections.remove();
+        }
+        notifyAll();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    class Section extends OutputStream {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (OrderedOutput.this) {
+                if (closed) {
+                    throw new IOException("Section is closed");
+                }
+                while (sections.peek() != this && buffer.size() + len > maxBuffered) {
+                    try {
+                        OrderedOutput.this.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting to print output");
+                    }
+                }
+                if (sections.peek() == this) {
+                    out.write(b, off, len);
+                } else {
+                    buffer.write(b, off, len);
+                }
+            }
+        }
+
+        /**
+         * Marks the section finished. If it's the earliest open section, the sections after it that are waiting or
+         * buffered are printed.
+         */
+        @Override
+        public void close() throws IOException {
+            synchronized (OrderedOutput.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (sections.peek() == this) {
+                    drain();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.justinblank.strings.grep;
+
+import com.justinblank.strings.DFACompiler;
+import com.justinblank.strings.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSearchTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void findsLinesOnEitherSideOfChunkBoundaries() throws IOException {
+        var text = new StringBuilder();
+        var expected = new StringBuilder();
+        for (int i = 1; i <= 200; i++) {
+            String line = (i % 7 == 0 ? "Holmes " : "Watson ") + "x".repeat(i % 13);
+            text.append(line).append('\n');
+            if (i % 7 == 0) {
+                expected.append(i).append(':').append(line).append('\n');
+            }
+        }
+        var file = Files.writeString(tempDir.resolve("chunks.txt"), text);
+        var pattern = DFACompiler.compile("Holmes", "FileSearchChunks");
+        // Chunk sizes that end chunks mid-line, so that they're cut back to the last newline, and that hold only one line
+        for (int chunkSize : new int[]{20, 21, 32, 100, 1 << 20}) {
+            assertEquals(expected.toString(), search(file, pattern, options("-n"), chunkSize), "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void countsAndNumbersLinesAcrossChunks() throws IOException {
+        var file = Files.writeString(tempDir.resolve("count.txt"), "ab\ncd\nab\n\nxab");
+        var pattern = DFACompiler.compile("ab", "FileSearchCount");
+        assertEquals("3\n", search(file, pattern, options("-c"), 4));
+        assertEquals("1:ab\n3:ab\n5:xab\n", search(file, pattern, options("-n"), 4));
+        assertEquals("1:ab\n3:ab\n5:xab\n", search(file, pattern, options("-n"), 3));
+    }
+
+    @Test
+    void matchesUtf8() throws IOException {
+        var file = Files.write(tempDir.resolve("utf8.txt"),
+                "Élémentaire\nmon cher Watson\n".getBytes(StandardCharsets.UTF_8));
+        var pattern = DFACompiler.compile("é+m", "FileSearchUtf8");
+        assertEquals("Élémentaire\n", search(file, pattern, options(), 16));
+    }
+
+    private static GrepOptions options(String... flags) {
+        var args = new String[flags.length + 2];
+        System.arraycopy(flags, 0, args, 0, flags.length);
+        args[flags.length] = "unused";
+        args[flags.length + 1] = "unused";
+        return GrepOptions.parse(args);
+    }
+
+    private static String search(Path file, Pattern pattern, GrepOptions options, int chunkSize) throws IOException {
+        var out = new ByteArrayOutputStream();
+        new FileSearch(pattern, options, chunkSize).search(file, null, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
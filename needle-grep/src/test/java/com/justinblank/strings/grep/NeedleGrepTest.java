@@ -0,0 +1,144 @@
+package com.justinblank.strings.grep;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NeedleGrepTest {
+
+    private static final String TEXT = "To Sherlock Holmes she is always the woman.\n"
+            + "I have seldom heard him mention her under any other name.\n"
+            + "In his eyes she eclipses the whole of her sex.\n"
+            + "sherlock was not in love.\n";
+
+    @TempDir
+    Path tempDir;
+
+    private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+    @Test
+    void printsMatchingLines() throws IOException {
+        var file = write("scandal.txt", TEXT);
+        assertEquals(NeedleGrep.MATCHED, grep("Sherlock|eclipse", file.toString()));
+        assertEquals("To Sherlock Holmes she is always the woman.\n"
+                + "In his eyes she eclipses the whole of her sex.\n", output());
+        assertEquals("", errors());
+    }
+
+    @Test
+    void countsMatchingLines() throws IOException {
+        var file = write("scandal.txt", TEXT);
+        assertEquals(NeedleGrep.MATCHED, grep("-c", " she ", file.toString()));
+        assertEquals("2\n", output());
+    }
+
+    @Test
+    void numbersMatchingLines() throws IOException {
+        var file = write("scandal.txt", TEXT);
+        assertEquals(NeedleGrep.MATCHED, grep("-n", "mention|eclipses", file.toString()));
+        assertEquals("2:I have seldom heard him mention her under any other name.\n"
+                + "3:In his eyes she eclipses the whole of her sex.\n", output());
+    }
+
+    @Test
+    void matchesCaseInsensitively() throws IOException {
+        var file = write("scandal.txt", TEXT);
+        assertEquals(NeedleGrep.MATCHED, grep("-ci", "SHERLOCK", file.toString()));
+        assertEquals("2\n", output());
+    }
+
+    @Test
+    void prefixesLinesWithFileNamesInTheOrderGiven() throws IOException {
+        var first = write("first.txt", "Watson\nHolmes\n");
+        var second = write("second.txt", "Mrs. Hudson\nHolmes and Watson\n");
+        assertEquals(NeedleGrep.MATCHED, grep("-n", "Watson", second.toString(), first.toString()));
+        assertEquals(second + ":2:Holmes and Watson\n" + first + ":1:Watson\n", output());
+
+        stdout.reset();
+        assertEquals(NeedleGrep.MATCHED, grep("-l", "Hudson", first.toString(), second.toString()));
+        assertEquals(second + "\n", output());
+    }
+
+    @Test
+    void printsFilesInOrderWhenSearchingInParallel() throws IOException {
+        var expected = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            var contents = new StringBuilder();
+            // Enough output from some files that they can't be buffered while waiting for earlier ones
+            int lines = i % 3 == 0 ? 20_000 : 3;
+            for (int j = 0; j < lines; j++) {
+                contents.append("line ").append(j).append(" of file ").append(i).append('\n');
+            }
+            write(String.format("dir/%02d.txt", i), contents.toString());
+            String name = tempDir.resolve("dir").resolve(String.format("%02d.txt", i)).toString();
+            for (int j = 0; j < lines; j++) {
+                expected.append(name).append(":line ").append(j).append(" of file ").append(i).append('\n');
+            }
+        }
+        assertEquals(NeedleGrep.MATCHED, grep("-j", "4", "line", tempDir.resolve("dir").toString()));
+        assertEquals(expected.toString(), output());
+    }
+
+    @Test
+    void fallsBackForRegexesTooLargeToCompile() throws IOException {
+        var file = write("ab.txt", "b".repeat(30) + "\n" + "ab" + "a".repeat(20) + "\n" + "a".repeat(5) + "\n");
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            assertEquals(NeedleGrep.MATCHED, grep("(a|b)*a(a|b){20}", file.toString()));
+        });
+        assertEquals("ab" + "a".repeat(20) + "\n", output());
+    }
+
+    @Test
+    void exitsWithOneWhenNothingMatches() throws IOException {
+        var file = write("scandal.txt", TEXT);
+        assertEquals(NeedleGrep.NOT_MATCHED, grep("Moriarty", file.toString()));
+        assertEquals("", output());
+
+        assertEquals(NeedleGrep.NOT_MATCHED, grep("-c", "Moriarty", file.toString()));
+        assertEquals("0\n", output());
+    }
+
+    @Test
+    void exitsWithTwoOnErrors() throws IOException {
+        var file = write("scandal.txt", TEXT);
+        var missing = tempDir.resolve("missing.txt");
+        assertEquals(NeedleGrep.ERROR, grep("Sherlock", missing.toString(), file.toString()));
+        assertEquals(file + ":To Sherlock Holmes she is always the woman.\n", output());
+        assertTrue(errors().contains(missing + ": No such file or directory"), errors());
+
+        assertEquals(NeedleGrep.ERROR, grep("-x", "Sherlock", file.toString()));
+        assertTrue(errors().contains("Unrecognized option '-x'"), errors());
+        assertEquals(NeedleGrep.ERROR, grep("(Sherlock", file.toString()));
+        assertTrue(errors().contains("invalid regex"), errors());
+        assertEquals(NeedleGrep.ERROR, grep("Sherlock"));
+        assertTrue(errors().contains("No paths specified"), errors());
+    }
+
+    private int grep(String... args) {
+        return NeedleGrep.run(args, stdout, new PrintStream(stderr, true, StandardCharsets.UTF_8));
+    }
+
+    private String output() {
+        return stdout.toString(StandardCharsets.UTF_8);
+    }
+
+    private String errors() {
+        return stderr.toString(StandardCharsets.UTF_8);
+    }
+
+    private Path write(String name, String contents) throws IOException {
+        var file = tempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, contents);
+    }
+}
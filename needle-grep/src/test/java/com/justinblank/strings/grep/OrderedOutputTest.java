@@ -0,0 +1,72 @@
+package com.justinblank.strings.grep;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderedOutputTest {
+
+    @Test
+    void printsSectionsInTheOrderTheyWereCreated() throws IOException {
+        var out = new ByteArrayOutputStream();
+        var output = new OrderedOutput(out, 1024);
+        var first = output.next();
+        var second = output.next();
+        var third = output.next();
+        third.write(bytes("c"));
+        third.close();
+        second.write(bytes("b"));
+        first.write(bytes("a"));
+        assertEquals("a", string(out));
+        first.close();
+        assertEquals("ab", string(out));
+        second.write(bytes("b"));
+        assertEquals("abb", string(out));
+        second.close();
+        assertEquals("abbc", string(out));
+    }
+
+    @Test
+    void laterSectionsWaitOnceTheirBufferIsFull() throws Exception {
+        var out = new ByteArrayOutputStream();
+        var output = new OrderedOutput(out, 4);
+        var first = output.next();
+        var second = output.next();
+        second.write(bytes("1234"));
+        var waiting = new CountDownLatch(1);
+        var written = CompletableFuture.runAsync(() -> {
+            try {
+                waiting.countDown();
+                second.write(bytes("5"));
+                second.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        waiting.await();
+        Thread.sleep(100);
+        assertFalse(written.isDone());
+        assertEquals("", string(out));
+
+        first.write(bytes("a"));
+        first.close();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> written.get(10, TimeUnit.SECONDS));
+        assertEquals("a12345", string(out));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteArrayOutputStream out) {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
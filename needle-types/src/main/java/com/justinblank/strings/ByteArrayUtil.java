@@ -0,0 +1,80 @@
+package com.justinblank.strings;
+
+/**
+ * Substitutes for the String methods that generated matchers call, for use when the haystack is a slice of a byte[].
+ * Each byte is treated as the char with the same unsigned value, which is how the byte oriented DFAs represent them.
+ * Indexes passed to and returned from these methods are relative to the start of the slice.
+ */
+public class ByteArrayUtil {
+
+    private ByteArrayUtil() {}
+
+    /**
+     * Read a byte as an unsigned value. Unlike the other methods in this class, the index is absolute, not relative to
+     * a slice.
+     *
+     * @param data the array
+     * @param index the index within the array
+     * @return the unsigned value of the byte at that index
+     */
+    public static char charAt(byte[] data, int index) {
+        return (char) (data[index] & 0xFF);
+    }
+
+    /**
+     * Equivalent to {@link String#indexOf(String, int)} on the slice.
+     *
+     * @param data the array containing the slice
+     * @param offset the start of the slice
+     * @param length the length of the slice
+     * @param needle the bytes to search for, one per char
+     * @param from the index within the slice to start searching at
+     * @return the index within the slice of the first occurrence of needle at or after from, or -1 if there is none
+     */
+    public static int indexOf(byte[] data, int offset, int length, String needle, int from) {
+        int needleLength = needle.length();
+        if (from < 0) {
+            from = 0;
+        }
+        if (needleLength == 0) {
+            return Math.min(from, length);
+        }
+        char first = needle.charAt(0);
+        int max = offset + length - needleLength;
+        for (int i = offset + from; i <= max; i++) {
+            if ((data[i] & 0xFF) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < needleLength && (data[i + j] & 0xFF) == needle.charAt(j)) {
+                j++;
+            }
+            if (j == needleLength) {
+                return i - offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Equivalent to {@link String#startsWith(String)} on the slice.
+     *
+     * @param data the array containing the slice
+     * @param offset the start of the slice
+     * @param length the length of the slice
+     * @param prefix the prefix, one byte per char
+     * @return true if the slice starts with prefix
+     */
+    public static boolean startsWith(byte[] data, int offset, int length, String prefix) {
+        int prefixLength = prefix.length();
+        if (length < prefixLength) {
+            return false;
+        }
+        for (int i = 0; i < prefixLength; i++) {
+            if ((data[offset + i] & 0xFF) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,86 @@
+package com.justinblank.strings;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Substitutes for the String methods that generated matchers call, for use when the haystack is a region of a
+ * ByteBuffer. Bytes are treated as in {@link ByteArrayUtil}. All reads use absolute gets, so the buffer's position
+ * and limit are never modified. Indexes passed to and returned from these methods are relative to the start of the
+ * region.
+ */
+public class ByteBufferUtil {
+
+    private ByteBufferUtil() {}
+
+    /**
+     * Read a byte as an unsigned value. Unlike the other methods in this class, the index is absolute, not relative to
+     * a region.
+     *
+     * @param buffer the buffer
+     * @param index the index within the buffer
+     * @return the unsigned value of the byte at that index
+     */
+    public static char charAt(ByteBuffer buffer, int index) {
+        return (char) (buffer.get(index) & 0xFF);
+    }
+
+    /**
+     * Equivalent to {@link String#indexOf(String, int)} on the region.
+     *
+     * @param buffer the buffer containing the region
+     * @param offset the start of the region
+     * @param length the length of the region
+     * @param needle the bytes to search for, one per char
+     * @param from the index within the region to start searching at
+     * @return the index within the region of the first occurrence of needle at or after from, or -1 if there is none
+     */
+    public static int indexOf(ByteBuffer buffer, int offset, int length, String needle, int from) {
+        if (buffer.hasArray()) {
+            return ByteArrayUtil.indexOf(buffer.array(), buffer.arrayOffset() + offset, length, needle, from);
+        }
+        int needleLength = needle.length();
+        if (from < 0) {
+            from = 0;
+        }
+        if (needleLength == 0) {
+            return Math.min(from, length);
+        }
+        char first = needle.charAt(0);
+        int max = offset + length - needleLength;
+        for (int i = offset + from; i <= max; i++) {
+            if ((buffer.get(i) & 0xFF) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < needleLength && (buffer.get(i + j) & 0xFF) == needle.charAt(j)) {
+                j++;
+            }
+            if (j == needleLength) {
+                return i - offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Equivalent to {@link String#startsWith(String)} on the region.
+     *
+     * @param buffer the buffer containing the region
+     * @param offset the start of the region
+     * @param length the length of the region
+     * @param prefix the prefix, one byte per char
+     * @return true if the region starts with prefix
+     */
+    public static boolean startsWith(ByteBuffer buffer, int offset, int length, String prefix) {
+        int prefixLength = prefix.length();
+        if (length < prefixLength) {
+            return false;
+        }
+        for (int i = 0; i < prefixLength; i++) {
+            if ((buffer.get(offset + i) & 0xFF) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -119,6 +119,53 @@ public class ByteClassUtil {
         }
     }
 
+    public static void fillMultipleByteClassesFromStringUsingInts_singleArray(int[] stateTransitionArray, int length, String s) {
+        String[] stateStrings = SEMICOLON_REGEX.split(s);
+        for (String stateString : stateStrings) {
+            String[] stateAndTransitions = COLON_REGEX.split(stateString);
+            if (stateAndTransitions.length != 2) {
+                throw new IllegalArgumentException("Malformed string, wrong number of parts. Component was: " + stateString);
+            }
+            try {
+                int state = decode(stateAndTransitions[0]);
+                String[] components = COMMA_REGEX.split(stateAndTransitions[1]);
+                for (String component : components) {
+                    String[] pieces = DASH_REGEX.split(component);
+                    if (pieces.length != 2) {
+                        throw new IllegalArgumentException("Malformed string, wrong number of parts. Component was: " + component);
+                    }
+                    try {
+                        int byteClass = decode(pieces[0]);
+                        int targetState = decode(pieces[1]);
+                        int offset = state * length + byteClass;
+                        stateTransitionArray[offset] = targetState;
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Malformed string, could not parse integer. Component was: " + component);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed string, could not parse integer. Component was: " + stateString);
+            }
+        }
+    }
+
+    /**
+     * Marks the states in a comma delineated list of states, e.g. 1,2,c marks states 1, 2 and 12. Used for arrays of
+     * accepting states that are too large to initialize element by element.
+     */
+    public static void fillStatesFromString(boolean[] states, String s) {
+        if (s.isEmpty()) {
+            return;
+        }
+        for (String component : COMMA_REGEX.split(s)) {
+            try {
+                states[decode(component)] = true;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed string, could not parse integer. Component was: " + component);
+            }
+        }
+    }
+
     static int decode(String subpart) {
         return Integer.valueOf(subpart, 16);
     }
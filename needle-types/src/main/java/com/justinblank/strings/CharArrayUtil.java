@@ -0,0 +1,78 @@
+package com.justinblank.strings;
+
+/**
+ * Substitutes for the String methods that generated matchers call, for use when the haystack is a slice of a char[].
+ * Indexes passed to and returned from these methods are relative to the start of the slice.
+ */
+public class CharArrayUtil {
+
+    private CharArrayUtil() {}
+
+    /**
+     * Read a character. Unlike the other methods in this class, the index is absolute, not relative to a slice.
+     *
+     * @param data the array
+     * @param index the index within the array
+     * @return the character at that index
+     */
+    public static char charAt(char[] data, int index) {
+        return data[index];
+    }
+
+    /**
+     * Equivalent to {@link String#indexOf(String, int)} on the slice.
+     *
+     * @param data the array containing the slice
+     * @param offset the start of the slice
+     * @param length the length of the slice
+     * @param needle the string to search for
+     * @param from the index within the slice to start searching at
+     * @return the index within the slice of the first occurrence of needle at or after from, or -1 if there is none
+     */
+    public static int indexOf(char[] data, int offset, int length, String needle, int from) {
+        int needleLength = needle.length();
+        if (from < 0) {
+            from = 0;
+        }
+        if (needleLength == 0) {
+            return Math.min(from, length);
+        }
+        char first = needle.charAt(0);
+        int max = offset + length - needleLength;
+        for (int i = offset + from; i <= max; i++) {
+            if (data[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < needleLength && data[i + j] == needle.charAt(j)) {
+                j++;
+            }
+            if (j == needleLength) {
+                return i - offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Equivalent to {@link String#startsWith(String)} on the slice.
+     *
+     * @param data the array containing the slice
+     * @param offset the start of the slice
+     * @param length the length of the slice
+     * @param prefix the prefix
+     * @return true if the slice starts with prefix
+     */
+    public static boolean startsWith(char[] data, int offset, int length, String prefix) {
+        int prefixLength = prefix.length();
+        if (length < prefixLength) {
+            return false;
+        }
+        for (int i = 0; i < prefixLength; i++) {
+            if (data[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package com.justinblank.strings;
+
+/**
+ * Substitutes for the String methods that generated matchers call, for use when the haystack is an arbitrary
+ * CharSequence.
+ */
+public class CharSequenceUtil {
+
+    private CharSequenceUtil() {}
+
+    /**
+     * Equivalent to {@link String#indexOf(String, int)}.
+     *
+     * @param haystack the sequence to search
+     * @param needle the string to search for
+     * @param from the index to start searching at
+     * @return the index of the first occurrence of needle at or after from, or -1 if there is none
+     */
+    public static int indexOf(CharSequence haystack, String needle, int from) {
+        if (haystack instanceof String) {
+            return ((String) haystack).indexOf(needle, from);
+        }
+        int needleLength = needle.length();
+        if (from < 0) {
+            from = 0;
+        }
+        if (needleLength == 0) {
+            return Math.min(from, haystack.length());
+        }
+        char first = needle.charAt(0);
+        int max = haystack.length() - needleLength;
+        for (int i = from; i <= max; i++) {
+            if (haystack.charAt(i) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < needleLength && haystack.charAt(i + j) == needle.charAt(j)) {
+                j++;
+            }
+            if (j == needleLength) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Equivalent to {@link String#startsWith(String)}.
+     *
+     * @param haystack the sequence to check
+     * @param prefix the prefix
+     * @return true if haystack starts with prefix
+     */
+    public static boolean startsWith(CharSequence haystack, String prefix) {
+        int prefixLength = prefix.length();
+        if (haystack.length() < prefixLength) {
+            return false;
+        }
+        for (int i = 0; i < prefixLength; i++) {
+            if (haystack.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
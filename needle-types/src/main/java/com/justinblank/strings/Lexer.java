@@ -0,0 +1,67 @@
+package com.justinblank.strings;
+
+/**
+ * A tokenizer built from an ordered list of token regexes. At a given position, it finds the longest match of any
+ * token, and if several tokens match that text, the one listed first. Tokens are identified by their index in the
+ * list they were compiled from.
+ * <p>
+ * To avoid allocating, a token is returned as a long holding both its type and its end, which can be read with
+ * {@link #tokenType(long)} and {@link #tokenEnd(long)}:
+ * <pre>{@code
+ * int index = 0;
+ * while (index < s.length()) {
+ *     long token = lexer.nextToken(s, index);
+ *     if (token == Lexer.NO_TOKEN) {
+ *         throw new IllegalArgumentException("Unexpected character at " + index);
+ *     }
+ *     handle(Lexer.tokenType(token), index, Lexer.tokenEnd(token));
+ *     index = Lexer.tokenEnd(token);
+ * }
+ * }</pre>
+ */
+public interface Lexer {
+
+    /**
+     * Returned by {@link #nextToken(String, int)} if no token starts at the given position.
+     */
+    long NO_TOKEN = -1L;
+
+    /**
+     * @return the number of token types
+     */
+    int tokenTypes();
+
+    /**
+     * Find the longest token starting at start. Tokens are never empty.
+     *
+     * @param s the string to tokenize
+     * @param start the index at which the token starts
+     * @return the token, encoded as by {@link #token(int, int)}, or {@link #NO_TOKEN}
+     */
+    long nextToken(String s, int start);
+
+    /**
+     * @param tokenType the index of the token's regex
+     * @param end the index after the last char of the token
+     * @return the token, encoded as a long
+     */
+    static long token(int tokenType, int end) {
+        return ((long) tokenType << 32) | end;
+    }
+
+    /**
+     * @param token a token returned by {@link #nextToken(String, int)}
+     * @return the index of the token's regex
+     */
+    static int tokenType(long token) {
+        return (int) (token >>> 32);
+    }
+
+    /**
+     * @param token a token returned by {@link #nextToken(String, int)}
+     * @return the index after the last char of the token
+     */
+    static int tokenEnd(long token) {
+        return (int) token;
+    }
+}
@@ -23,4 +23,37 @@ public interface Matcher {
     int start();
 
     int end();
+
+    /**
+     * Find the next line containing a match, in the manner of grep. Lines are separated by '\n', and each line is
+     * matched on its own, so a match never spans a newline. Once a line is found to match, the search for the next line
+     * starts after it, so each line is reported at most once. This search is independent of {@link #find()}.
+     *
+     * @return true if a matching line was found
+     */
+    default boolean findLine() {
+        throw new UnsupportedOperationException("Line mode is not supported by " + getClass().getName());
+    }
+
+    /**
+     * @return the one-based number of the line found by the last successful call to {@link #findLine()}
+     */
+    default int lineNumber() {
+        throw new UnsupportedOperationException("Line mode is not supported by " + getClass().getName());
+    }
+
+    /**
+     * @return the index of the first character of the line found by the last successful call to {@link #findLine()}
+     */
+    default int lineStart() {
+        throw new UnsupportedOperationException("Line mode is not supported by " + getClass().getName());
+    }
+
+    /**
+     * @return the index just past the last character of the line found by the last successful call to
+     * {@link #findLine()}, excluding the newline
+     */
+    default int lineEnd() {
+        throw new UnsupportedOperationException("Line mode is not supported by " + getClass().getName());
+    }
 }
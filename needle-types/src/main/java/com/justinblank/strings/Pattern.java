@@ -1,5 +1,9 @@
 package com.justinblank.strings;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
 public interface Pattern {
 
     /**
@@ -31,4 +35,67 @@ public interface Pattern {
     int ALL_FLAGS = DOTALL | CASE_INSENSITIVE | UNICODE_CASE | LEFTMOST_LONGEST | UNICODE_CHARACTER_CLASS;
 
     Matcher matcher(String s);
+
+    /**
+     * Create a matcher for an arbitrary CharSequence. The default implementation copies the sequence to a String.
+     * Patterns created by the compiler override this to read from the sequence directly.
+     *
+     * @param s the sequence to match against
+     * @return a matcher
+     */
+    default Matcher matcher(CharSequence s) {
+        return matcher(s.toString());
+    }
+
+    /**
+     * Create a matcher for a slice of a char[]. Indexes reported by the matcher are relative to the offset. The default
+     * implementation copies the slice to a String. Patterns created by the compiler override this to read from the
+     * array directly.
+     *
+     * @param data the array containing the slice
+     * @param offset the start of the slice
+     * @param length the length of the slice
+     * @return a matcher
+     */
+    default Matcher matcher(char[] data, int offset, int length) {
+        return matcher(new String(data, offset, length));
+    }
+
+    /**
+     * Create a matcher for a slice of a byte[] holding encoded text. Indexes reported by the matcher are byte offsets
+     * relative to the offset. Patterns created by the compiler support UTF-8, ISO-8859-1 and US-ASCII, and read from
+     * the array directly. The default implementation supports only ISO-8859-1 and US-ASCII, whose byte offsets are the
+     * same as char offsets, and copies the slice to a String.
+     *
+     * @param data the array containing the slice
+     * @param offset the start of the slice
+     * @param length the length of the slice
+     * @param charset the encoding of the bytes
+     * @return a matcher
+     * @throws UnsupportedOperationException if the charset isn't supported
+     */
+    default Matcher matcher(byte[] data, int offset, int length, Charset charset) {
+        if (StandardCharsets.ISO_8859_1.equals(charset) || StandardCharsets.US_ASCII.equals(charset)) {
+            return matcher(new String(data, offset, length, StandardCharsets.ISO_8859_1));
+        }
+        throw new UnsupportedOperationException("Matching against bytes encoded with " + charset + " is not supported");
+    }
+
+    /**
+     * Create a matcher for the encoded text between a buffer's position and limit. Indexes reported by the matcher are
+     * byte offsets relative to the buffer's position. The buffer's position and limit are not modified. Patterns created
+     * by the compiler support UTF-8, ISO-8859-1 and US-ASCII, and read from the buffer directly, whether it's a heap or
+     * a direct buffer. The default implementation supports only ISO-8859-1 and US-ASCII, and copies the bytes to a
+     * String.
+     *
+     * @param buffer the buffer
+     * @param charset the encoding of the bytes
+     * @return a matcher
+     * @throws UnsupportedOperationException if the charset isn't supported
+     */
+    default Matcher matcher(ByteBuffer buffer, Charset charset) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return matcher(bytes, 0, bytes.length, charset);
+    }
 }
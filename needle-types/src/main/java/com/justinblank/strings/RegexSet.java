@@ -0,0 +1,54 @@
+package com.justinblank.strings;
+
+import java.util.BitSet;
+
+/**
+ * A set of regexes that are searched for together, in a single pass over the input. Regexes are identified by their
+ * index in the list they were compiled from.
+ */
+public interface RegexSet {
+
+    /**
+     * @return the number of regexes in the set
+     */
+    int size();
+
+    /**
+     * Find which regexes occur in a string. A regex occurs in the string if {@link Matcher#containedIn()} would be true
+     * for it.
+     *
+     * @param s the string to search
+     * @return a bitset, in the format of {@link BitSet#toLongArray()}, of the indexes of the regexes that occur in s.
+     * The array always has enough words to hold every index.
+     */
+    long[] matchWords(String s);
+
+    /**
+     * @param s the string to search
+     * @return the indexes of the regexes that occur in s
+     */
+    default BitSet matches(String s) {
+        return BitSet.valueOf(matchWords(s));
+    }
+
+    /**
+     * @param s the string to search
+     * @return the indexes of the regexes that occur in s, in ascending order
+     */
+    default int[] matchingPatterns(String s) {
+        return matches(s).stream().toArray();
+    }
+
+    /**
+     * @param s the string to search
+     * @return true if any of the regexes occurs in s
+     */
+    default boolean matchesAny(String s) {
+        for (long word : matchWords(s)) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
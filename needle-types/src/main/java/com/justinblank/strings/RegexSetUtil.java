@@ -0,0 +1,86 @@
+package com.justinblank.strings;
+
+/**
+ * Helpers for classes generated from a {@link RegexSet} or a {@link Lexer}.
+ */
+public class RegexSetUtil {
+
+    /**
+     * Fill part of an int array from a string, where each char holds one value, plus one, so that -1 can be encoded.
+     *
+     * @param array the array to fill
+     * @param offset the index at which to store the first value
+     * @param encoded the encoded values
+     */
+    public static void fill(int[] array, int offset, String encoded) {
+        for (int i = 0; i < encoded.length(); i++) {
+            array[offset + i] = encoded.charAt(i) - 1;
+        }
+    }
+
+    /**
+     * Fill part of an int array from a string, where each value, plus one, is held in two chars, high bits first. Used
+     * for values too large to fit in a single char.
+     *
+     * @param array the array to fill
+     * @param offset the index at which to store the first value
+     * @param encoded the encoded values
+     */
+    public static void fillWide(int[] array, int offset, String encoded) {
+        for (int i = 0; i < encoded.length(); i += 2) {
+            array[offset + i / 2] = ((encoded.charAt(i) << 16) | encoded.charAt(i + 1)) - 1;
+        }
+    }
+
+    /**
+     * Find the class of a char, for chars whose classes are stored as a table of the classes of the first chars, plus
+     * the boundaries between classes.
+     *
+     * @param table the classes of the first table.length chars
+     * @param boundaries the sorted first chars of every class but the first
+     * @param c the char
+     * @return the class of c, which is the number of boundaries at or below it
+     */
+    public static int charClass(int[] table, int[] boundaries, char c) {
+        if (c < table.length) {
+            return table[c];
+        }
+        int low = table[table.length - 1];
+        int high = boundaries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (boundaries[mid] <= c) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Mark patterns as matched.
+     *
+     * @param words the bitset of matched patterns
+     * @param patternIds lists of pattern ids, each terminated by -1
+     * @param offset the start of the list to mark
+     */
+    public static void mark(long[] words, int[] patternIds, int offset) {
+        for (int i = offset; patternIds[i] >= 0; i++) {
+            int patternId = patternIds[i];
+            words[patternId >>> 6] |= 1L << patternId;
+        }
+    }
+
+    /**
+     * Encode a token for a generated lexer, which can't call an interface's static methods.
+     *
+     * @param tokenType the index of the token's regex
+     * @param end the index after the last char of the token
+     * @return the token, encoded as by {@link Lexer#token(int, int)}
+     */
+    public static long token(int tokenType, int end) {
+        return Lexer.token(tokenType, end);
+    }
+}